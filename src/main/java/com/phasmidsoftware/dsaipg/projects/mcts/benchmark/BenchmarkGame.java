@@ -0,0 +1,82 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Game;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * This interface describes a Game as far as the benchmark runners are concerned:
+ * how to set up a (reproducible) starting position and which engine variants are available.
+ *
+ * @param <G> the type of the Game.
+ */
+public interface BenchmarkGame<G extends Game> {
+
+    /**
+     * @return the name of this game as it is given on the command line and in the CSV output.
+     */
+    String name();
+
+    /**
+     * Method to create the starting State of a game.
+     *
+     * @param boardSize   the board size (ignored by games with a fixed board).
+     * @param firstPlayer true if the player counted as "P1" moves first; false if "P2" moves first.
+     * @param seed        the seed for the random source of the game.
+     * @return a State of G.
+     */
+    State<G> start(int boardSize, boolean firstPlayer, long seed);
+
+    /**
+     * @param boardSize the board size.
+     * @return the maximum number of moves in one game.
+     */
+    int maxMoves(int boardSize);
+
+    /**
+     * @return the player whose wins are counted as "P1" wins.
+     */
+    int firstPlayer();
+
+    /**
+     * @return true if the board size is a meaningful parameter of this game.
+     */
+    boolean variableBoardSize();
+
+    /**
+     * @return the engine variants of this game, keyed by name.
+     */
+    Map<String, Function<Experiment, Engine<G>>> variants();
+
+    /**
+     * Method to create an engine for the given experiment.
+     *
+     * @param experiment the experiment.
+     * @return an Engine of G.
+     * @throws IllegalArgumentException if the engine variant is unknown for this game.
+     */
+    default Engine<G> engine(Experiment experiment) {
+        Function<Experiment, Engine<G>> factory = variants().get(experiment.engine());
+        if (factory == null)
+            throw new IllegalArgumentException("unknown engine variant for " + name() + ": " + experiment.engine() + " (known: " + variants().keySet() + ")");
+        return factory.apply(experiment);
+    }
+
+    /**
+     * Method to find a BenchmarkGame by name.
+     *
+     * @param name the name (case-insensitive).
+     * @return the BenchmarkGame, if any.
+     */
+    static Optional<BenchmarkGame<?>> of(String name) {
+        return switch (name.toLowerCase()) {
+            case TicTacToeBenchmarkGame.NAME, "ttt" -> Optional.of(TicTacToeBenchmarkGame.INSTANCE);
+            case DotsAndBoxesBenchmarkGame.NAME, "dotsandboxes" -> Optional.of(DotsAndBoxesBenchmarkGame.INSTANCE);
+            default -> Optional.empty();
+        };
+    }
+}
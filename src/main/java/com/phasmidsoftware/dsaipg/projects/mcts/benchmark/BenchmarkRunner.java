@@ -0,0 +1,349 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.args.Args;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Game;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import scala.Option;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Command-line runner for benchmark experiment matrices.
+ * <p>
+ * Every combination of the given games, board sizes, engine variants, iteration counts, time budgets,
+ * exploration constants, thread counts, search thread counts and seeds is run as one experiment on a pool of parallel workers;
+ * each experiment yields one row of the CSV file <code>benchmark_results.csv</code> in the output directory.
+ * <p>
+ * Every game is also appended to the {@link GameLog} <code>games.log</code> in the output directory as soon as it finishes,
+ * and the outcome and latency columns are aggregated from that log.
+ * Re-running an interrupted matrix with the same output directory therefore resumes it: games already in the log are skipped.
+ * The time, round and resource columns could only cover the games played by the current run, so they are left blank
+ * for an experiment which was resumed.
+ * The resource columns are also left blank for an experiment whose searches use more than one thread (-S greater than 1),
+ * since most of the search then runs on the shared threads of {@link com.phasmidsoftware.dsaipg.projects.mcts.core.ParallelSearch},
+ * whose allocations cannot be attributed to the experiment.
+ * <p>
+ * Run with <code>-h</code> for the list of options; an empty command line runs a small Dots and Boxes experiment.
+ * <p>
+ * NOTE: experiments which run at the same time (-p greater than 1) compete for CPU,
+ * so use -p 1 when the latency columns matter.
+ */
+public class BenchmarkRunner {
+
+    public static final String RESULTS_FILE = "benchmark_results.csv";
+
+    public static final String LOG_FILE = "games.log";
+
+    /**
+     * The number of games between forcing the game log to disk.
+     */
+    public static final int SYNC_EVERY = 10;
+
+    public static final String CSV_HEADER = Experiment.CSV_HEADER +
+            ",TotalGames,P1Wins,P2Wins,Draws,WinRateP1,WinRateP2,AvgGameLength,TimeMillis," +
+            MoveLatencyStats.CSV_HEADER + "," + RoundStatistics.CSV_HEADER + "," + ResourceMonitor.CSV_HEADER;
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(usage());
+            return;
+        }
+        Path output = run(options);
+        System.out.println("Results written to: " + output);
+    }
+
+    /**
+     * Run all the experiments described by the options and write the results.
+     *
+     * @param options the parsed options.
+     * @return the path of the CSV file which was written.
+     * @throws IOException if the results cannot be written.
+     */
+    public static Path run(Options options) throws IOException {
+        List<Experiment> experiments = options.experiments();
+        System.out.println("Running " + experiments.size() + " experiment(s) with parallelism " + options.parallelism());
+        Files.createDirectories(options.outputDirectory());
+        List<String> rows;
+        try (GameLog log = GameLog.open(options.outputDirectory().resolve(LOG_FILE), SYNC_EVERY)) {
+            if (log.skipped() > 0) System.out.println("Skipped " + log.skipped() + " unreadable line(s) of the game log");
+            List<Supplier<String>> suppliers = new ArrayList<>();
+            for (Experiment experiment : experiments) suppliers.add(() -> runExperiment(experiment, log));
+
+            ExecutorService executor = Executors.newFixedThreadPool(options.parallelism());
+            try {
+                rows = ParallelRunner.supplyAllAsync(suppliers, executor);
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        Path path = options.outputDirectory().resolve(RESULTS_FILE);
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            writer.write(CSV_HEADER + "\n");
+            for (String row : rows) writer.write(row);
+        }
+        return path;
+    }
+
+    /**
+     * Run one experiment, without a persistent game log.
+     *
+     * @param experiment the experiment.
+     * @return a CSV row (terminated by a newline) described by {@link #CSV_HEADER}.
+     */
+    public static String runExperiment(Experiment experiment) {
+        return runExperiment(experiment, GameLog.inMemory());
+    }
+
+    /**
+     * Run one experiment, skipping any games which are already in the log and appending the others.
+     *
+     * @param experiment the experiment.
+     * @param log        the game log.
+     * @return a CSV row (terminated by a newline) described by {@link #CSV_HEADER}.
+     */
+    public static String runExperiment(Experiment experiment, GameLog log) {
+        BenchmarkGame<?> game = BenchmarkGame.of(experiment.game())
+                .orElseThrow(() -> new IllegalArgumentException("unknown game: " + experiment.game()));
+        return runExperiment(game, experiment, log);
+    }
+
+    private static <G extends Game> String runExperiment(BenchmarkGame<G> game, Experiment experiment, GameLog log) {
+        System.out.println("Running experiment: " + experiment.toCsv() + " on " + Thread.currentThread().getName());
+        int threads = Math.max(1, experiment.threads());
+        List<Thread> workers = Collections.synchronizedList(new ArrayList<>());
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "benchmark-worker-" + workers.size());
+            thread.setDaemon(true);
+            workers.add(thread);
+            return thread;
+        });
+        String setting = experiment.toCsv();
+        int totalGames = experiment.games() * experiment.rounds();
+        int maxMoves = game.maxMoves(experiment.boardSize());
+        boolean resumed = log.completed(setting) > 0;
+        try {
+            pool.prestartAllCoreThreads();
+            if (log.completed(setting) < totalGames)
+                // Warmup games are given negative indices so that they never repeat a measured game.
+                playAll(pool, threads, experiment.warmupGames(), i -> playGame(game, experiment, -1 - i));
+
+            RoundStatistics roundMillis = new RoundStatistics();
+            long totalMillis = 0;
+            AtomicLong movesPlayed = new AtomicLong();
+            ResourceMonitor resources = ResourceMonitor.start(threadIds(workers));
+            for (int round = 0; round < experiment.rounds(); round++) {
+                int offset = round * experiment.games();
+                if (log.summarize(setting, offset, offset + experiment.games(), maxMoves).games() == experiment.games())
+                    continue;
+                long start = System.currentTimeMillis();
+                playAll(pool, threads, experiment.games(), i -> {
+                    if (log.isComplete(setting, offset + i)) return;
+                    GameLog.Entry entry = playGame(game, experiment, offset + i);
+                    movesPlayed.addAndGet(entry.moves());
+                    append(log, entry);
+                });
+                long elapsed = System.currentTimeMillis() - start;
+                roundMillis.add(elapsed);
+                totalMillis += elapsed;
+            }
+            resources.stop();
+            sync(log);
+
+            GameLog.Summary total = log.summarize(setting, 0, totalGames, maxMoves);
+            long iterations = experiment.iterations() == Integer.MAX_VALUE ? 0 : (long) experiment.iterations() * movesPlayed.get();
+            return String.format(Locale.US, "%s,%d,%d,%d,%d,%.2f,%.2f,%.2f,%s,%s,%s,%s\n",
+                    experiment.toCsv(), totalGames, total.p1Wins, total.p2Wins, total.draws,
+                    total.p1Wins * 100.0 / totalGames, total.p2Wins * 100.0 / totalGames, total.moves * 1.0 / totalGames,
+                    resumed ? "" : String.valueOf(totalMillis), total.latency.toCsv(),
+                    resumed ? RoundStatistics.blankCsv(experiment.warmupGames(), experiment.rounds()) : roundMillis.toCsv(experiment.warmupGames()),
+                    resumed || experiment.searchThreads() > 1 ? ResourceMonitor.BLANK_CSV : resources.toCsv(iterations));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Play the given number of games, spread over the workers of the pool.
+     * Worker k plays games k, k + threads, k + 2 * threads, ...
+     */
+    private static void playAll(ThreadPoolExecutor pool, int threads, int games, GamePlayer player) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int k = 0; k < Math.min(threads, games); k++) {
+            int worker = k;
+            futures.add(pool.submit(() -> {
+                for (int i = worker; i < games; i += threads) player.play(i);
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                throw new RuntimeException("benchmark game failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static <G extends Game> GameLog.Entry playGame(BenchmarkGame<G> game, Experiment experiment, long gameIndex) {
+        Engine<G> engine = game.engine(experiment);
+        State<G> state = game.start(experiment.boardSize(), gameIndex % 2 == 0, experiment.gameSeed(gameIndex));
+        long[] moveNanos = new long[game.maxMoves(experiment.boardSize())];
+        int moves = 0;
+        long gameStart = System.nanoTime();
+        while (!state.isTerminal()) {
+            long moveStart = System.nanoTime();
+            Move<G> move = engine.findBestMove(state);
+            long nanos = System.nanoTime() - moveStart;
+            if (move == null) break;
+            if (moves < moveNanos.length) moveNanos[moves] = nanos;
+            state = state.next(move);
+            moves++;
+        }
+        long gameNanos = System.nanoTime() - gameStart;
+        Optional<Integer> winner = state.winner();
+        int outcome = winner.isEmpty() ? 0 : winner.get() == game.firstPlayer() ? 1 : 2;
+        return new GameLog.Entry(experiment.toCsv(), gameIndex, outcome, moves, gameNanos,
+                Arrays.copyOf(moveNanos, Math.min(moves, moveNanos.length)));
+    }
+
+    private static void append(GameLog log, GameLog.Entry entry) {
+        try {
+            log.append(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void sync(GameLog log) {
+        try {
+            log.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long[] threadIds(List<Thread> threads) {
+        synchronized (threads) {
+            return threads.stream().mapToLong(Thread::getId).toArray();
+        }
+    }
+
+    static String usage() {
+        return """
+                Usage: BenchmarkRunner [options]  (lists are comma-separated)
+                  -g games             tictactoe,dots                         (default: dots)
+                  -b board sizes       number of dots per side, Dots only     (default: 5)
+                  -e engine variants   e.g. mcts,easy,medium,hard,expert      (default: mcts)
+                  -i iterations        per move                               (default: 1000, or unlimited if -t is given)
+                  -t time budgets      milliseconds per move, 0 for none      (default: 0)
+                  -c exploration       UCT exploration constants              (default: 1.414)
+                  -T threads           threads playing each experiment        (default: 1)
+                  -S search threads    root-parallel threads of each search   (default: 1)
+                  -s seeds             seeds for the games' random sources    (default: 0)
+                  -n games             games per measured round               (default: 100)
+                  -w warmup games      unrecorded games before measuring      (default: 10)
+                  -r rounds            measured rounds                        (default: 1)
+                  -p parallelism       experiments run at the same time       (default: 1)
+                  -o output directory                                         (default: target/benchmarks)
+                  -h                   print this usage and exit""";
+    }
+
+    /**
+     * The parsed command line: the axes of the experiment matrix and the settings common to all experiments.
+     */
+    public record Options(List<String> games, List<Integer> boardSizes, List<String> engines, List<Integer> iterations,
+                          List<Long> timeBudgets, List<Double> explorations, List<Integer> threads, List<Integer> searchThreads, List<Long> seeds,
+                          int gamesPerRound, int warmupGames, int rounds, int parallelism, Path outputDirectory) {
+
+        /**
+         * Parse the command line.
+         *
+         * @param args the command-line arguments.
+         * @return the Options, or null if usage was requested.
+         * @throws IllegalArgumentException if an option cannot be parsed.
+         */
+        public static Options parse(String[] args) {
+            Args<String> parsed = args.length == 0 ? null : Args.parse(args, Option.empty(), Option.empty()).get();
+            if (parsed != null && parsed.isDefined("h")) return null;
+            List<Long> timeBudgets = list(parsed, "t", "0", Long::parseLong);
+            boolean timed = timeBudgets.stream().anyMatch(t -> t > 0);
+            return new Options(
+                    list(parsed, "g", "dots", String::toLowerCase),
+                    list(parsed, "b", "5", Integer::parseInt),
+                    list(parsed, "e", "mcts", String::toLowerCase),
+                    list(parsed, "i", timed ? String.valueOf(Integer.MAX_VALUE) : "1000", Integer::parseInt),
+                    timeBudgets,
+                    list(parsed, "c", "1.414", Double::parseDouble),
+                    list(parsed, "T", "1", Integer::parseInt),
+                    list(parsed, "S", "1", Integer::parseInt),
+                    list(parsed, "s", "0", Long::parseLong),
+                    Integer.parseInt(value(parsed, "n", "100")),
+                    Integer.parseInt(value(parsed, "w", "10")),
+                    Integer.parseInt(value(parsed, "r", "1")),
+                    Integer.parseInt(value(parsed, "p", "1")),
+                    Path.of(value(parsed, "o", "target/benchmarks")));
+        }
+
+        /**
+         * Method to expand the axes into the list of all their combinations.
+         * Games with a fixed board only get one board size.
+         *
+         * @return the experiments.
+         */
+        public List<Experiment> experiments() {
+            List<Experiment> result = new ArrayList<>();
+            for (String name : games) {
+                BenchmarkGame<?> game = BenchmarkGame.of(name).orElseThrow(() -> new IllegalArgumentException("unknown game: " + name));
+                List<Integer> sizes = game.variableBoardSize() ? boardSizes : List.of(3);
+                for (int size : sizes)
+                    for (String engine : engines) {
+                        if (!game.variants().containsKey(engine))
+                            throw new IllegalArgumentException("unknown engine variant for " + game.name() + ": " + engine);
+                        for (int iteration : iterations)
+                            for (long timeBudget : timeBudgets)
+                                for (double exploration : explorations)
+                                    for (int thread : threads)
+                                        for (int searchThread : searchThreads)
+                                            for (long seed : seeds)
+                                                result.add(new Experiment(game.name(), size, engine, iteration, timeBudget, exploration,
+                                                        thread, searchThread, seed, gamesPerRound, warmupGames, rounds));
+                    }
+            }
+            return result;
+        }
+
+        static String value(Args<String> parsed, String flag, String defaultValue) {
+            if (parsed == null) return defaultValue;
+            Option<String> value = parsed.getArgValue(flag);
+            return value.isDefined() ? value.get() : defaultValue;
+        }
+
+        static <X> List<X> list(Args<String> parsed, String flag, String defaultValue, Function<String, X> f) {
+            return Arrays.stream(value(parsed, flag, defaultValue).split(",")).map(String::trim).filter(w -> !w.isEmpty()).map(f).toList();
+        }
+    }
+
+    private interface GamePlayer {
+        void play(int gameIndex);
+    }
+}
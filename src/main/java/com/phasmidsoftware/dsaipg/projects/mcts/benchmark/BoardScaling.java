@@ -0,0 +1,161 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.args.Args;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SearchStatistics;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesGame;
+import scala.Option;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Board-size scaling study for Dots and Boxes.
+ * <p>
+ * For each board size, a workload of reproducible positions (see {@link ThreadScaling#positions}) is searched with the same
+ * fixed iteration or time budget, and one row of the consolidated report <code>board_scaling.csv</code> gives
+ * the throughput, the size of the search trees, the memory they cost, the per-move latency
+ * and the iterations which the engine did not need (see {@link com.phasmidsoftware.dsaipg.projects.mcts.core.EarlyStop}).
+ * <p>
+ * Heap per node is measured as the bytes allocated by the searching thread divided by the nodes created,
+ * which includes the garbage made while building the tree and so is an upper bound of the retained size of a node;
+ * the mean size of a tree as estimated by the engine itself is given alongside it.
+ * <p>
+ * Run with <code>-h</code> for the list of options.
+ */
+public class BoardScaling {
+
+    public static final String RESULTS_FILE = "board_scaling.csv";
+
+    public static final String CSV_HEADER = "Game,BoardSize,Engine,Iterations,TimeBudgetMillis,Searches,IterationsPerSearch," +
+            "NodesPerSearch,SavedIterationsPerSearch,IterationsPerSecond,MeanMoveMillis,P50Micros,P90Micros,P99Micros,MaxMicros,AllocatedBytesPerNode,EstimatedTreeKB,PeakHeapMB";
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(usage());
+            return;
+        }
+        for (String row : run(options)) System.out.print(row);
+        System.out.println("Results written to: " + options.outputDirectory().resolve(RESULTS_FILE));
+    }
+
+    /**
+     * Run the study for all the board sizes and write the report.
+     *
+     * @param options the parsed options.
+     * @return the CSV rows (each terminated by a newline) described by {@link #CSV_HEADER}.
+     * @throws IOException if the report cannot be written.
+     */
+    public static List<String> run(Options options) throws IOException {
+        BenchmarkGame<DotsAndBoxesGame> game = DotsAndBoxesBenchmarkGame.INSTANCE;
+        if (!game.variants().containsKey(options.engine()))
+            throw new IllegalArgumentException("unknown engine variant for " + game.name() + ": " + options.engine());
+        // Warm up the JIT compiler on the smallest board.
+        int smallest = options.boardSizes().stream().mapToInt(Integer::intValue).min().orElse(3);
+        for (int i = 0; i < options.warmupPasses(); i++) measure(game, options, smallest);
+
+        List<String> rows = new ArrayList<>();
+        for (int boardSize : options.boardSizes()) {
+            System.out.println("Measuring board size " + boardSize);
+            rows.add(measure(game, options, boardSize));
+        }
+        Files.createDirectories(options.outputDirectory());
+        try (Writer writer = Files.newBufferedWriter(options.outputDirectory().resolve(RESULTS_FILE))) {
+            writer.write(CSV_HEADER + "\n");
+            for (String row : rows) writer.write(row);
+        }
+        return rows;
+    }
+
+    private static String measure(BenchmarkGame<DotsAndBoxesGame> game, Options options, int boardSize) {
+        if (boardSize < 2) throw new IllegalArgumentException("board size must be at least 2: " + boardSize);
+        List<State<DotsAndBoxesGame>> positions = ThreadScaling.positions(game, boardSize, options.positions(), options.seed());
+        Engine<DotsAndBoxesGame> engine = game.engine(new Experiment(game.name(), boardSize, options.engine(), options.iterations(),
+                options.timeBudgetMillis(), options.exploration(), 1, 1, options.seed(), 0, 0, 1));
+        LatencyHistogram latency = new LatencyHistogram();
+        long iterations = 0;
+        long nodes = 0;
+        long saved = 0;
+        long bytes = 0;
+        long nanos = 0;
+        int searches = 0;
+        ResourceMonitor resources = ResourceMonitor.start();
+        for (int r = 0; r < options.repetitions(); r++)
+            for (State<DotsAndBoxesGame> position : positions) {
+                long start = System.nanoTime();
+                engine.findBestMove(position);
+                long elapsed = System.nanoTime() - start;
+                latency.record(elapsed);
+                nanos += elapsed;
+                SearchStatistics statistics = engine.lastSearch().orElse(SearchStatistics.NONE);
+                iterations += statistics.iterations();
+                nodes += statistics.nodes();
+                saved += statistics.savedIterations();
+                bytes += statistics.estimatedBytes();
+                searches++;
+            }
+        resources.stop();
+        long allocated = resources.allocatedBytes();
+        return String.format(Locale.US, "%s,%d,%s,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.3f,%d,%d,%d,%d,%d,%.1f,%.2f\n",
+                game.name(), boardSize, options.engine(), options.iterations(), options.timeBudgetMillis(), searches,
+                searches > 0 ? iterations * 1.0 / searches : 0, searches > 0 ? nodes * 1.0 / searches : 0,
+                searches > 0 ? saved * 1.0 / searches : 0,
+                nanos > 0 ? iterations * 1e9 / nanos : 0, searches > 0 ? nanos / 1e6 / searches : 0,
+                latency.percentile(50) / 1000, latency.percentile(90) / 1000, latency.percentile(99) / 1000, latency.max() / 1000,
+                allocated < 0 ? -1 : nodes > 0 ? allocated / nodes : 0,
+                searches > 0 ? bytes / 1024.0 / searches : 0, resources.peakHeapBytes() / (1024.0 * 1024.0));
+    }
+
+    static String usage() {
+        return """
+                Usage: BoardScaling [options]
+                  -b board sizes       number of dots per side, comma-separated    (default: 3,4,5,6,7,8,9,10)
+                  -e engine variant    e.g. mcts, easy, medium, hard, expert       (default: mcts)
+                  -i iterations        per search                                  (default: 1000, or unlimited if -t is given)
+                  -t time budget       milliseconds per search, 0 for none         (default: 0)
+                  -c exploration       UCT exploration constant                    (default: 1.414)
+                  -P positions         positions in the workload of each size      (default: 10)
+                  -r repetitions       searches of each position                   (default: 1)
+                  -w warmup passes     unmeasured passes on the smallest board     (default: 1)
+                  -s seed              seed of the positions                       (default: 0)
+                  -o output directory                                              (default: target/benchmarks)
+                  -h                   print this usage and exit""";
+    }
+
+    /**
+     * The parsed command line.
+     */
+    public record Options(List<Integer> boardSizes, String engine, int iterations, long timeBudgetMillis, double exploration,
+                          int positions, int repetitions, int warmupPasses, long seed, Path outputDirectory) {
+
+        /**
+         * Parse the command line.
+         *
+         * @param args the command-line arguments.
+         * @return the Options, or null if usage was requested.
+         */
+        public static Options parse(String[] args) {
+            Args<String> parsed = args.length == 0 ? null : Args.parse(args, Option.empty(), Option.empty()).get();
+            if (parsed != null && parsed.isDefined("h")) return null;
+            long timeBudget = Long.parseLong(BenchmarkRunner.Options.value(parsed, "t", "0"));
+            return new Options(
+                    BenchmarkRunner.Options.list(parsed, "b", "3,4,5,6,7,8,9,10", Integer::parseInt),
+                    BenchmarkRunner.Options.value(parsed, "e", "mcts").toLowerCase(),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "i", timeBudget > 0 ? String.valueOf(Integer.MAX_VALUE) : "1000")),
+                    timeBudget,
+                    Double.parseDouble(BenchmarkRunner.Options.value(parsed, "c", "1.414")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "P", "10")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "r", "1")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "w", "1")),
+                    Long.parseLong(BenchmarkRunner.Options.value(parsed, "s", "0")),
+                    Path.of(BenchmarkRunner.Options.value(parsed, "o", "target/benchmarks")));
+        }
+    }
+}
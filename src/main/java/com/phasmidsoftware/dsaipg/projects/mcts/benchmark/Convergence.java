@@ -0,0 +1,171 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.args.Args;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesEndgame;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesEvaluator;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesGame;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesState;
+import scala.Option;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Convergence study for Dots and Boxes: how quickly the moves of each engine variant approach perfect play as its
+ * iterations grow, judged by the {@link DotsAndBoxesEndgame} database of a board which has been solved (3 or 4 dots per side).
+ * <p>
+ * The workload is a set of reproducible positions, made by playing random moves from the start until no more than the
+ * given number of lines are left and no box can be taken (so that the engines have to search). For each variant and iteration budget, one row of the report <code>convergence.csv</code>
+ * gives the proportion of the positions in which the engine chose a perfect move, the mean number of boxes which its
+ * moves gave away (compared with perfect play), and the proportion of moves which changed the outcome (a win to a draw or
+ * loss, or a draw to a loss).
+ * <p>
+ * Run with <code>-h</code> for the list of options.
+ */
+public class Convergence {
+
+    public static final String RESULTS_FILE = "convergence.csv";
+
+    public static final String CSV_HEADER = "Game,BoardSize,LinesLeft,Engine,Iterations,Positions,PerfectRate,MeanBoxesLost,OutcomeErrorRate,MeanMoveMillis";
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(usage());
+            return;
+        }
+        for (String row : run(options)) System.out.print(row);
+        System.out.println("Results written to: " + options.outputDirectory().resolve(RESULTS_FILE));
+    }
+
+    /**
+     * Run the study and write the report, solving the board first if its database is not in the endgame directory.
+     *
+     * @param options the parsed options.
+     * @return the CSV rows (each terminated by a newline) described by {@link #CSV_HEADER}.
+     * @throws IOException if the database cannot be written or read, or the report cannot be written.
+     */
+    public static List<String> run(Options options) throws IOException {
+        BenchmarkGame<DotsAndBoxesGame> game = DotsAndBoxesBenchmarkGame.INSTANCE;
+        for (String engine : options.engines())
+            if (!game.variants().containsKey(engine))
+                throw new IllegalArgumentException("unknown engine variant for " + game.name() + ": " + engine);
+        if (options.boardSize() < 3 || options.boardSize() > DotsAndBoxesEndgame.MAX_SIZE)
+            throw new IllegalArgumentException("no endgame database for board size " + options.boardSize());
+        Path path = DotsAndBoxesEndgame.path(options.endgameDirectory(), options.boardSize());
+        if (!Files.exists(path)) {
+            Files.createDirectories(options.endgameDirectory());
+            DotsAndBoxesEndgame.write(options.boardSize(), path);
+        }
+        DotsAndBoxesEndgame endgame = DotsAndBoxesEndgame.open(path);
+        List<DotsAndBoxesState> positions = positions(game, options);
+
+        List<String> rows = new ArrayList<>();
+        for (String name : options.engines())
+            for (int iterations : options.iterations()) {
+                System.out.println("Measuring " + name + ":" + iterations);
+                Engine<DotsAndBoxesGame> engine = game.engine(new Experiment(game.name(), options.boardSize(), name, iterations,
+                        0, options.exploration(), 1, 1, options.seed(), 0, 0, 1));
+                int perfect = 0;
+                int outcomeErrors = 0;
+                long boxesLost = 0;
+                long nanos = 0;
+                for (DotsAndBoxesState position : positions) {
+                    long start = System.nanoTime();
+                    Move<DotsAndBoxesGame> move = engine.findBestMove(position);
+                    nanos += System.nanoTime() - start;
+                    int best = endgame.margin(position);
+                    int value = endgame.margin(position, move);
+                    if (value == best) perfect++;
+                    boxesLost += best - value;
+                    int[] scores = position.getScores();
+                    int material = scores[position.player() - 1] - scores[2 - position.player()];
+                    if (Integer.signum(material + value) != Integer.signum(material + best)) outcomeErrors++;
+                }
+                int n = positions.size();
+                rows.add(String.format(Locale.US, "%s,%d,%d,%s,%d,%d,%.3f,%.3f,%.3f,%.3f\n", game.name(), options.boardSize(),
+                        options.linesLeft(), name, iterations, n, n > 0 ? perfect * 1.0 / n : 0, n > 0 ? boxesLost * 1.0 / n : 0,
+                        n > 0 ? outcomeErrors * 1.0 / n : 0, n > 0 ? nanos / 1e6 / n : 0));
+            }
+        Files.createDirectories(options.outputDirectory());
+        try (Writer writer = Files.newBufferedWriter(options.outputDirectory().resolve(RESULTS_FILE))) {
+            writer.write(CSV_HEADER + "\n");
+            for (String row : rows) writer.write(row);
+        }
+        return rows;
+    }
+
+    /**
+     * @return the positions of the workload: the first positions reached by random moves from the start (with alternating
+     * first players) with no more than the given number of lines left and no box which can be taken (where the engines
+     * would take it without searching), or the last position before the end of the game if there is none.
+     */
+    static List<DotsAndBoxesState> positions(BenchmarkGame<DotsAndBoxesGame> game, Options options) {
+        Experiment seeds = new Experiment(game.name(), options.boardSize(), "", 0, 0, 0, 1, 1, options.seed(), 0, 0, 1);
+        List<DotsAndBoxesState> result = new ArrayList<>();
+        for (int k = 0; k < options.positions(); k++) {
+            State<DotsAndBoxesGame> state = game.start(options.boardSize(), k % 2 == 0, seeds.gameSeed(k));
+            int played = 0;
+            while (played < game.maxMoves(options.boardSize()) - options.linesLeft()
+                    || DotsAndBoxesEvaluator.structure((DotsAndBoxesState) state).capturable() > 0) {
+                State<DotsAndBoxesGame> next = state.next(state.chooseMove(state.player()));
+                if (next.isTerminal()) break;
+                state = next;
+                played++;
+            }
+            result.add((DotsAndBoxesState) state);
+        }
+        return result;
+    }
+
+    static String usage() {
+        return """
+                Usage: Convergence [options]
+                  -b board size        3 or 4 dots per side                        (default: 4)
+                  -e engine variants   comma-separated                             (default: mcts-puct,mcts-margin,mcts-blend)
+                  -i iterations        per search, comma-separated                 (default: 100,300,1000,3000)
+                  -c exploration       exploration constant                        (default: 1.414)
+                  -l lines left        at most, in each position                   (default: 16)
+                  -P positions         positions in the workload                   (default: 100)
+                  -s seed              seed of the positions                       (default: 0)
+                  -d endgame directory where the databases are (or are written)   (default: target/endgames)
+                  -o output directory                                              (default: target/benchmarks)
+                  -h                   print this usage and exit""";
+    }
+
+    /**
+     * The parsed command line.
+     */
+    public record Options(int boardSize, List<String> engines, List<Integer> iterations, double exploration, int linesLeft,
+                          int positions, long seed, Path endgameDirectory, Path outputDirectory) {
+
+        /**
+         * Parse the command line.
+         *
+         * @param args the command-line arguments.
+         * @return the Options, or null if usage was requested.
+         */
+        public static Options parse(String[] args) {
+            Args<String> parsed = args.length == 0 ? null : Args.parse(args, Option.empty(), Option.empty()).get();
+            if (parsed != null && parsed.isDefined("h")) return null;
+            return new Options(
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "b", "4")),
+                    BenchmarkRunner.Options.list(parsed, "e", "mcts-puct,mcts-margin,mcts-blend", String::toLowerCase),
+                    BenchmarkRunner.Options.list(parsed, "i", "100,300,1000,3000", Integer::parseInt),
+                    Double.parseDouble(BenchmarkRunner.Options.value(parsed, "c", "1.414")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "l", "16")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "P", "100")),
+                    Long.parseLong(BenchmarkRunner.Options.value(parsed, "s", "0")),
+                    Path.of(BenchmarkRunner.Options.value(parsed, "d", "target/endgames")),
+                    Path.of(BenchmarkRunner.Options.value(parsed, "o", "target/benchmarks")));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.EarlyStop;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.ProofNumberSearch;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.ProvingEngine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SelectionPolicy;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.TreeBudget;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesAlphaBeta;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesEvaluator;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesGame;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesHybrid;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesMcts;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesState;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * The benchmark description of Dots and Boxes. Player 1 is counted as "P1".
+ * <p>
+ * Besides the plain "mcts" variant (which uses the iteration count, time budget and exploration constant of the experiment),
+ * each Difficulty is available as a variant (by its lower-case name) with its own preset budget and exploration constant,
+ * and there is an "mcts-" variant for each {@link SelectionPolicy} (e.g. "mcts-puct"), which searches with rollouts,
+ * "mcts-rave", which searches with rollouts, UCB1 and RAVE, and "mcts-cutoff" and "mcts-static", which search with PUCT
+ * and rollouts cut off after {@link DotsAndBoxesMcts#ROLLOUT_DEPTH} moves or no moves at all (see {@link DotsAndBoxesEvaluator}).
+ * "mcts-margin" and "mcts-blend" search as "mcts-puct", but reward the final share of the boxes instead of the outcome,
+ * or blend the two with the weight {@link DotsAndBoxesMcts#MARGIN_WEIGHT} (see {@link DotsAndBoxesMcts#useMarginReward}).
+ * <p>
+ * The "alphabeta" variant searches {@link #NODES_PER_ITERATION} positions for each iteration of the experiment
+ * (see {@link DotsAndBoxesAlphaBeta}), and "hybrid" plays as "mcts-static" until there are
+ * {@link DotsAndBoxesHybrid#LINES} lines left, and then as "alphabeta". "mcts-pns" plays as "mcts-static" unless a
+ * proof-number search of as many positions as iterations proves a win (see {@link ProvingEngine}).
+ */
+public class DotsAndBoxesBenchmarkGame implements BenchmarkGame<DotsAndBoxesGame> {
+
+    public static final String NAME = "dots";
+
+    public static final DotsAndBoxesBenchmarkGame INSTANCE = new DotsAndBoxesBenchmarkGame();
+
+    /**
+     * The number of positions searched by alpha-beta for each iteration of an experiment,
+     * which takes about as long as an iteration of "mcts-static".
+     */
+    public static final int NODES_PER_ITERATION = 10;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public State<DotsAndBoxesGame> start(int boardSize, boolean firstPlayer, long seed) {
+        return new DotsAndBoxesState(new DotsAndBoxesGame(boardSize), firstPlayer ? 1 : 2, new Random(seed));
+    }
+
+    @Override
+    public int maxMoves(int boardSize) {
+        return 2 * boardSize * (boardSize - 1);
+    }
+
+    @Override
+    public int firstPlayer() {
+        return 1;
+    }
+
+    @Override
+    public boolean variableBoardSize() {
+        return true;
+    }
+
+    @Override
+    public Map<String, Function<Experiment, Engine<DotsAndBoxesGame>>> variants() {
+        return variants;
+    }
+
+    private DotsAndBoxesBenchmarkGame() {
+        variants.put("mcts", e -> new DotsAndBoxesMcts(e.iterations(), e.exploration(), e.timeBudgetMillis(), e.searchThreads()));
+        for (String policy : SelectionPolicy.NAMES)
+            variants.put("mcts-" + policy, e -> new DotsAndBoxesMcts(e.iterations(), e.exploration(), e.timeBudgetMillis(),
+                    e.searchThreads(), TreeBudget.defaultBudget(), SelectionPolicy.of(policy, e.exploration())));
+        variants.put("mcts-rave", e -> new DotsAndBoxesMcts(e.iterations(), e.exploration(), e.timeBudgetMillis(),
+                e.searchThreads(), TreeBudget.defaultBudget(), null, DotsAndBoxesMcts.RAVE_EQUIVALENCE));
+        variants.put("mcts-cutoff", e -> new DotsAndBoxesMcts(e.iterations(), e.exploration(), e.timeBudgetMillis(),
+                e.searchThreads(), TreeBudget.defaultBudget(), SelectionPolicy.of("puct", e.exploration()), 0,
+                EarlyStop.EXACT, DotsAndBoxesMcts.ROLLOUT_DEPTH));
+        variants.put("mcts-margin", e -> rolloutSearch(e).useMarginReward(1));
+        variants.put("mcts-blend", e -> rolloutSearch(e).useMarginReward(DotsAndBoxesMcts.MARGIN_WEIGHT));
+        variants.put("mcts-static", DotsAndBoxesBenchmarkGame::staticSearch);
+        variants.put("alphabeta", DotsAndBoxesBenchmarkGame::alphaBeta);
+        variants.put("hybrid", e -> new DotsAndBoxesHybrid(staticSearch(e), alphaBeta(e), DotsAndBoxesHybrid.LINES));
+        variants.put("mcts-pns", e -> new ProvingEngine<>(new ProofNumberSearch<>(e.iterations()), staticSearch(e)));
+        for (DotsAndBoxesMcts.Difficulty difficulty : DotsAndBoxesMcts.Difficulty.values())
+            variants.put(difficulty.name().toLowerCase(), e -> new DotsAndBoxesMcts(difficulty));
+    }
+
+    private static DotsAndBoxesMcts rolloutSearch(Experiment e) {
+        return new DotsAndBoxesMcts(e.iterations(), e.exploration(), e.timeBudgetMillis(), e.searchThreads(),
+                TreeBudget.defaultBudget(), SelectionPolicy.of("puct", e.exploration()));
+    }
+
+    private static DotsAndBoxesMcts staticSearch(Experiment e) {
+        return new DotsAndBoxesMcts(e.iterations(), e.exploration(), e.timeBudgetMillis(), e.searchThreads(),
+                TreeBudget.defaultBudget(), SelectionPolicy.of("puct", e.exploration()), 0, EarlyStop.EXACT, 0);
+    }
+
+    private static DotsAndBoxesAlphaBeta alphaBeta(Experiment e) {
+        return new DotsAndBoxesAlphaBeta((long) NODES_PER_ITERATION * e.iterations(), e.timeBudgetMillis());
+    }
+
+    private final Map<String, Function<Experiment, Engine<DotsAndBoxesGame>>> variants = new LinkedHashMap<>();
+}
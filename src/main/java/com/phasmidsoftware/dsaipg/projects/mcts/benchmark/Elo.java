@@ -0,0 +1,82 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Elo arithmetic for comparing two players from the results of the games between them.
+ */
+public class Elo {
+
+    /**
+     * The CSV header columns (without a leading or trailing comma) which correspond to {@link Estimate#toCsv()}.
+     */
+    public static final String CSV_HEADER = "Score,Elo,EloLow95,EloHigh95";
+
+    /**
+     * An Elo difference with its 95% confidence interval.
+     *
+     * @param score the mean score (win = 1, draw = 1/2, loss = 0).
+     * @param elo   the Elo difference corresponding to the score.
+     * @param low   the lower end of the 95% confidence interval.
+     * @param high  the upper end of the 95% confidence interval.
+     */
+    public record Estimate(double score, double elo, double low, double high) {
+        /**
+         * @return the CSV columns described by {@link #CSV_HEADER}.
+         */
+        public String toCsv() {
+            return String.format(Locale.US, "%.4f,%.1f,%.1f,%.1f", score, elo, low, high);
+        }
+    }
+
+    /**
+     * @param eloDifference the Elo difference between a player and its opponent.
+     * @return the expected score of the player.
+     */
+    public static double expectedScore(double eloDifference) {
+        return 1.0 / (1.0 + Math.pow(10, -eloDifference / 400));
+    }
+
+    /**
+     * Method to convert a score into an Elo difference.
+     * Scores of 0 and 1 (which would give infinite differences) are limited to +/- {@link #MAX_ELO}.
+     *
+     * @param score the mean score of a player.
+     * @return the Elo difference between the player and its opponent.
+     */
+    public static double fromScore(double score) {
+        if (score <= 0) return -MAX_ELO;
+        if (score >= 1) return MAX_ELO;
+        return Math.max(-MAX_ELO, Math.min(MAX_ELO, -400 * Math.log10(1 / score - 1)));
+    }
+
+    /**
+     * Method to estimate the Elo difference from the results of a player against an opponent.
+     * The confidence interval comes from the normal approximation of the mean score.
+     *
+     * @param wins   the games won by the player.
+     * @param draws  the games drawn.
+     * @param losses the games lost by the player.
+     * @return the Estimate (a difference of 0 with unbounded interval if there are no games).
+     */
+    public static Estimate estimate(int wins, int draws, int losses) {
+        int n = wins + draws + losses;
+        if (n == 0) return new Estimate(0.5, 0, -MAX_ELO, MAX_ELO);
+        double score = (wins + 0.5 * draws) / n;
+        double halfWidth = Z_95 * Math.sqrt(variance(wins, draws, losses) / n);
+        return new Estimate(score, fromScore(score), fromScore(score - halfWidth), fromScore(score + halfWidth));
+    }
+
+    /**
+     * @return the variance of the score of a single game.
+     */
+    static double variance(double wins, double draws, double losses) {
+        double n = wins + draws + losses;
+        double score = (wins + 0.5 * draws) / n;
+        return (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score) + losses * score * score) / n;
+    }
+
+    public static final double MAX_ELO = 1000;
+
+    private static final double Z_95 = 1.959964;
+}
@@ -0,0 +1,49 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import java.util.Locale;
+
+/**
+ * One combination of benchmark parameters.
+ *
+ * @param game             the name of the game.
+ * @param boardSize        the board size.
+ * @param engine           the name of the engine variant.
+ * @param iterations       the maximum number of iterations per move.
+ * @param timeBudgetMillis the maximum time per move in milliseconds (0 for no limit).
+ * @param exploration      the UCT exploration constant.
+ * @param threads          the number of threads which play the games of this experiment.
+ * @param searchThreads    the number of threads used by each search (root parallelism).
+ * @param seed             the seed from which the random source of each game is derived.
+ * @param games            the number of games in each measured round.
+ * @param warmupGames      the number of games to play (and discard) before measuring.
+ * @param rounds           the number of measured rounds.
+ */
+public record Experiment(String game, int boardSize, String engine, int iterations, long timeBudgetMillis,
+                         double exploration, int threads, int searchThreads, long seed, int games, int warmupGames, int rounds) {
+
+    /**
+     * The CSV header columns (without a leading or trailing comma) which correspond to {@link #toCsv()}.
+     */
+    public static final String CSV_HEADER = "Game,BoardSize,Engine,Iterations,TimeBudgetMillis,Exploration,Threads,SearchThreads,Seed";
+
+    /**
+     * @return the CSV columns described by {@link #CSV_HEADER}.
+     */
+    public String toCsv() {
+        return String.format(Locale.US, "%s,%d,%s,%d,%d,%.3f,%d,%d,%d",
+                game, boardSize, engine, iterations, timeBudgetMillis, exploration, threads, searchThreads, seed);
+    }
+
+    /**
+     * Method to derive the seed of an individual game from the seed of this experiment.
+     *
+     * @param gameIndex the index of the game (negative for warmup games).
+     * @return a seed which is different for every game of every experiment seed.
+     */
+    public long gameSeed(long gameIndex) {
+        long z = seed + gameIndex * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,246 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An append-only log of the results of individual benchmark games, which allows a long sweep to be resumed.
+ * <p>
+ * Each game is one line: <code>setting TAB gameIndex TAB outcome TAB moves TAB nanos TAB moveNanos,...</code>,
+ * where outcome is 1 (P1 won), 2 (P2 won) or 0 (draw).
+ * Lines are written as soon as a game finishes, and the file is forced to disk after every <code>syncEvery</code> games
+ * (and when the log is closed), so a crash loses at most that many games.
+ * When an existing log is opened, a partially-written last line is discarded and the complete games are remembered,
+ * so that a benchmark can skip them and derive its results from the log; a complete line which cannot be read is skipped
+ * (see {@link #skipped()}), so its game is played again.
+ * <p>
+ * A GameLog may also be purely in memory (see {@link #inMemory()}), in which case nothing is written.
+ * The methods of this class are thread-safe.
+ */
+public class GameLog implements Closeable {
+
+    /**
+     * The result of one game.
+     *
+     * @param setting   the key of the benchmark setting (must not contain tabs or newlines).
+     * @param gameIndex the index of the game within its setting.
+     * @param outcome   1 if P1 won, 2 if P2 won, 0 for a draw.
+     * @param moves     the number of moves played.
+     * @param nanos     the time taken by the game, in nanoseconds.
+     * @param moveNanos the time taken by each move, in nanoseconds.
+     */
+    public record Entry(String setting, long gameIndex, int outcome, int moves, long nanos, long[] moveNanos) {
+        String encode() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(setting).append('\t').append(gameIndex).append('\t').append(outcome).append('\t')
+                    .append(moves).append('\t').append(nanos).append('\t');
+            for (int i = 0; i < moveNanos.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(moveNanos[i]);
+            }
+            return sb.append('\n').toString();
+        }
+
+        static Entry decode(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 6) throw new IllegalArgumentException("malformed game log line: " + line);
+            String[] times = fields[5].isEmpty() ? new String[0] : fields[5].split(",");
+            long[] moveNanos = new long[times.length];
+            for (int i = 0; i < times.length; i++) moveNanos[i] = Long.parseLong(times[i]);
+            return new Entry(fields[0], Long.parseLong(fields[1]), Integer.parseInt(fields[2]),
+                    Integer.parseInt(fields[3]), Long.parseLong(fields[4]), moveNanos);
+        }
+    }
+
+    /**
+     * The aggregated results of a number of games.
+     */
+    public static class Summary {
+        public int p1Wins = 0;
+        public int p2Wins = 0;
+        public int draws = 0;
+        public long moves = 0;
+        public long nanos = 0;
+        public final MoveLatencyStats latency;
+
+        Summary(int maxMoves) {
+            this.latency = new MoveLatencyStats(maxMoves);
+        }
+
+        public int games() {
+            return p1Wins + p2Wins + draws;
+        }
+
+        void add(Entry entry) {
+            switch (entry.outcome()) {
+                case 1 -> p1Wins++;
+                case 2 -> p2Wins++;
+                default -> draws++;
+            }
+            moves += entry.moves();
+            nanos += entry.nanos();
+            for (int i = 0; i < entry.moveNanos().length; i++) latency.record(i, entry.moveNanos()[i]);
+        }
+    }
+
+    /**
+     * Open (or create) a log file, reading any games which are already in it.
+     *
+     * @param path      the path of the log.
+     * @param syncEvery the number of games between forcing the log to disk.
+     * @return a GameLog.
+     * @throws IOException if the file cannot be read or opened for appending.
+     */
+    public static GameLog open(Path path, int syncEvery) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        GameLog log = new GameLog(channel, syncEvery);
+        // The offset just past the last complete line.
+        long end = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = 0;
+            int b;
+            while ((b = in.read()) >= 0) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                end = offset;
+                if (line.size() > 0) log.load(line.toString(StandardCharsets.UTF_8));
+                line.reset();
+            }
+        }
+        // A crash may have left a partially-written last line: drop it.
+        if (end < channel.size()) channel.truncate(end);
+        channel.position(channel.size());
+        return log;
+    }
+
+    /**
+     * @return the number of complete lines which could not be read when the log was opened (and which were skipped,
+     * so that their games are played again).
+     */
+    public synchronized int skipped() {
+        return skipped;
+    }
+
+    /**
+     * @return a GameLog which keeps its entries in memory only.
+     */
+    public static GameLog inMemory() {
+        return new GameLog(null, 1);
+    }
+
+    /**
+     * @param setting   the setting key.
+     * @param gameIndex the index of a game.
+     * @return true if that game is already in the log.
+     */
+    public synchronized boolean isComplete(String setting, long gameIndex) {
+        Set<Long> indices = completed.get(setting);
+        return indices != null && indices.contains(gameIndex);
+    }
+
+    /**
+     * @param setting the setting key.
+     * @return the number of games of that setting which are in the log.
+     */
+    public synchronized int completed(String setting) {
+        Set<Long> indices = completed.get(setting);
+        return indices == null ? 0 : indices.size();
+    }
+
+    /**
+     * Append the result of a game (unless that game is already in the log).
+     *
+     * @param entry the result.
+     * @throws IOException if the entry cannot be written.
+     */
+    public synchronized void append(Entry entry) throws IOException {
+        if (isComplete(entry.setting(), entry.gameIndex())) return;
+        if (channel != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(entry.encode().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) channel.write(buffer);
+            if (++unsynced >= syncEvery) sync();
+        }
+        remember(entry);
+    }
+
+    /**
+     * Force all appended games to disk.
+     *
+     * @throws IOException if the log cannot be forced.
+     */
+    public synchronized void sync() throws IOException {
+        if (channel != null && unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    /**
+     * Aggregate the games of a setting whose indices lie in the given range.
+     *
+     * @param setting  the setting key.
+     * @param from     the first game index (inclusive).
+     * @param to       the last game index (exclusive).
+     * @param maxMoves the maximum number of moves in one game (for the latency phases).
+     * @return the Summary.
+     */
+    public synchronized Summary summarize(String setting, long from, long to, int maxMoves) {
+        Summary summary = new Summary(maxMoves);
+        for (Entry entry : entries.getOrDefault(setting, List.of()))
+            if (entry.gameIndex() >= from && entry.gameIndex() < to) summary.add(entry);
+        return summary;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+        }
+    }
+
+    private void load(String line) {
+        try {
+            remember(Entry.decode(line));
+        } catch (IllegalArgumentException e) {
+            skipped++;
+        }
+    }
+
+    private void remember(Entry entry) {
+        if (completed.computeIfAbsent(entry.setting(), k -> new HashSet<>()).add(entry.gameIndex()))
+            entries.computeIfAbsent(entry.setting(), k -> new ArrayList<>()).add(entry);
+    }
+
+    private GameLog(FileChannel channel, int syncEvery) {
+        this.channel = channel;
+        this.syncEvery = Math.max(1, syncEvery);
+    }
+
+    private final FileChannel channel;
+    private final int syncEvery;
+    private int unsynced = 0;
+    private int skipped = 0;
+    private final Map<String, Set<Long>> completed = new HashMap<>();
+    private final Map<String, List<Entry>> entries = new HashMap<>();
+}
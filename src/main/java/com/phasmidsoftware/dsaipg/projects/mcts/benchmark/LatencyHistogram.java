@@ -0,0 +1,100 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+/**
+ * A compact log-linear histogram of latencies (in the style of HdrHistogram).
+ * <p>
+ * Values below 128 are counted exactly; larger values are counted in buckets whose width doubles
+ * with every power of two, giving a relative error of less than 1/64 over the whole range of long.
+ * Recording is a couple of bit operations and an array increment, so it is cheap enough to call once per move.
+ * <p>
+ * NOTE: this class is not thread-safe. Use one histogram per worker thread and combine them with {@link #add}.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Record one value.
+     *
+     * @param value a non-negative latency (typically in nanoseconds); negative values are recorded as zero.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[indexOf(v)]++;
+        totalCount++;
+        if (v > max) max = v;
+        if (v < min) min = v;
+    }
+
+    /**
+     * Add all the values recorded in another histogram to this one.
+     *
+     * @param other the histogram to merge into this.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+        totalCount += other.totalCount;
+        if (other.max > max) max = other.max;
+        if (other.min < min) min = other.min;
+    }
+
+    /**
+     * Method to yield the value at the given percentile.
+     * The result is the highest value equivalent to the bucket in which the percentile falls,
+     * but never more than the largest value actually recorded.
+     *
+     * @param percentile a number between 0 and 100.
+     * @return the value at that percentile, or 0 if nothing has been recorded.
+     */
+    public long percentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * totalCount));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts[i];
+            if (cumulative >= target) return Math.min(highestEquivalentValue(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * @return the largest value recorded (0 if none).
+     */
+    public long max() {
+        return totalCount == 0 ? 0 : max;
+    }
+
+    /**
+     * @return the smallest value recorded (0 if none).
+     */
+    public long min() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * @return the number of values recorded.
+     */
+    public long count() {
+        return totalCount;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    static long highestEquivalentValue(int index) {
+        int shift = Math.max(0, (index >> (SUB_BUCKET_BITS - 1)) - 1);
+        long subBucket = index - (long) shift * HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = indexOf(Long.MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount = 0;
+    private long max = 0;
+    private long min = Long.MAX_VALUE;
+}
@@ -0,0 +1,110 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Per-move latency statistics for one benchmark setting, overall and broken down by game phase.
+ * <p>
+ * The phase of a move is determined by its index relative to the maximum length of a game:
+ * the first third of the possible moves is the opening, the last third is the endgame.
+ */
+public class MoveLatencyStats {
+
+    /**
+     * The phases of a game.
+     */
+    public enum Phase {
+        OPENING, MIDDLEGAME, ENDGAME;
+
+        /**
+         * Method to determine the phase of a move.
+         *
+         * @param moveIndex the (zero-based) index of the move in the game.
+         * @param maxMoves  the maximum number of moves in a game.
+         * @return the Phase.
+         */
+        public static Phase of(int moveIndex, int maxMoves) {
+            if (maxMoves <= 0) return OPENING;
+            int third = Math.min(2, Math.max(0, moveIndex) * 3 / maxMoves);
+            return values()[third];
+        }
+    }
+
+    /**
+     * The CSV header columns (without a leading or trailing comma) which correspond to {@link #toCsv()}.
+     */
+    public static final String CSV_HEADER =
+            "P50Micros,P90Micros,P99Micros,MaxMicros," +
+                    "OpeningP50Micros,OpeningP90Micros,OpeningP99Micros,OpeningMaxMicros," +
+                    "MiddlegameP50Micros,MiddlegameP90Micros,MiddlegameP99Micros,MiddlegameMaxMicros," +
+                    "EndgameP50Micros,EndgameP90Micros,EndgameP99Micros,EndgameMaxMicros";
+
+    /**
+     * Constructor.
+     *
+     * @param maxMoves the maximum number of moves in one game (9 for TicTacToe, the number of lines for Dots and Boxes).
+     */
+    public MoveLatencyStats(int maxMoves) {
+        this.maxMoves = maxMoves;
+        for (int i = 0; i < phases.length; i++) phases[i] = new LatencyHistogram();
+    }
+
+    /**
+     * Record the time taken to choose one move.
+     *
+     * @param moveIndex the (zero-based) index of the move in the game.
+     * @param nanos     the time taken, in nanoseconds.
+     */
+    public void record(int moveIndex, long nanos) {
+        overall.record(nanos);
+        phases[Phase.of(moveIndex, maxMoves).ordinal()].record(nanos);
+    }
+
+    /**
+     * Add all the latencies recorded in another MoveLatencyStats (with the same maximum number of moves) to this one.
+     *
+     * @param other the statistics to merge into this.
+     */
+    public void add(MoveLatencyStats other) {
+        overall.add(other.overall);
+        for (int i = 0; i < phases.length; i++) phases[i].add(other.phases[i]);
+    }
+
+    /**
+     * @return the histogram of all moves.
+     */
+    public LatencyHistogram overall() {
+        return overall;
+    }
+
+    /**
+     * @param phase the phase of the game.
+     * @return the histogram of moves in that phase.
+     */
+    public LatencyHistogram phase(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * @return the CSV columns (in microseconds) described by {@link #CSV_HEADER}.
+     */
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder(summary(overall));
+        for (LatencyHistogram histogram : phases) sb.append(',').append(summary(histogram));
+        return sb.toString();
+    }
+
+    private static String summary(LatencyHistogram histogram) {
+        return String.format(Locale.US, "%d,%d,%d,%d",
+                micros(histogram.percentile(50)), micros(histogram.percentile(90)),
+                micros(histogram.percentile(99)), micros(histogram.max()));
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000;
+    }
+
+    private final int maxMoves;
+    private final LatencyHistogram overall = new LatencyHistogram();
+    private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+}
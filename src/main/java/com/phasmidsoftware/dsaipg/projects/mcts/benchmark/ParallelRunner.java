@@ -0,0 +1,35 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Utilities for running benchmark tasks in parallel.
+ */
+public class ParallelRunner {
+
+    /**
+     * Run all the suppliers on the given executor and wait for their results.
+     *
+     * @param suppliers       the tasks.
+     * @param executorService the executor on which to run them.
+     * @param <T>             the result type.
+     * @return the results, in the same order as the suppliers.
+     */
+    public static <T> List<T> supplyAllAsync(final List<Supplier<T>> suppliers, final ExecutorService executorService) {
+        List<CompletableFuture<T>> futures = suppliers.stream()
+                .map(supplier -> CompletableFuture.supplyAsync(supplier, executorService))
+                .toList();
+        try {
+            return futures.stream()
+                    .map(CompletableFuture::join)
+                    .collect(Collectors.toList());
+        } catch (CompletionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures the memory behavior of one benchmark setting: the bytes allocated by its worker thread(s),
+ * the garbage collections (count and accumulated pause time) and the peak heap usage while it ran.
+ * <p>
+ * Allocation is measured per thread (via {@code com.sun.management.ThreadMXBean.getThreadAllocatedBytes}),
+ * so it is exact for the given threads even when other settings are running concurrently;
+ * but the allocations of any other threads which do work for the setting (such as a shared pool of search threads) are not counted.
+ * GC counts and peak heap are JVM-wide, so when settings run in parallel they include the activity of the others.
+ * <p>
+ * The peak heap is the largest heap usage seen by a single sampler thread, shared by all the running monitors, which reads
+ * {@link MemoryMXBean#getHeapMemoryUsage()} every {@link #SAMPLE_MILLIS} milliseconds (and once when each monitor starts
+ * and stops). Nothing JVM-wide is reset, so monitors which overlap do not disturb one another,
+ * but a peak which is shorter than the sampling interval may be missed.
+ */
+public class ResourceMonitor {
+
+    /**
+     * The CSV header columns (without a leading or trailing comma) which correspond to {@link #toCsv(long)}.
+     */
+    public static final String CSV_HEADER = "AllocatedBytesPerIteration,AllocatedMB,GcCount,GcPauseMillis,PeakHeapMB";
+
+    /**
+     * The columns of {@link #CSV_HEADER} left blank: for a setting which was resumed, whose measurements would only
+     * cover the games played by the current run.
+     */
+    public static final String BLANK_CSV = CSV_HEADER.replaceAll("[^,]", "");
+
+    /**
+     * The interval (in milliseconds) at which the heap usage is sampled while any monitor is running.
+     */
+    public static final long SAMPLE_MILLIS = 10;
+
+    /**
+     * Start monitoring the current thread.
+     *
+     * @return a running ResourceMonitor.
+     */
+    public static ResourceMonitor start() {
+        return start(Thread.currentThread().getId());
+    }
+
+    /**
+     * Start monitoring the given threads.
+     *
+     * @param threadIds the ids of the worker threads whose allocations are to be counted.
+     * @return a running ResourceMonitor.
+     */
+    public static ResourceMonitor start(long... threadIds) {
+        return new ResourceMonitor(threadIds);
+    }
+
+    /**
+     * Stop monitoring. The values reported after this call no longer change.
+     * Calling stop more than once has no further effect.
+     *
+     * @return this ResourceMonitor.
+     */
+    public ResourceMonitor stop() {
+        if (!stopped) {
+            allocatedBytes = allocatedSinceStart();
+            gcCount = totalGcCount() - startGcCount;
+            gcMillis = totalGcMillis() - startGcMillis;
+            sample(this);
+            unregister(this);
+            peakHeapBytes = peak.get();
+            stopped = true;
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of bytes allocated by the monitored threads, or -1 if the JVM cannot measure it.
+     */
+    public long allocatedBytes() {
+        return current(this::allocatedSinceStart, allocatedBytes);
+    }
+
+    /**
+     * @return the number of garbage collections since monitoring started.
+     */
+    public long gcCount() {
+        return current(() -> totalGcCount() - startGcCount, gcCount);
+    }
+
+    /**
+     * @return the accumulated collection time (in milliseconds) since monitoring started.
+     */
+    public long gcMillis() {
+        return current(() -> totalGcMillis() - startGcMillis, gcMillis);
+    }
+
+    /**
+     * @return the largest heap usage sampled since monitoring started.
+     */
+    public long peakHeapBytes() {
+        return current(peak::get, peakHeapBytes);
+    }
+
+    /**
+     * @param iterations the total number of search iterations performed while monitoring.
+     * @return the CSV columns described by {@link #CSV_HEADER}.
+     */
+    public String toCsv(long iterations) {
+        long allocated = allocatedBytes();
+        long perIteration = allocated < 0 ? -1 : iterations > 0 ? allocated / iterations : 0;
+        return String.format(Locale.US, "%d,%.2f,%d,%d,%.2f",
+                perIteration, allocated < 0 ? -1.0 : allocated / MEGABYTE, gcCount(), gcMillis(), peakHeapBytes() / MEGABYTE);
+    }
+
+    private ResourceMonitor(long[] threadIds) {
+        this.threadIds = threadIds.clone();
+        if (THREADS instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported())
+            bean.setThreadAllocatedMemoryEnabled(true);
+        this.startAllocatedBytes = threadAllocatedBytes(this.threadIds);
+        this.startGcCount = totalGcCount();
+        this.startGcMillis = totalGcMillis();
+        sample(this);
+        register(this);
+    }
+
+    private long current(LongSupplier running, long frozen) {
+        return stopped ? frozen : running.getAsLong();
+    }
+
+    private long allocatedSinceStart() {
+        long bytes = threadAllocatedBytes(threadIds);
+        return bytes < 0 || startAllocatedBytes < 0 ? -1 : bytes - startAllocatedBytes;
+    }
+
+    private static long threadAllocatedBytes(long[] threadIds) {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean bean) || !bean.isThreadAllocatedMemoryEnabled())
+            return -1;
+        long total = 0;
+        for (long bytes : bean.getThreadAllocatedBytes(threadIds)) if (bytes > 0) total += bytes;
+        return total;
+    }
+
+    private static long totalGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, gc.getCollectionCount());
+        return total;
+    }
+
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    private static void sample(ResourceMonitor monitor) {
+        long used = MEMORY.getHeapMemoryUsage().getUsed();
+        monitor.peak.accumulateAndGet(used, Math::max);
+    }
+
+    /**
+     * Record the current heap usage in every running monitor.
+     */
+    private static void sampleAll() {
+        long used = MEMORY.getHeapMemoryUsage().getUsed();
+        for (ResourceMonitor monitor : RUNNING) monitor.peak.accumulateAndGet(used, Math::max);
+    }
+
+    private static synchronized void register(ResourceMonitor monitor) {
+        RUNNING.add(monitor);
+        if (sampling == null)
+            sampling = SAMPLER.scheduleAtFixedRate(ResourceMonitor::sampleAll, SAMPLE_MILLIS, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized void unregister(ResourceMonitor monitor) {
+        RUNNING.remove(monitor);
+        if (RUNNING.isEmpty() && sampling != null) {
+            sampling.cancel(false);
+            sampling = null;
+        }
+    }
+
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final Set<ResourceMonitor> RUNNING = new CopyOnWriteArraySet<>();
+    private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "resource-monitor-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static ScheduledFuture<?> sampling = null;
+
+    private final long[] threadIds;
+    private final long startAllocatedBytes;
+    private final long startGcCount;
+    private final long startGcMillis;
+    private final AtomicLong peak = new AtomicLong();
+    private boolean stopped = false;
+    private long allocatedBytes;
+    private long gcCount;
+    private long gcMillis;
+    private long peakHeapBytes;
+}
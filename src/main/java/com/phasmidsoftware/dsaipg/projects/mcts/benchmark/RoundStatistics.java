@@ -0,0 +1,70 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Running mean and standard deviation of the measurements from repeated benchmark rounds
+ * (Welford's algorithm, so that it is numerically stable for any number of rounds).
+ */
+public class RoundStatistics {
+
+    /**
+     * The CSV header columns (without a leading or trailing comma) which correspond to {@link #toCsv(int)}.
+     */
+    public static final String CSV_HEADER = "WarmupGames,Rounds,MeanRoundMillis,StdDevRoundMillis";
+
+    /**
+     * Add the measurement of one round.
+     *
+     * @param value the measurement (for example, the elapsed milliseconds of the round).
+     */
+    public void add(double value) {
+        n++;
+        double delta = value - mean;
+        mean += delta / n;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * @return the number of rounds measured.
+     */
+    public int count() {
+        return n;
+    }
+
+    /**
+     * @return the mean of the measurements (0 if there are none).
+     */
+    public double mean() {
+        return mean;
+    }
+
+    /**
+     * @return the sample standard deviation of the measurements (0 if there are fewer than two).
+     */
+    public double stdDev() {
+        return n < 2 ? 0 : Math.sqrt(m2 / (n - 1));
+    }
+
+    /**
+     * @param warmupGames the number of (unrecorded) warmup games played before the rounds.
+     * @return the CSV columns described by {@link #CSV_HEADER}.
+     */
+    public String toCsv(int warmupGames) {
+        return String.format(Locale.US, "%d,%d,%.2f,%.2f", warmupGames, n, mean(), stdDev());
+    }
+
+    /**
+     * @param warmupGames the number of (unrecorded) warmup games played before the rounds.
+     * @param rounds      the number of rounds.
+     * @return the CSV columns described by {@link #CSV_HEADER}, with the round times left blank
+     * (for a setting which was resumed, some of whose rounds were played by an earlier run).
+     */
+    public static String blankCsv(int warmupGames, int rounds) {
+        return warmupGames + "," + rounds + ",,";
+    }
+
+    private int n = 0;
+    private double mean = 0;
+    private double m2 = 0;
+}
@@ -0,0 +1,133 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.args.Args;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Game;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.ProofNumberSearch;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import scala.Option;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Solving-throughput study for the {@link ProofNumberSearch}.
+ * <p>
+ * For each board size and each number of moves left, a workload of reproducible positions is made by playing random
+ * moves from the start until no more than that many moves are left, and the proof-number search tries to decide for the
+ * player to move whether it can force a win, within the given node budget (the transposition table is cleared between positions).
+ * One row of the report <code>solving.csv</code> gives the number of positions proven, disproven and left unknown,
+ * the positions expanded and the throughput.
+ * <p>
+ * Run with <code>-h</code> for the list of options.
+ */
+public class SolvingThroughput {
+
+    public static final String RESULTS_FILE = "solving.csv";
+
+    public static final String CSV_HEADER = "Game,BoardSize,MovesLeft,NodeBudget,Positions,Proven,Disproven,Unknown," +
+            "NodesPerPosition,NodesPerSecond,MeanMillis";
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(usage());
+            return;
+        }
+        for (String row : run(options)) System.out.print(row);
+        System.out.println("Results written to: " + options.outputDirectory().resolve(RESULTS_FILE));
+    }
+
+    /**
+     * Run the study and write the report.
+     *
+     * @param options the parsed options.
+     * @return the CSV rows (each terminated by a newline) described by {@link #CSV_HEADER}.
+     * @throws IOException if the report cannot be written.
+     */
+    public static List<String> run(Options options) throws IOException {
+        BenchmarkGame<?> game = BenchmarkGame.of(options.game())
+                .orElseThrow(() -> new IllegalArgumentException("unknown game: " + options.game()));
+        List<String> rows = new ArrayList<>();
+        for (int boardSize : game.variableBoardSize() ? options.boardSizes() : options.boardSizes().subList(0, 1))
+            for (int movesLeft : options.movesLeft())
+                rows.add(measure(game, options, boardSize, movesLeft));
+        Files.createDirectories(options.outputDirectory());
+        try (Writer writer = Files.newBufferedWriter(options.outputDirectory().resolve(RESULTS_FILE))) {
+            writer.write(CSV_HEADER + "\n");
+            for (String row : rows) writer.write(row);
+        }
+        return rows;
+    }
+
+    private static <G extends Game> String measure(BenchmarkGame<G> game, Options options, int boardSize, int movesLeft) {
+        Experiment seeds = new Experiment(game.name(), boardSize, "", 0, 0, 0, 1, 1, options.seed(), 0, 0, 1);
+        int[] results = new int[ProofNumberSearch.Result.values().length];
+        long nodes = 0;
+        long nanos = 0;
+        for (int k = 0; k < options.positions(); k++) {
+            State<G> state = game.start(boardSize, k % 2 == 0, seeds.gameSeed(k));
+            for (int played = 0; played < game.maxMoves(boardSize) - movesLeft; played++) {
+                State<G> next = state.next(state.chooseMove(state.player()));
+                if (next.isTerminal()) break;
+                state = next;
+            }
+            ProofNumberSearch<G> search = new ProofNumberSearch<>(options.nodeBudget(), options.tableBits());
+            results[search.prove(state, state.player()).ordinal()]++;
+            nodes += search.nodes();
+            nanos += search.nanos();
+        }
+        int positions = options.positions();
+        return String.format(Locale.US, "%s,%d,%d,%d,%d,%d,%d,%d,%.1f,%.0f,%.3f\n",
+                game.name(), boardSize, movesLeft, options.nodeBudget(), positions,
+                results[ProofNumberSearch.Result.PROVEN.ordinal()], results[ProofNumberSearch.Result.DISPROVEN.ordinal()],
+                results[ProofNumberSearch.Result.UNKNOWN.ordinal()],
+                positions > 0 ? nodes * 1.0 / positions : 0, nanos > 0 ? nodes * 1e9 / nanos : 0,
+                positions > 0 ? nanos / 1e6 / positions : 0);
+    }
+
+    static String usage() {
+        return """
+                Usage: SolvingThroughput [options]
+                  -g game              tictactoe or dots                           (default: dots)
+                  -b board sizes       number of dots per side, comma-separated    (default: 3,4)
+                  -l moves left        at most, comma-separated                    (default: 8,12,16)
+                  -n node budget       positions expanded per search, 0 for none   (default: 1000000)
+                  -T table bits        entries of the table, as a power of two     (default: 16)
+                  -P positions         positions in each workload                  (default: 10)
+                  -s seed              seed of the positions                       (default: 0)
+                  -o output directory                                              (default: target/benchmarks)
+                  -h                   print this usage and exit""";
+    }
+
+    /**
+     * The parsed command line.
+     */
+    public record Options(String game, List<Integer> boardSizes, List<Integer> movesLeft, long nodeBudget, int tableBits,
+                          int positions, long seed, Path outputDirectory) {
+
+        /**
+         * Parse the command line.
+         *
+         * @param args the command-line arguments.
+         * @return the Options, or null if usage was requested.
+         */
+        public static Options parse(String[] args) {
+            Args<String> parsed = args.length == 0 ? null : Args.parse(args, Option.empty(), Option.empty()).get();
+            if (parsed != null && parsed.isDefined("h")) return null;
+            return new Options(
+                    BenchmarkRunner.Options.value(parsed, "g", DotsAndBoxesBenchmarkGame.NAME),
+                    BenchmarkRunner.Options.list(parsed, "b", "3,4", Integer::parseInt),
+                    BenchmarkRunner.Options.list(parsed, "l", "8,12,16", Integer::parseInt),
+                    Long.parseLong(BenchmarkRunner.Options.value(parsed, "n", "1000000")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "T", String.valueOf(ProofNumberSearch.TABLE_BITS))),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "P", "10")),
+                    Long.parseLong(BenchmarkRunner.Options.value(parsed, "s", "0")),
+                    Path.of(BenchmarkRunner.Options.value(parsed, "o", "target/benchmarks")));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+/**
+ * A sequential probability ratio test of the Elo difference between two players.
+ * <p>
+ * H0 is that player A is stronger than player B by elo0, H1 that it is stronger by elo1 (elo1 &gt; elo0).
+ * The log-likelihood ratio uses the usual normal approximation of the trinomial (win/draw/loss) model,
+ * so that a pairing can be stopped as soon as the ratio crosses one of the bounds given by the error rates alpha and beta.
+ * To avoid a spuriously confident ratio after a handful of identical results,
+ * the variance is computed as if half a win and half a loss had been added to the results.
+ */
+public class Sprt {
+
+    /**
+     * The state of the test.
+     */
+    public enum Decision {
+        /**
+         * Neither bound has been reached: more games are needed.
+         */
+        CONTINUE,
+        /**
+         * H0 accepted: A is stronger than B by (at most) elo0.
+         */
+        H0,
+        /**
+         * H1 accepted: A is stronger than B by (at least) elo1.
+         */
+        H1
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param elo0  the Elo difference of the null hypothesis.
+     * @param elo1  the Elo difference of the alternative hypothesis.
+     * @param alpha the probability of accepting H1 when H0 is true.
+     * @param beta  the probability of accepting H0 when H1 is true.
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) throw new IllegalArgumentException("elo1 must be greater than elo0");
+        if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1)
+            throw new IllegalArgumentException("alpha and beta must be between 0 and 1");
+        this.score0 = Elo.expectedScore(elo0);
+        this.score1 = Elo.expectedScore(elo1);
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * @param wins   the games won by A.
+     * @param draws  the games drawn.
+     * @param losses the games lost by A.
+     * @return the log-likelihood ratio of H1 against H0.
+     */
+    public double llr(int wins, int draws, int losses) {
+        int n = wins + draws + losses;
+        if (n == 0) return 0;
+        double score = (wins + 0.5 * draws) / n;
+        double variance = Elo.variance(wins + 0.5, draws, losses + 0.5);
+        return n * (score1 - score0) * (2 * score - score0 - score1) / (2 * variance);
+    }
+
+    /**
+     * @param wins   the games won by A.
+     * @param draws  the games drawn.
+     * @param losses the games lost by A.
+     * @return the Decision.
+     */
+    public Decision decide(int wins, int draws, int losses) {
+        double llr = llr(wins, draws, losses);
+        if (llr >= upperBound) return Decision.H1;
+        if (llr <= lowerBound) return Decision.H0;
+        return Decision.CONTINUE;
+    }
+
+    public double lowerBound() {
+        return lowerBound;
+    }
+
+    public double upperBound() {
+        return upperBound;
+    }
+
+    private final double score0;
+    private final double score1;
+    private final double lowerBound;
+    private final double upperBound;
+}
@@ -0,0 +1,236 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.args.Args;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Game;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SearchStatistics;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import scala.Option;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Thread-scaling benchmark for root-parallel searches.
+ * <p>
+ * For each game, a fixed workload (a set of reproducible positions, each searched a number of times with a fixed
+ * iteration or time budget) is run at each of the given search thread counts. The report gives, for each thread count,
+ * the throughput (iterations and nodes per second), the speedup and parallel efficiency relative to the first thread
+ * count (normally one), and the playing strength of the multi-threaded engine against the single-threaded engine with the same budget.
+ * <p>
+ * With an iteration budget, the iterations are shared between the threads, so the speedup shows how much sooner the
+ * same search finishes; with a time budget, each thread searches for the whole time, so the speedup shows how many more
+ * iterations are done (and the strength columns show whether they help).
+ * <p>
+ * Run with <code>-h</code> for the list of options.
+ */
+public class ThreadScaling {
+
+    public static final String RESULTS_FILE = "thread_scaling.csv";
+
+    public static final String CSV_HEADER = "Game,BoardSize,Engine,Threads,Iterations,TimeBudgetMillis,Searches,WallMillis," +
+            "IterationsPerSecond,NodesPerSecond,Speedup,Efficiency,StrengthGames," + Elo.CSV_HEADER;
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(usage());
+            return;
+        }
+        for (String row : run(options)) System.out.print(row);
+        System.out.println("Results written to: " + options.outputDirectory().resolve(RESULTS_FILE));
+    }
+
+    /**
+     * Run the benchmark for all the games and write the report.
+     *
+     * @param options the parsed options.
+     * @return the CSV rows (each terminated by a newline) described by {@link #CSV_HEADER}.
+     * @throws IOException if the report cannot be written.
+     */
+    public static List<String> run(Options options) throws IOException {
+        List<String> rows = new ArrayList<>();
+        for (String name : options.games()) {
+            BenchmarkGame<?> game = BenchmarkGame.of(name).orElseThrow(() -> new IllegalArgumentException("unknown game: " + name));
+            rows.addAll(run(game, options));
+        }
+        Files.createDirectories(options.outputDirectory());
+        try (Writer writer = Files.newBufferedWriter(options.outputDirectory().resolve(RESULTS_FILE))) {
+            writer.write(CSV_HEADER + "\n");
+            for (String row : rows) writer.write(row);
+        }
+        return rows;
+    }
+
+    private static <G extends Game> List<String> run(BenchmarkGame<G> game, Options options) {
+        int boardSize = game.variableBoardSize() ? options.boardSize() : 3;
+        List<State<G>> positions = positions(game, boardSize, options.positions(), options.seed());
+        // Warm up the JIT compiler on the single-threaded engine.
+        for (int i = 0; i < options.warmupPasses(); i++) measure(game, engine(game, options, boardSize, 1), positions, 1);
+
+        List<String> rows = new ArrayList<>();
+        double baseline = 0;
+        int baselineThreads = 0;
+        for (int threads : options.threadCounts()) {
+            System.out.println("Measuring " + game.name() + " with " + threads + " search thread(s)");
+            Measurement measurement = measure(game, engine(game, options, boardSize, threads), positions, options.repetitions());
+            double perSecond = measurement.iterationsPerSecond();
+            if (baselineThreads == 0) {
+                baseline = perSecond;
+                baselineThreads = threads;
+            }
+            double speedup = baseline > 0 ? perSecond / baseline : 0;
+            int[] results = strength(game, options, boardSize, threads);
+            rows.add(String.format(Locale.US, "%s,%d,%s,%d,%d,%d,%d,%d,%.1f,%.1f,%.3f,%.3f,%d,%s\n",
+                    game.name(), boardSize, options.engine(), threads, options.iterations(), options.timeBudgetMillis(),
+                    measurement.searches(), measurement.nanos() / 1_000_000, perSecond, measurement.nodesPerSecond(),
+                    speedup, speedup * baselineThreads / threads, results[0] + results[1] + results[2],
+                    Elo.estimate(results[0], results[2], results[1]).toCsv()));
+        }
+        return rows;
+    }
+
+    /**
+     * Method to create a reproducible set of positions: each is reached by playing a number of random moves
+     * (up to a third of the longest possible game) from the start.
+     *
+     * @param game      the game.
+     * @param boardSize the board size.
+     * @param count     the number of positions.
+     * @param seed      the seed from which the positions are derived.
+     * @return the positions (none of which is terminal).
+     */
+    static <G extends Game> List<State<G>> positions(BenchmarkGame<G> game, int boardSize, int count, long seed) {
+        Experiment seeds = new Experiment(game.name(), boardSize, "", 0, 0, 0, 1, 1, seed, 0, 0, 1);
+        int depths = game.maxMoves(boardSize) / 3 + 1;
+        List<State<G>> result = new ArrayList<>();
+        for (int k = 0; k < count; k++) {
+            State<G> state = game.start(boardSize, k % 2 == 0, seeds.gameSeed(k));
+            for (int depth = 0; depth < k % depths; depth++) {
+                State<G> next = state.next(state.chooseMove(state.player()));
+                if (next.isTerminal()) break;
+                state = next;
+            }
+            result.add(state);
+        }
+        return result;
+    }
+
+    private static <G extends Game> Engine<G> engine(BenchmarkGame<G> game, Options options, int boardSize, int threads) {
+        return game.engine(new Experiment(game.name(), boardSize, options.engine(), options.iterations(),
+                options.timeBudgetMillis(), options.exploration(), 1, threads, options.seed(), 0, 0, 1));
+    }
+
+    private static <G extends Game> Measurement measure(BenchmarkGame<G> game, Engine<G> engine, List<State<G>> positions, int repetitions) {
+        long iterations = 0;
+        long nodes = 0;
+        int searches = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < repetitions; r++)
+            for (State<G> position : positions) {
+                engine.findBestMove(position);
+                SearchStatistics statistics = engine.lastSearch().orElse(SearchStatistics.NONE);
+                iterations += statistics.iterations();
+                nodes += statistics.nodes();
+                searches++;
+            }
+        return new Measurement(searches, iterations, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Play color-swapped game pairs between the engine with the given number of threads and the single-threaded engine.
+     *
+     * @return wins of the multi-threaded engine, its losses and the draws (all zero for one thread).
+     */
+    private static <G extends Game> int[] strength(BenchmarkGame<G> game, Options options, int boardSize, int threads) {
+        int[] results = new int[3];
+        if (threads == 1) return results;
+        Experiment seeds = new Experiment(game.name(), boardSize, options.engine(), 0, 0, 0, 1, threads, options.seed(), 0, 0, 1);
+        for (int pair = 0; 2 * pair < options.strengthGames(); pair++) {
+            long seed = seeds.gameSeed(pair);
+            results[Tournament.playGame(game, boardSize, engine(game, options, boardSize, threads), engine(game, options, boardSize, 1), seed)]++;
+            int swapped = Tournament.playGame(game, boardSize, engine(game, options, boardSize, 1), engine(game, options, boardSize, threads), seed);
+            results[swapped == 2 ? 2 : 1 - swapped]++;
+        }
+        return results;
+    }
+
+    private record Measurement(int searches, long iterations, long nodes, long nanos) {
+        double iterationsPerSecond() {
+            return nanos > 0 ? iterations * 1e9 / nanos : 0;
+        }
+
+        double nodesPerSecond() {
+            return nanos > 0 ? nodes * 1e9 / nanos : 0;
+        }
+    }
+
+    static String usage() {
+        return """
+                Usage: ThreadScaling [options]
+                  -g games             tictactoe,dots                              (default: tictactoe,dots)
+                  -b board size        number of dots per side, Dots only          (default: 5)
+                  -e engine variant    a variant which supports search threads     (default: mcts)
+                  -T thread counts     comma-separated                             (default: 1,2,4 ... number of processors)
+                  -i iterations        per search, shared between the threads      (default: 2000, or unlimited if -t is given)
+                  -t time budget       milliseconds per search, 0 for none         (default: 0)
+                  -c exploration       UCT exploration constant                    (default: 1.414)
+                  -P positions         positions in the workload                   (default: 20)
+                  -r repetitions       searches of each position                   (default: 3)
+                  -w warmup passes     unmeasured passes over the workload         (default: 1)
+                  -n strength games    games against one thread, per thread count  (default: 20)
+                  -s seed              seed of the positions and games             (default: 0)
+                  -o output directory                                              (default: target/benchmarks)
+                  -h                   print this usage and exit""";
+    }
+
+    /**
+     * The parsed command line.
+     */
+    public record Options(List<String> games, int boardSize, String engine, List<Integer> threadCounts, int iterations,
+                          long timeBudgetMillis, double exploration, int positions, int repetitions, int warmupPasses,
+                          int strengthGames, long seed, Path outputDirectory) {
+
+        /**
+         * Parse the command line.
+         *
+         * @param args the command-line arguments.
+         * @return the Options, or null if usage was requested.
+         */
+        public static Options parse(String[] args) {
+            Args<String> parsed = args.length == 0 ? null : Args.parse(args, Option.empty(), Option.empty()).get();
+            if (parsed != null && parsed.isDefined("h")) return null;
+            long timeBudget = Long.parseLong(BenchmarkRunner.Options.value(parsed, "t", "0"));
+            return new Options(
+                    BenchmarkRunner.Options.list(parsed, "g", "tictactoe,dots", String::toLowerCase),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "b", "5")),
+                    BenchmarkRunner.Options.value(parsed, "e", "mcts").toLowerCase(),
+                    BenchmarkRunner.Options.list(parsed, "T", defaultThreadCounts(), Integer::parseInt),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "i", timeBudget > 0 ? String.valueOf(Integer.MAX_VALUE) : "2000")),
+                    timeBudget,
+                    Double.parseDouble(BenchmarkRunner.Options.value(parsed, "c", "1.414")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "P", "20")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "r", "3")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "w", "1")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "n", "20")),
+                    Long.parseLong(BenchmarkRunner.Options.value(parsed, "s", "0")),
+                    Path.of(BenchmarkRunner.Options.value(parsed, "o", "target/benchmarks")));
+        }
+
+        /**
+         * @return 1, 2, 4 ... up to (and including) the number of available processors.
+         */
+        static String defaultThreadCounts() {
+            int processors = Runtime.getRuntime().availableProcessors();
+            StringBuilder sb = new StringBuilder("1");
+            for (int threads = 2; threads < processors; threads *= 2) sb.append(',').append(threads);
+            if (processors > 1) sb.append(',').append(processors);
+            return sb.toString();
+        }
+    }
+}
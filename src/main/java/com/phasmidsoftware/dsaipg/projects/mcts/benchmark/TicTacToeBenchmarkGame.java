@@ -0,0 +1,69 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.ProofNumberSearch;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.ProvingEngine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SelectionPolicy;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.TreeBudget;
+import com.phasmidsoftware.dsaipg.projects.mcts.tictactoe.MCTSEngine;
+import com.phasmidsoftware.dsaipg.projects.mcts.tictactoe.TicTacToe;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The benchmark description of TicTacToe. X is counted as "P1".
+ * <p>
+ * Besides the plain "mcts" variant, there is an "mcts-" variant for each {@link SelectionPolicy} (e.g. "mcts-puct"),
+ * and "mcts-pns", which plays as "mcts" unless a proof-number search of as many positions as iterations proves a win
+ * (see {@link ProvingEngine}).
+ */
+public class TicTacToeBenchmarkGame implements BenchmarkGame<TicTacToe> {
+
+    public static final String NAME = "tictactoe";
+
+    public static final TicTacToeBenchmarkGame INSTANCE = new TicTacToeBenchmarkGame();
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public State<TicTacToe> start(int boardSize, boolean firstPlayer, long seed) {
+        return new TicTacToe(seed).start(firstPlayer ? TicTacToe.X : TicTacToe.O);
+    }
+
+    @Override
+    public int maxMoves(int boardSize) {
+        return 9;
+    }
+
+    @Override
+    public int firstPlayer() {
+        return TicTacToe.X;
+    }
+
+    @Override
+    public boolean variableBoardSize() {
+        return false;
+    }
+
+    @Override
+    public Map<String, Function<Experiment, Engine<TicTacToe>>> variants() {
+        return variants;
+    }
+
+    private TicTacToeBenchmarkGame() {
+        variants.put("mcts", e -> new MCTSEngine(e.iterations(), e.exploration(), e.timeBudgetMillis(), e.searchThreads()));
+        for (String policy : SelectionPolicy.NAMES)
+            variants.put("mcts-" + policy, e -> new MCTSEngine(e.iterations(), SelectionPolicy.of(policy, e.exploration()),
+                    e.timeBudgetMillis(), e.searchThreads(), TreeBudget.defaultBudget()));
+        variants.put("mcts-pns", e -> new ProvingEngine<>(new ProofNumberSearch<>(e.iterations()),
+                new MCTSEngine(e.iterations(), e.exploration(), e.timeBudgetMillis(), e.searchThreads())));
+    }
+
+    private final Map<String, Function<Experiment, Engine<TicTacToe>>> variants = new LinkedHashMap<>();
+}
@@ -0,0 +1,296 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.args.Args;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Game;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import scala.Option;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Round-robin tournament between engine variants of one game.
+ * <p>
+ * Every pair of entrants plays game pairs with colors swapped (both games of a pair start from the same random seed),
+ * with the pairs of a batch running in parallel. After each batch, a {@link Sprt} decides whether the pairing is settled;
+ * if not, another batch is played, up to a maximum number of games.
+ * The results are written to <code>tournament_pairings.csv</code> (one row per pairing, with the Elo difference of A over B)
+ * and <code>tournament_standings.csv</code> (one row per entrant, with its Elo against the field) in the output directory.
+ * <p>
+ * Run with <code>-h</code> for the list of options.
+ */
+public class Tournament {
+
+    public static final String PAIRINGS_FILE = "tournament_pairings.csv";
+
+    public static final String STANDINGS_FILE = "tournament_standings.csv";
+
+    public static final String PAIRINGS_HEADER = "Game,BoardSize,PlayerA,PlayerB,Games,WinsA,WinsB,Draws," + Elo.CSV_HEADER + ",LLR,Decision";
+
+    public static final String STANDINGS_HEADER = "Player,Games,Wins,Losses,Draws," + Elo.CSV_HEADER;
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(usage());
+            return;
+        }
+        List<PairingResult> results = run(options);
+        for (PairingResult result : results)
+            System.out.printf("%s vs %s: +%d -%d =%d, Elo %s (%s)\n", result.a().label(), result.b().label(),
+                    result.winsA(), result.winsB(), result.draws(), result.elo().toCsv(), result.decision());
+        System.out.println("Results written to: " + options.outputDirectory());
+    }
+
+    /**
+     * Play all the pairings of the tournament and write the results.
+     *
+     * @param options the parsed options.
+     * @return the results of the pairings, in the order in which they were played.
+     * @throws IOException if the results cannot be written.
+     */
+    public static List<PairingResult> run(Options options) throws IOException {
+        BenchmarkGame<?> game = BenchmarkGame.of(options.game())
+                .orElseThrow(() -> new IllegalArgumentException("unknown game: " + options.game()));
+        for (Entrant entrant : options.entrants())
+            if (!game.variants().containsKey(entrant.engine()))
+                throw new IllegalArgumentException("unknown engine variant for " + game.name() + ": " + entrant.engine());
+
+        List<PairingResult> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(options.parallelism());
+        try {
+            List<Entrant> entrants = options.entrants();
+            for (int i = 0; i < entrants.size(); i++)
+                for (int j = i + 1; j < entrants.size(); j++)
+                    results.add(playPairing(game, options, entrants.get(i), entrants.get(j), results.size(), executor));
+        } finally {
+            executor.shutdown();
+        }
+        write(options, results);
+        return results;
+    }
+
+    /**
+     * Play one pairing until the SPRT is decided or the maximum number of games has been played.
+     */
+    private static <G extends Game> PairingResult playPairing(BenchmarkGame<G> game, Options options, Entrant a, Entrant b,
+                                                              int pairing, ExecutorService executor) {
+        System.out.println("Playing " + a.label() + " vs " + b.label());
+        Sprt sprt = new Sprt(options.elo0(), options.elo1(), options.alpha(), options.beta());
+        Experiment seeds = a.experiment(game, options.boardSize(), options.seed() + pairing);
+        int winsA = 0, winsB = 0, draws = 0;
+        Sprt.Decision decision = Sprt.Decision.CONTINUE;
+        int pairs = 0;
+        while (decision == Sprt.Decision.CONTINUE && 2 * pairs < options.maxGames()) {
+            List<Supplier<int[]>> batch = new ArrayList<>();
+            for (int k = 0; k < options.parallelism() && 2 * (pairs + k) < options.maxGames(); k++) {
+                long seed = seeds.gameSeed(pairs + k);
+                batch.add(() -> {
+                    int[] result = new int[3];
+                    // Index 0 counts wins of A, 1 wins of B and 2 draws.
+                    result[playGame(game, options, a, b, seed)]++;
+                    int swapped = playGame(game, options, b, a, seed);
+                    result[swapped == 2 ? 2 : 1 - swapped]++;
+                    return result;
+                });
+            }
+            for (int[] result : ParallelRunner.supplyAllAsync(batch, executor)) {
+                winsA += result[0];
+                winsB += result[1];
+                draws += result[2];
+            }
+            pairs += batch.size();
+            decision = sprt.decide(winsA, draws, winsB);
+        }
+        return new PairingResult(game.name(), options.boardSize(), a, b, winsA, winsB, draws,
+                sprt.llr(winsA, draws, winsB), decision);
+    }
+
+    /**
+     * Play one game.
+     *
+     * @return 0 if the first entrant (who moves first) won, 1 if the second won, 2 for a draw.
+     */
+    private static <G extends Game> int playGame(BenchmarkGame<G> game, Options options, Entrant first, Entrant second, long seed) {
+        return playGame(game, options.boardSize(), game.engine(first.experiment(game, options.boardSize(), seed)),
+                game.engine(second.experiment(game, options.boardSize(), seed)), seed);
+    }
+
+    /**
+     * Play one game between two engines.
+     *
+     * @param game         the game.
+     * @param boardSize    the board size.
+     * @param firstEngine  the engine of the player who moves first.
+     * @param secondEngine the engine of the other player.
+     * @param seed         the seed of the game's random source.
+     * @return 0 if the first engine won, 1 if the second won, 2 for a draw.
+     */
+    static <G extends Game> int playGame(BenchmarkGame<G> game, int boardSize, Engine<G> firstEngine, Engine<G> secondEngine, long seed) {
+        State<G> state = game.start(boardSize, true, seed);
+        while (!state.isTerminal()) {
+            Engine<G> engine = state.player() == game.firstPlayer() ? firstEngine : secondEngine;
+            Move<G> move = engine.findBestMove(state);
+            if (move == null) break;
+            state = state.next(move);
+        }
+        Optional<Integer> winner = state.winner();
+        return winner.isEmpty() ? 2 : winner.get() == game.firstPlayer() ? 0 : 1;
+    }
+
+    private static void write(Options options, List<PairingResult> results) throws IOException {
+        Files.createDirectories(options.outputDirectory());
+        try (Writer writer = Files.newBufferedWriter(options.outputDirectory().resolve(PAIRINGS_FILE))) {
+            writer.write(PAIRINGS_HEADER + "\n");
+            for (PairingResult result : results) writer.write(result.toCsv() + "\n");
+        }
+        Map<String, int[]> standings = new LinkedHashMap<>();
+        for (Entrant entrant : options.entrants()) standings.put(entrant.label(), new int[3]);
+        for (PairingResult result : results) {
+            int[] a = standings.get(result.a().label());
+            int[] b = standings.get(result.b().label());
+            a[0] += result.winsA();
+            a[1] += result.winsB();
+            a[2] += result.draws();
+            b[0] += result.winsB();
+            b[1] += result.winsA();
+            b[2] += result.draws();
+        }
+        try (Writer writer = Files.newBufferedWriter(options.outputDirectory().resolve(STANDINGS_FILE))) {
+            writer.write(STANDINGS_HEADER + "\n");
+            for (Map.Entry<String, int[]> entry : standings.entrySet()) {
+                int[] s = entry.getValue();
+                writer.write(String.format(Locale.US, "%s,%d,%d,%d,%d,%s\n", entry.getKey(), s[0] + s[1] + s[2], s[0], s[1], s[2],
+                        Elo.estimate(s[0], s[2], s[1]).toCsv()));
+            }
+        }
+    }
+
+    static String usage() {
+        return """
+                Usage: Tournament [options]
+                  -g game              tictactoe or dots                                 (default: dots)
+                  -b board size        number of dots per side, Dots only                (default: 4)
+                  -e entrants          comma-separated variant[:iterations[:exploration[:millis[:threads]]]]
+                                       e.g. mcts:200,mcts:1000:0.7,hard                  (default: mcts:100,mcts:1000)
+                  -n max games         per pairing                                       (default: 400)
+                  -l elo0              Elo difference of the SPRT null hypothesis        (default: 0)
+                  -u elo1              Elo difference of the SPRT alternative hypothesis (default: 50)
+                  -a alpha             SPRT false positive rate                          (default: 0.05)
+                  -B beta              SPRT false negative rate                          (default: 0.05)
+                  -p parallelism       game pairs played at the same time                (default: number of processors)
+                  -s seed              seed for the games' random sources                (default: 0)
+                  -o output directory                                                    (default: target/tournament)
+                  -h                   print this usage and exit""";
+    }
+
+    /**
+     * An engine variant taking part in a tournament.
+     *
+     * @param label            the label of the entrant (its specification as given on the command line).
+     * @param engine           the name of the engine variant.
+     * @param iterations       the maximum number of iterations per move.
+     * @param exploration      the UCT exploration constant.
+     * @param timeBudgetMillis the maximum time per move in milliseconds (0 for no limit).
+     * @param searchThreads    the number of threads used by each search.
+     */
+    public record Entrant(String label, String engine, int iterations, double exploration, long timeBudgetMillis, int searchThreads) {
+
+        /**
+         * Method to parse an entrant of the form <code>variant[:iterations[:exploration[:millis[:threads]]]]</code>.
+         *
+         * @param spec the specification.
+         * @return an Entrant.
+         */
+        public static Entrant parse(String spec) {
+            String[] parts = spec.trim().split(":");
+            return new Entrant(spec.trim(), parts[0].toLowerCase(),
+                    parts.length > 1 ? Integer.parseInt(parts[1]) : DEFAULT_ITERATIONS,
+                    parts.length > 2 ? Double.parseDouble(parts[2]) : DEFAULT_EXPLORATION,
+                    parts.length > 3 ? Long.parseLong(parts[3]) : 0,
+                    parts.length > 4 ? Integer.parseInt(parts[4]) : 1);
+        }
+
+        Experiment experiment(BenchmarkGame<?> game, int boardSize, long seed) {
+            return new Experiment(game.name(), boardSize, engine, iterations, timeBudgetMillis, exploration, 1, searchThreads, seed, 0, 0, 1);
+        }
+
+        private static final int DEFAULT_ITERATIONS = 1000;
+        private static final double DEFAULT_EXPLORATION = 1.414;
+    }
+
+    /**
+     * The result of one pairing, from the point of view of player A.
+     */
+    public record PairingResult(String game, int boardSize, Entrant a, Entrant b, int winsA, int winsB, int draws,
+                                double llr, Sprt.Decision decision) {
+
+        public int games() {
+            return winsA + winsB + draws;
+        }
+
+        /**
+         * @return the Elo difference of A over B.
+         */
+        public Elo.Estimate elo() {
+            return Elo.estimate(winsA, draws, winsB);
+        }
+
+        /**
+         * @return the CSV columns described by {@link #PAIRINGS_HEADER}.
+         */
+        public String toCsv() {
+            return String.format(Locale.US, "%s,%d,%s,%s,%d,%d,%d,%d,%s,%.3f,%s",
+                    game, boardSize, a.label(), b.label(), games(), winsA, winsB, draws, elo().toCsv(), llr, decision);
+        }
+    }
+
+    /**
+     * The parsed command line.
+     */
+    public record Options(String game, int boardSize, List<Entrant> entrants, int maxGames, double elo0, double elo1,
+                          double alpha, double beta, int parallelism, long seed, Path outputDirectory) {
+
+        /**
+         * Parse the command line.
+         *
+         * @param args the command-line arguments.
+         * @return the Options, or null if usage was requested.
+         * @throws IllegalArgumentException if an option cannot be parsed or two entrants have the same label.
+         */
+        public static Options parse(String[] args) {
+            Args<String> parsed = args.length == 0 ? null : Args.parse(args, Option.empty(), Option.empty()).get();
+            if (parsed != null && parsed.isDefined("h")) return null;
+            List<Entrant> entrants = BenchmarkRunner.Options.list(parsed, "e", "mcts:100,mcts:1000", Entrant::parse);
+            if (entrants.size() < 2) throw new IllegalArgumentException("a tournament needs at least two entrants");
+            if (new HashSet<>(entrants.stream().map(Entrant::label).toList()).size() < entrants.size())
+                throw new IllegalArgumentException("entrants must be distinct: " + entrants);
+            return new Options(
+                    BenchmarkRunner.Options.value(parsed, "g", "dots").toLowerCase(),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "b", "4")),
+                    entrants,
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "n", "400")),
+                    Double.parseDouble(BenchmarkRunner.Options.value(parsed, "l", "0")),
+                    Double.parseDouble(BenchmarkRunner.Options.value(parsed, "u", "50")),
+                    Double.parseDouble(BenchmarkRunner.Options.value(parsed, "a", "0.05")),
+                    Double.parseDouble(BenchmarkRunner.Options.value(parsed, "B", "0.05")),
+                    Integer.parseInt(BenchmarkRunner.Options.value(parsed, "p", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    Long.parseLong(BenchmarkRunner.Options.value(parsed, "s", "0")),
+                    Path.of(BenchmarkRunner.Options.value(parsed, "o", "target/tournament")));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+/**
+ * A rule for stopping a search before its iteration budget has been spent, once the remaining iterations can no longer
+ * change the move which would be chosen.
+ * <p>
+ * Each iteration adds one playout (with a result between 0 and maxReward) to one child of the root, so the most-visited
+ * child cannot be overtaken if it leads the runner-up by more playouts than there are iterations left, and the child with
+ * the best mean result cannot be overtaken if its mean after losing all the remaining playouts would still be better
+ * than the mean of any other child after winning all of them.
+ * These exact rules only apply while no child of the root can be proven within the remaining iterations, since a proof
+ * overrides the statistics (a proven win is always chosen and a proven loss never is): the caller must check that no
+ * terminal position can be reached in the tree before then.
+ * <p>
+ * With a positive delta, a search also stops when the value gap between the best child and each of the others is
+ * significant according to a Hoeffding bound: that is, when the confidence intervals of the means (each of which
+ * contains the true value with probability at least 1 - delta) do not overlap. This stops much sooner,
+ * but the chosen move is then only very probably, not certainly, the one which the full search would choose
+ * (which could also be changed by a proof found later).
+ *
+ * @param enabled true if the search may stop early.
+ * @param delta   the probability of error allowed for each of the confidence intervals (0 for only the exact rules).
+ */
+public record EarlyStop(boolean enabled, double delta) {
+
+    /**
+     * The search always spends its whole budget.
+     */
+    public static final EarlyStop OFF = new EarlyStop(false, 0);
+
+    /**
+     * The search stops only when the remaining iterations cannot change the decision,
+     * either by their playouts or by proving a child of the root.
+     */
+    public static final EarlyStop EXACT = new EarlyStop(true, 0);
+
+    /**
+     * Method to create a rule which also stops when the value gap is significant.
+     *
+     * @param delta the probability of error allowed for each confidence interval (e.g. 0.01).
+     * @return an EarlyStop.
+     */
+    public static EarlyStop confident(double delta) {
+        return new EarlyStop(true, delta);
+    }
+
+    /**
+     * Method to determine whether one root child (the best) has been established over another.
+     *
+     * @param bestWins       the total result of the best child.
+     * @param bestPlayouts   the playouts of the best child.
+     * @param otherWins      the total result of the other child.
+     * @param otherPlayouts  the playouts of the other child.
+     * @param remaining      the number of iterations left in the budget.
+     * @param maxReward      the greatest result of one playout.
+     * @param byPlayouts     true if the move is chosen by the number of playouts, false if by the mean result.
+     * @return true if the other child can no longer (or, with a positive delta, is very unlikely to) overtake the best,
+     * provided that no child of the root can be proven in the remaining iterations.
+     */
+    public boolean decided(double bestWins, int bestPlayouts, double otherWins, int otherPlayouts, long remaining, double maxReward, boolean byPlayouts) {
+        if (!enabled) return false;
+        if (byPlayouts ? bestPlayouts - otherPlayouts > remaining :
+                bestWins / (bestPlayouts + remaining) > (otherWins + maxReward * remaining) / (otherPlayouts + remaining))
+            return true;
+        return significant(bestWins, bestPlayouts, otherWins, otherPlayouts, maxReward);
+    }
+
+    /**
+     * Method to determine whether the value gap between one root child (the best) and another is significant,
+     * which is the only rule which applies while a child of the root may still be proven.
+     *
+     * @param bestWins      the total result of the best child.
+     * @param bestPlayouts  the playouts of the best child.
+     * @param otherWins     the total result of the other child.
+     * @param otherPlayouts the playouts of the other child.
+     * @param maxReward     the greatest result of one playout.
+     * @return true if the delta is positive and the confidence intervals of the means do not overlap.
+     */
+    public boolean significant(double bestWins, int bestPlayouts, double otherWins, int otherPlayouts, double maxReward) {
+        if (!enabled || delta <= 0 || bestPlayouts == 0 || otherPlayouts == 0) return false;
+        return bestWins / bestPlayouts - radius(bestPlayouts, maxReward) > otherWins / otherPlayouts + radius(otherPlayouts, maxReward);
+    }
+
+    /**
+     * @return the Hoeffding half-width of the confidence interval of a mean of n results between 0 and maxReward.
+     */
+    private double radius(int n, double maxReward) {
+        return maxReward * Math.sqrt(Math.log(2 / delta) / (2 * n));
+    }
+}
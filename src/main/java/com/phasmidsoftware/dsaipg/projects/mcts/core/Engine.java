@@ -0,0 +1,28 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import java.util.Optional;
+
+/**
+ * This interface defines the behavior of an Engine, i.e. something which can choose a move in a game (G).
+ *
+ * @param <G> the type of the Game.
+ */
+public interface Engine<G extends Game> {
+
+    /**
+     * Method to choose the best move from the given State.
+     *
+     * @param state the State from which the player to move (<code>state.player()</code>) will move.
+     * @return the chosen Move, or null if there is no legal move.
+     */
+    Move<G> findBestMove(State<G> state);
+
+    /**
+     * Method to get the statistics of the most recent call of findBestMove.
+     *
+     * @return the SearchStatistics, or empty if there has been no search or the engine does not record them.
+     */
+    default Optional<SearchStatistics> lastSearch() {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,166 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A pool of tree nodes: nodes of subtrees which are no longer needed are released to a free list
+ * and reused for new nodes, instead of being left to the garbage collector.
+ * <p>
+ * Whole trees are released when a search is finished, and the least-visited subtrees can be pruned
+ * to make room when a tree reaches its {@link TreeBudget}.
+ * A NodePool is not thread-safe: each search thread must have its own.
+ *
+ * @param <G> the type of the Game.
+ * @param <N> the type of the nodes.
+ */
+public class NodePool<G extends Game, N extends PooledNode<G>> {
+
+    /**
+     * A function to create a new node which belongs to a pool.
+     */
+    public interface Factory<G extends Game, N extends PooledNode<G>> {
+        N create(NodePool<G, N> pool, State<G> state, Node<G> parent);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the maximum number of free nodes to keep.
+     * @param factory  the function which creates new nodes.
+     */
+    public NodePool(int capacity, Factory<G, N> factory) {
+        this.capacity = capacity;
+        this.factory = factory;
+    }
+
+    /**
+     * Method to get a node for the given state and parent: a free node if there is one, otherwise a new node.
+     *
+     * @param state  the State for the node.
+     * @param parent the parent node (null for a root).
+     * @return a node with no children and no statistics (other than those of a terminal state).
+     */
+    public N obtain(State<G> state, Node<G> parent) {
+        N node = free.pollLast();
+        if (node == null) {
+            created++;
+            return factory.create(this, state, parent);
+        }
+        reused++;
+        node.reset(state, parent);
+        return node;
+    }
+
+    /**
+     * Method to release a node and all of its descendants to this pool.
+     * The node must no longer be referenced by its parent.
+     *
+     * @param node the root of the subtree.
+     * @return the number of nodes released.
+     */
+    @SuppressWarnings("unchecked")
+    public long release(Node<G> node) {
+        long count = 0;
+        Deque<Node<G>> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node<G> next = stack.pop();
+            for (Node<G> child : next.children()) stack.push(child);
+            next.children().clear();
+            N pooled = (N) next;
+            if (pooled.hasState()) releasedStates++;
+            pooled.clear();
+            if (free.size() < capacity) free.addLast(pooled);
+            count++;
+        }
+        released += count;
+        return count;
+    }
+
+    /**
+     * Method to release the descendants of the least-visited expanded nodes of a tree, until at least the given number
+     * of nodes have been released. The pruned nodes keep their statistics and may be expanded again.
+     * The root, and the ancestors of the given node, are never pruned.
+     *
+     * @param root   the root of the tree.
+     * @param keep   a node which is about to be expanded (or null).
+     * @param target the number of nodes to release.
+     * @return the number of nodes actually released.
+     */
+    @SuppressWarnings("unchecked")
+    public long prune(Node<G> root, Node<G> keep, long target) {
+        Set<Node<G>> path = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Node<G> node = keep; node != null; node = node.getParent()) path.add(node);
+        path.add(root);
+        List<Node<G>> candidates = new ArrayList<>();
+        Deque<Node<G>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<G> next = stack.pop();
+            if (next.children().isEmpty()) continue;
+            if (!path.contains(next)) candidates.add(next);
+            for (Node<G> child : next.children()) stack.push(child);
+        }
+        // Descendants normally have fewer playouts than their ancestors, so they are pruned first.
+        candidates.sort(Comparator.comparingInt(Node::playouts));
+        long count = 0;
+        for (Node<G> node : candidates) {
+            if (count >= target) break;
+            if (node.state() == null || node.children().isEmpty()) continue; // already released or pruned.
+            for (Node<G> child : node.children()) count += release(child);
+            node.children().clear();
+            ((N) node).collapse();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of nodes which have been created by this pool.
+     */
+    public long created() {
+        return created;
+    }
+
+    /**
+     * @return the number of times a free node has been reused.
+     */
+    public long reused() {
+        return reused;
+    }
+
+    /**
+     * @return the number of nodes which have been released to this pool.
+     */
+    public long released() {
+        return released;
+    }
+
+    /**
+     * @return the number of released nodes which held their states (see {@link PooledNode#hasState()}).
+     */
+    public long releasedStates() {
+        return releasedStates;
+    }
+
+    /**
+     * @return the number of free nodes.
+     */
+    public int free() {
+        return free.size();
+    }
+
+    private final int capacity;
+    private final Factory<G, N> factory;
+    private final Deque<N> free = new ArrayDeque<>();
+    private long created = 0;
+    private long reused = 0;
+    private long released = 0;
+    private long releasedStates = 0;
+}
@@ -0,0 +1,80 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Support for root-parallel searches: a number of independent searches of the same position
+ * whose root statistics are merged by the caller.
+ */
+public class ParallelSearch {
+
+    /**
+     * Run the given worker once for each of the given number of threads and wait for all of them.
+     * Worker 0 runs in the calling thread; the others run on a shared pool of daemon threads.
+     *
+     * @param threads the number of workers.
+     * @param worker  a function of the worker index (0 .. threads-1).
+     * @param <T>     the result type.
+     * @return the results of the workers, in worker order.
+     */
+    public static <T> List<T> run(int threads, IntFunction<T> worker) {
+        List<Future<T>> futures = new ArrayList<>();
+        for (int k = 1; k < threads; k++) {
+            int index = k;
+            futures.add(POOL.submit(() -> worker.apply(index)));
+        }
+        List<T> result = new ArrayList<>();
+        result.add(worker.apply(0));
+        for (Future<T> future : futures) {
+            try {
+                result.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("parallel search interrupted", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("parallel search failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method to divide a number of iterations between threads.
+     *
+     * @param iterations the total number of iterations.
+     * @param threads    the number of threads.
+     * @param k          the index of a thread.
+     * @return the share of thread k (the shares differ by at most one and add up to iterations).
+     */
+    public static int share(int iterations, int threads, int k) {
+        return iterations / threads + (k < iterations % threads ? 1 : 0);
+    }
+
+    /**
+     * Method to derive a seed for the random source of a search thread.
+     *
+     * @param random a random value (e.g. from the random source of the root state).
+     * @param k      the index of the thread.
+     * @return a seed.
+     */
+    public static long seed(long random, int k) {
+        long z = random + k * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        return z ^ (z >>> 31);
+    }
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService POOL = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "search-worker-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+}
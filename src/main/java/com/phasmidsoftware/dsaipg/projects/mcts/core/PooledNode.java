@@ -0,0 +1,36 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+/**
+ * A Node which can be recycled by a {@link NodePool}.
+ *
+ * @param <G> the type of the Game.
+ */
+public interface PooledNode<G extends Game> extends Node<G> {
+
+    /**
+     * Method to reinitialise this (released) node as a new node for the given state and parent.
+     *
+     * @param state  the State for this node.
+     * @param parent the parent node (null for a root).
+     */
+    void reset(State<G> state, Node<G> parent);
+
+    /**
+     * Method to drop the state, parent, children and statistics of this node when it is released,
+     * so that a node in a pool does not keep anything else alive.
+     */
+    void clear();
+
+    /**
+     * Method to make this node (whose children have been released) expandable again, keeping its statistics.
+     */
+    void collapse();
+
+    /**
+     * Method to determine whether this node holds its state (a node may create its state only when it is first needed),
+     * without creating it.
+     *
+     * @return true if the state of this node is in memory.
+     */
+    boolean hasState();
+}
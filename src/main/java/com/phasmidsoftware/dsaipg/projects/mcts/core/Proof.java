@@ -0,0 +1,54 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * The proven value of a position for one player, as used by the MCTS-Solver: a node whose children include a proven win
+ * for the player to move is itself a proven win for that player, and a node whose moves are all proven is worth the best of them.
+ * <p>
+ * The constants are in order of preference, so the better of two proofs is the one with the lower ordinal.
+ */
+public enum Proof {
+    WIN, DRAW, LOSS;
+
+    /**
+     * @return the value of the same position for the other player.
+     */
+    public Proof opposite() {
+        return this == WIN ? LOSS : this == LOSS ? WIN : DRAW;
+    }
+
+    /**
+     * Method to evaluate a terminal state.
+     *
+     * @param state  a terminal state.
+     * @param player the player for whom the state is evaluated.
+     * @return WIN, DRAW or LOSS.
+     */
+    public static <G extends Game> Proof of(State<G> state, int player) {
+        Optional<Integer> winner = state.winner();
+        return winner.isEmpty() ? DRAW : winner.get() == player ? WIN : LOSS;
+    }
+
+    /**
+     * Method to prove a position from the proofs of its children,
+     * each of which is for the player to move in the position.
+     *
+     * @param children the children of the node of the position.
+     * @param complete true if there is a child for every move of the position.
+     * @param proof    the function which yields the proof of a child (null if it has not been proven).
+     * @return WIN if some child is a proven win; otherwise, if the children are complete and all proven, the best of them;
+     * otherwise null.
+     */
+    public static <G extends Game, N extends Node<G>> Proof best(Iterable<N> children, boolean complete, Function<N, Proof> proof) {
+        Proof best = null;
+        for (N child : children) {
+            Proof value = proof.apply(child);
+            if (value == WIN) return WIN;
+            if (value == null) complete = false;
+            else if (best == null || value.ordinal() < best.ordinal()) best = value;
+        }
+        return complete ? best : null;
+    }
+}
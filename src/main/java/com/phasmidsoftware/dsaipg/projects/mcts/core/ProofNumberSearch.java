@@ -0,0 +1,230 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A depth-first proof-number search (df-pn) which decides whether one player (the attacker) can force a win from a position
+ * of any game.
+ * <p>
+ * Every position has a proof number, the least number of positions which must still be proven to be wins in order to prove
+ * it a win, and a disproof number, the least number which must be proven not to be wins in order to disprove it; a draw
+ * counts as a disproof. Where the attacker is to move, the proof number is the least of those of the children and the
+ * disproof number their sum, and the other way about where the defender is to move. The search always expands a most-proving
+ * position, and (after Nagai) stays below a node for as long as its numbers are within the thresholds which its parent gives
+ * it, so that it needs no more memory than the depth of the game and a transposition table.
+ * <p>
+ * The transposition table has a fixed number of entries, indexed by the {@link Object#hashCode()} of the state and checked
+ * with {@link Object#equals(Object)}, and each new entry replaces the old one in its place. It is kept from one call to
+ * the next for as long as the attacker is the same, so a position proven in one call is known in the next.
+ * <p>
+ * The search gives up (with {@link Result#UNKNOWN}) once it has expanded the given number of positions.
+ *
+ * @param <G> the type of the Game.
+ */
+public class ProofNumberSearch<G extends Game> {
+
+    /**
+     * The outcome of a search.
+     */
+    public enum Result {
+        /**
+         * The attacker can force a win.
+         */
+        PROVEN,
+        /**
+         * The attacker cannot force a win: the defender can draw or win.
+         */
+        DISPROVEN,
+        /**
+         * The search ran out of budget.
+         */
+        UNKNOWN
+    }
+
+    /**
+     * The default number of entries of the transposition table, as a power of two.
+     */
+    public static final int TABLE_BITS = 16;
+
+    /**
+     * Constructor with the default transposition table.
+     *
+     * @param nodeBudget the maximum number of positions to expand per call (0 for no limit).
+     */
+    public ProofNumberSearch(long nodeBudget) {
+        this(nodeBudget, TABLE_BITS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param nodeBudget the maximum number of positions to expand per call (0 for no limit).
+     * @param tableBits  the number of entries of the transposition table, as a power of two.
+     */
+    @SuppressWarnings("unchecked")
+    public ProofNumberSearch(long nodeBudget, int tableBits) {
+        this.nodeBudget = nodeBudget;
+        states = (State<G>[]) new State[1 << tableBits];
+        proofs = new int[1 << tableBits];
+        disproofs = new int[1 << tableBits];
+        shift = 32 - tableBits;
+    }
+
+    /**
+     * Method to decide whether a player can force a win.
+     *
+     * @param state  the position.
+     * @param player the attacker.
+     * @return PROVEN, DISPROVEN or UNKNOWN.
+     */
+    public Result prove(State<G> state, int player) {
+        if (!started || player != attacker) {
+            Arrays.fill(states, null);
+            attacker = player;
+            started = true;
+        }
+        nodes = 0;
+        proofMove = null;
+        long start = System.nanoTime();
+        int[] numbers = lookup(state);
+        search(state, numbers[0], numbers[1], INFINITY, INFINITY, true);
+        nanos = System.nanoTime() - start;
+        return proof == 0 ? Result.PROVEN : disproof == 0 ? Result.DISPROVEN : Result.UNKNOWN;
+    }
+
+    /**
+     * Method to find a move which forces a win for the player to move.
+     *
+     * @param state the position.
+     * @return the winning move, or empty if the position was disproven or the search ran out of budget.
+     */
+    public Optional<Move<G>> winningMove(State<G> state) {
+        if (state.isTerminal() || prove(state, state.player()) != Result.PROVEN) return Optional.empty();
+        return Optional.of(proofMove);
+    }
+
+    /**
+     * @return the number of positions expanded by the last call.
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the duration of the last call in nanoseconds.
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    /**
+     * @return the memory taken by the transposition table in bytes (not counting the states).
+     */
+    public long tableBytes() {
+        return (long) states.length * (4 + 4 + 4);
+    }
+
+    /**
+     * Search below a position until its numbers reach either threshold (or the budget runs out),
+     * and leave its numbers in proof and disproof.
+     */
+    private void search(State<G> state, int pn, int dn, int thresholdProof, int thresholdDisproof, boolean root) {
+        if (state.isTerminal() || !root && (pn == 0 || dn == 0)) {
+            proof = pn;
+            disproof = dn;
+            return;
+        }
+        nodes++;
+        boolean or = state.player() == attacker;
+        List<Move<G>> moves = new ArrayList<>(state.moves(state.player()));
+        List<State<G>> children = new ArrayList<>(moves.size());
+        int[] pns = new int[moves.size()];
+        int[] dns = new int[moves.size()];
+        for (int k = 0; k < moves.size(); k++) {
+            State<G> child = state.next(moves.get(k));
+            children.add(child);
+            int[] numbers = lookup(child);
+            pns[k] = numbers[0];
+            dns[k] = numbers[1];
+        }
+        int best = 0;
+        while (true) {
+            // In terms of the player to move: phi is the number to be minimized (the proof number at an OR node), delta the other.
+            int[] phis = or ? pns : dns;
+            int[] deltas = or ? dns : pns;
+            int phi = INFINITY, second = INFINITY;
+            long delta = 0;
+            best = 0;
+            for (int k = 0; k < phis.length; k++) {
+                if (phis[k] < phi) {
+                    second = phi;
+                    phi = phis[k];
+                    best = k;
+                } else if (phis[k] < second) second = phis[k];
+                delta += deltas[k];
+            }
+            delta = Math.min(delta, INFINITY);
+            pn = or ? phi : (int) delta;
+            dn = or ? (int) delta : phi;
+            if (pn >= thresholdProof || dn >= thresholdDisproof || nodeBudget > 0 && nodes >= nodeBudget) break;
+            int thresholdPhi = or ? thresholdProof : thresholdDisproof;
+            int thresholdDelta = or ? thresholdDisproof : thresholdProof;
+            int childPhi = Math.min(thresholdPhi, second == INFINITY ? INFINITY : second + 1);
+            int childDelta = (int) Math.min(INFINITY, (long) thresholdDelta - delta + deltas[best]);
+            if (or) search(children.get(best), pns[best], dns[best], childPhi, childDelta, false);
+            else search(children.get(best), pns[best], dns[best], childDelta, childPhi, false);
+            pns[best] = proof;
+            dns[best] = disproof;
+        }
+        if (root && pn == 0) proofMove = moves.get(best);
+        store(state, pn, dn);
+        proof = pn;
+        disproof = dn;
+    }
+
+    /**
+     * @return the proof and disproof numbers of a position: from the table, from the outcome if it is terminal, or else 1 and 1.
+     */
+    private int[] lookup(State<G> state) {
+        int index = index(state);
+        if (state.equals(states[index])) return new int[]{proofs[index], disproofs[index]};
+        if (state.isTerminal()) {
+            boolean won = state.winner().map(winner -> winner == attacker).orElse(false);
+            return won ? new int[]{0, INFINITY} : new int[]{INFINITY, 0};
+        }
+        return new int[]{1, 1};
+    }
+
+    private void store(State<G> state, int pn, int dn) {
+        int index = index(state);
+        states[index] = state;
+        proofs[index] = pn;
+        disproofs[index] = dn;
+    }
+
+    /**
+     * @return the place of a state in the table: the high bits of its hash code multiplied by the golden ratio,
+     * since the low bits of a hash code are not always uniform.
+     */
+    private int index(State<G> state) {
+        return (state.hashCode() * 0x9E3779B9) >>> shift;
+    }
+
+    private static final int INFINITY = 100_000_000;
+
+    private final long nodeBudget;
+    private final State<G>[] states;
+    private final int[] proofs;
+    private final int[] disproofs;
+    private final int shift;
+    private int attacker;
+    private boolean started;
+    private long nodes;
+    private long nanos;
+    private int proof;
+    private int disproof;
+    private Move<G> proofMove;
+}
@@ -0,0 +1,50 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import java.util.Optional;
+
+/**
+ * An engine which first tries to prove a win for the player to move with a {@link ProofNumberSearch}, and plays the
+ * winning move if it finds one; otherwise (the position was disproven, or the search ran out of budget) it asks
+ * another engine, typically MCTS.
+ * <p>
+ * The statistics of a proven move give the positions expanded by the proof-number search (and no iterations);
+ * otherwise they are those of the other engine, with the time spent on the proof added.
+ *
+ * @param <G> the type of the Game.
+ */
+public class ProvingEngine<G extends Game> implements Engine<G> {
+
+    /**
+     * Constructor.
+     *
+     * @param search the proof-number search, whose node budget bounds the cost of the pre-check.
+     * @param engine the engine for the positions which are not proven wins.
+     */
+    public ProvingEngine(ProofNumberSearch<G> search, Engine<G> engine) {
+        this.search = search;
+        this.engine = engine;
+    }
+
+    @Override
+    public Move<G> findBestMove(State<G> state) {
+        Optional<Move<G>> win = search.winningMove(state);
+        if (win.isPresent()) {
+            lastSearch = new SearchStatistics(0, search.nodes(), search.tableBytes(), search.nanos());
+            return win.get();
+        }
+        Move<G> move = engine.findBestMove(state);
+        lastSearch = engine.lastSearch()
+                .map(s -> new SearchStatistics(s.iterations(), s.nodes(), s.estimatedBytes(), s.nanos() + search.nanos(), s.savedIterations()))
+                .orElse(null);
+        return move;
+    }
+
+    @Override
+    public Optional<SearchStatistics> lastSearch() {
+        return Optional.ofNullable(lastSearch);
+    }
+
+    private final ProofNumberSearch<G> search;
+    private final Engine<G> engine;
+    private volatile SearchStatistics lastSearch;
+}
@@ -0,0 +1,27 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+/**
+ * Statistics of one search performed by an Engine.
+ *
+ * @param iterations     the number of search iterations performed (summed over all search threads).
+ * @param nodes          the number of tree nodes created (summed over all search threads).
+ * @param estimatedBytes the estimated size of the search tree(s) in bytes.
+ * @param nanos          the elapsed time of the search in nanoseconds.
+ * @param savedIterations the number of iterations of the budget which were not needed, because the search stopped
+ *                        once the move was decided (see {@link EarlyStop}) or the root was proven
+ *                        (0 for a search which was limited by time).
+ */
+public record SearchStatistics(long iterations, long nodes, long estimatedBytes, long nanos, long savedIterations) {
+
+    /**
+     * The statistics of a move which was chosen without searching.
+     */
+    public static final SearchStatistics NONE = new SearchStatistics(0, 0, 0, 0);
+
+    /**
+     * Constructor for a search which spent its whole budget.
+     */
+    public SearchStatistics(long iterations, long nodes, long estimatedBytes, long nanos) {
+        this(iterations, nodes, estimatedBytes, nanos, 0);
+    }
+}
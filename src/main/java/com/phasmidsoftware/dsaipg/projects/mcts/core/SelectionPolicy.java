@@ -0,0 +1,175 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The rule by which a search chooses which child of a node to descend to: the child with the highest score is chosen.
+ * <p>
+ * Statistics are passed as primitives: the wins of a child are the sum of its rewards (each between 0 and maxReward,
+ * from the point of view of the player who moves from the parent), and the prior of a child is a probability given by
+ * a heuristic (or uniform, if the engine has none). The part of the score which depends only on the parent is computed
+ * once for each selection, by {@link #parentTerm(int)}.
+ */
+public interface SelectionPolicy {
+
+    /**
+     * The names of the policies known to {@link #of(String, double)}.
+     */
+    List<String> NAMES = List.of("ucb1", "ucb1-tuned", "puct", "thompson");
+
+    /**
+     * @return the name of this policy.
+     */
+    String name();
+
+    /**
+     * @param parentPlayouts the playouts of the parent.
+     * @return the term of the score which depends only on the parent.
+     */
+    double parentTerm(int parentPlayouts);
+
+    /**
+     * @param wins       the sum of the rewards of the child.
+     * @param playouts   the playouts of the child.
+     * @param prior      the prior probability of the child.
+     * @param parentTerm the value of {@link #parentTerm(int)}.
+     * @param maxReward  the reward of a win.
+     * @param random     a random source (for randomized policies).
+     * @return the score of the child.
+     */
+    double score(double wins, int playouts, double prior, double parentTerm, double maxReward, Random random);
+
+    /**
+     * @return true if this policy uses the priors of the children (otherwise the engine need not compute them).
+     */
+    default boolean usesPriors() {
+        return false;
+    }
+
+    /**
+     * Method to get a policy by name.
+     *
+     * @param name                 one of {@link #NAMES}.
+     * @param explorationParameter the exploration constant (ignored by Thompson sampling).
+     * @return the SelectionPolicy.
+     */
+    static SelectionPolicy of(String name, double explorationParameter) {
+        return switch (name.toLowerCase()) {
+            case "ucb1" -> new Ucb1(explorationParameter);
+            case "ucb1-tuned" -> new Ucb1Tuned(explorationParameter);
+            case "puct" -> new Puct(explorationParameter);
+            case "thompson" -> new Thompson();
+            default -> throw new IllegalArgumentException("unknown selection policy: " + name);
+        };
+    }
+
+    /**
+     * Plain UCT: <code>w/n + c * sqrt(ln N / n)</code>; unvisited children come first.
+     *
+     * @param explorationParameter the exploration constant c.
+     */
+    record Ucb1(double explorationParameter) implements SelectionPolicy {
+        public String name() {
+            return "ucb1";
+        }
+
+        public double parentTerm(int parentPlayouts) {
+            return Uct.parentTerm(explorationParameter, parentPlayouts);
+        }
+
+        public double score(double wins, int playouts, double prior, double parentTerm, double maxReward, Random random) {
+            return playouts == 0 ? Double.POSITIVE_INFINITY : Uct.value(wins, playouts, parentTerm);
+        }
+    }
+
+    /**
+     * UCB1-Tuned (Auer et al.), which scales the exploration term by an upper bound of the variance of the rewards.
+     * The variance of a child is estimated as that of a win/loss reward with the same mean, which is exact without draws.
+     * Rewards are normalized to [0, 1] and the exploration term is multiplied by c / sqrt(2), so that c = sqrt(2) gives
+     * the original formula: <code>mean + sqrt(ln N / n * min(1/4, V))</code>.
+     *
+     * @param explorationParameter the exploration constant c.
+     */
+    record Ucb1Tuned(double explorationParameter) implements SelectionPolicy {
+        public String name() {
+            return "ucb1-tuned";
+        }
+
+        public double parentTerm(int parentPlayouts) {
+            return parentPlayouts < 1 ? 0 : Uct.log(parentPlayouts);
+        }
+
+        public double score(double wins, int playouts, double prior, double parentTerm, double maxReward, Random random) {
+            if (playouts == 0) return Double.POSITIVE_INFINITY;
+            double mean = wins / playouts / maxReward;
+            double variance = mean * (1 - mean) + Math.sqrt(2 * parentTerm / playouts);
+            double exploration = explorationParameter / Math.sqrt(2) * Math.sqrt(parentTerm / playouts * Math.min(0.25, variance));
+            return maxReward * (mean + exploration);
+        }
+    }
+
+    /**
+     * PUCT (as in AlphaZero): <code>Q + c * P * sqrt(N) / (1 + n)</code>, where Q is the mean reward of the child
+     * (zero if it is unvisited) and P is its prior, so that the heuristic steers the search towards promising moves.
+     *
+     * @param explorationParameter the exploration constant c.
+     */
+    record Puct(double explorationParameter) implements SelectionPolicy {
+        public String name() {
+            return "puct";
+        }
+
+        public double parentTerm(int parentPlayouts) {
+            return explorationParameter * Math.sqrt(Math.max(1, parentPlayouts));
+        }
+
+        public double score(double wins, int playouts, double prior, double parentTerm, double maxReward, Random random) {
+            double q = playouts == 0 ? 0 : wins / playouts;
+            return q + maxReward * parentTerm * prior / (1 + playouts);
+        }
+
+        @Override
+        public boolean usesPriors() {
+            return true;
+        }
+    }
+
+    /**
+     * Thompson sampling: the score of a child is a sample of the posterior Beta(1 + w, 1 + n - w) of its mean reward,
+     * with the rewards normalized to [0, 1].
+     */
+    record Thompson() implements SelectionPolicy {
+        public String name() {
+            return "thompson";
+        }
+
+        public double parentTerm(int parentPlayouts) {
+            return 0;
+        }
+
+        public double score(double wins, int playouts, double prior, double parentTerm, double maxReward, Random random) {
+            double successes = wins / maxReward;
+            double x = gamma(1 + successes, random);
+            double y = gamma(1 + playouts - successes, random);
+            return maxReward * x / (x + y);
+        }
+
+        /**
+         * Sample a Gamma(shape, 1) distribution by the method of Marsaglia and Tsang.
+         */
+        static double gamma(double shape, Random random) {
+            if (shape < 1) return gamma(shape + 1, random) * Math.pow(random.nextDouble(), 1 / shape);
+            double d = shape - 1.0 / 3;
+            double c = 1 / Math.sqrt(9 * d);
+            while (true) {
+                double x = random.nextGaussian();
+                double v = 1 + c * x;
+                if (v <= 0) continue;
+                v = v * v * v;
+                double u = random.nextDouble();
+                if (Math.log(u) < 0.5 * x * x + d - d * v + d * Math.log(v)) return d * v;
+            }
+        }
+    }
+}
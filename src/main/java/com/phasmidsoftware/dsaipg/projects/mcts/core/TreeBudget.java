@@ -0,0 +1,55 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+/**
+ * A limit on the size of a search tree, as a number of nodes and/or an (estimated) number of bytes.
+ * A limit of zero (or less) means no limit.
+ * When a search reaches its budget, it prunes its tree or stops adding nodes to it (see the engines for the details).
+ *
+ * @param maxNodes the maximum number of nodes in the tree.
+ * @param maxBytes the maximum estimated size of the tree in bytes.
+ */
+public record TreeBudget(long maxNodes, long maxBytes) {
+
+    /**
+     * A budget without limits.
+     */
+    public static final TreeBudget UNLIMITED = new TreeBudget(0, 0);
+
+    /**
+     * @return the default budget: a quarter of the maximum heap size, so that no search can exhaust the heap.
+     */
+    public static TreeBudget defaultBudget() {
+        return new TreeBudget(0, Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    /**
+     * Method to determine whether a tree of the given size is within this budget.
+     *
+     * @param nodes the number of nodes.
+     * @param bytes the estimated number of bytes.
+     * @return true if neither limit is exceeded.
+     */
+    public boolean allows(long nodes, long bytes) {
+        return (maxNodes <= 0 || nodes <= maxNodes) && (maxBytes <= 0 || bytes <= maxBytes);
+    }
+
+    /**
+     * @param bytesPerNode the estimated size of one node.
+     * @return the maximum number of nodes allowed by this budget (Long.MAX_VALUE if it is unlimited).
+     */
+    public long nodeLimit(long bytesPerNode) {
+        long byBytes = maxBytes <= 0 ? Long.MAX_VALUE : maxBytes / Math.max(1, bytesPerNode);
+        return maxNodes <= 0 ? byBytes : Math.min(maxNodes, byBytes);
+    }
+
+    /**
+     * Method to divide this budget between the threads of a root-parallel search.
+     *
+     * @param threads the number of threads.
+     * @return the budget of each thread.
+     */
+    public TreeBudget share(int threads) {
+        if (threads <= 1) return this;
+        return new TreeBudget(maxNodes <= 0 ? 0 : Math.max(1, maxNodes / threads), maxBytes <= 0 ? 0 : Math.max(1, maxBytes / threads));
+    }
+}
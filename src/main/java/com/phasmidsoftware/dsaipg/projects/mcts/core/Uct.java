@@ -0,0 +1,66 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+/**
+ * Arithmetic for UCT selection, with tables of the logarithms and inverse square roots of small visit counts.
+ * <p>
+ * The UCT value of a child with w wins out of n playouts, whose parent has N playouts, is
+ * <code>w/n + c * sqrt(ln N / n)</code>, which is computed as <code>w/n + (c * sqrt(ln N)) * (1 / sqrt n)</code>
+ * so that the parent's term is computed once for each selection (see {@link #parentTerm(double, int)}).
+ */
+public final class Uct {
+
+    /**
+     * Visit counts below this size are looked up in the tables.
+     */
+    public static final int TABLE_SIZE = 1 << 14;
+
+    /**
+     * @param n a visit count (at least 1).
+     * @return the natural logarithm of n.
+     */
+    public static double log(int n) {
+        return n < TABLE_SIZE ? LOG[n] : Math.log(n);
+    }
+
+    /**
+     * @param n a visit count (at least 1).
+     * @return 1 / sqrt(n).
+     */
+    public static double inverseSqrt(int n) {
+        return n < TABLE_SIZE ? INVERSE_SQRT[n] : 1 / Math.sqrt(n);
+    }
+
+    /**
+     * @param explorationParameter the exploration constant c.
+     * @param parentPlayouts       the number of playouts of the parent N.
+     * @return c * sqrt(ln N) (or 0 if N is less than 1).
+     */
+    public static double parentTerm(double explorationParameter, int parentPlayouts) {
+        return parentPlayouts < 1 ? 0 : explorationParameter * Math.sqrt(log(parentPlayouts));
+    }
+
+    /**
+     * @param wins       the wins of a child.
+     * @param playouts   the playouts of the child (at least 1).
+     * @param parentTerm the value of {@link #parentTerm(double, int)} for its parent.
+     * @return the UCT value of the child.
+     */
+    public static double value(double wins, int playouts, double parentTerm) {
+        return wins / playouts + parentTerm * inverseSqrt(playouts);
+    }
+
+    private Uct() {
+    }
+
+    private static final double[] LOG = new double[TABLE_SIZE];
+    private static final double[] INVERSE_SQRT = new double[TABLE_SIZE];
+
+    static {
+        LOG[0] = Double.NEGATIVE_INFINITY;
+        INVERSE_SQRT[0] = Double.POSITIVE_INFINITY;
+        for (int n = 1; n < TABLE_SIZE; n++) {
+            LOG[n] = Math.log(n);
+            INVERSE_SQRT[n] = 1 / Math.sqrt(n);
+        }
+    }
+}
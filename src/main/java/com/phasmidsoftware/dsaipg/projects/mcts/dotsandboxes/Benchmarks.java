@@ -1,29 +1,57 @@
 package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
 
+import com.phasmidsoftware.args.Args;
+import com.phasmidsoftware.dsaipg.projects.mcts.benchmark.GameLog;
+import com.phasmidsoftware.dsaipg.projects.mcts.benchmark.MoveLatencyStats;
+import com.phasmidsoftware.dsaipg.projects.mcts.benchmark.ResourceMonitor;
+import com.phasmidsoftware.dsaipg.projects.mcts.benchmark.RoundStatistics;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import scala.Option;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 
 /**
  * Manages AI vs AI experiments and records outcomes with iteration-based benchmarking.
+ * <p>
+ * Every game is recorded in a {@link GameLog} as soon as it finishes, and the CSV row of a setting is derived from that log.
+ * When the log is a file (see {@link #Benchmarks(int, String, int, int, Path)}), an interrupted sweep can simply be restarted:
+ * games which are already in the log are not played again.
+ * The resource columns could only cover the games played by the current run, so they are left blank for a setting which
+ * was resumed.
  */
 public class Benchmarks {
 
+    static final String DEFAULT_FILENAME = "src/main/java/com/phasmidsoftware/dsaipg/projects/mcts/dotsandboxes/dotsandboxes_benchmarking_results.csv";
+    static final String DEFAULT_CHECKPOINT = "target/dotsandboxes_benchmarking_games.log";
+
+    /**
+     * The number of games between forcing the checkpoint log to disk.
+     */
+    static final int SYNC_EVERY = 10;
+
     private final String filename;
     private boolean headerWritten = false;
     private final int gamesPerSetting;
+    private final int warmupGames;
+    private final int rounds;
+    private final GameLog log;
 
     public Benchmarks(int gamesPerSetting) {
         this.gamesPerSetting = gamesPerSetting;
+        this.warmupGames = 0;
+        this.rounds = 1;
+        this.log = GameLog.inMemory();
         LocalDateTime now = LocalDateTime.now();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-        this.filename = "src/main/java/com/phasmidsoftware/dsaipg/projects/mcts/dotsandboxes/dotsandboxes_benchmarking_results.csv";
+        this.filename = DEFAULT_FILENAME;
 
         try (FileWriter writer = new FileWriter(filename, false)) {
-            writer.write("Iterations,TotalGames,P1Wins,P2Wins,Draws,WinRateP1,WinRateP2,AvgGameLength,TimeMillis\n");
+            writer.write("Iterations,TotalGames,P1Wins,P2Wins,Draws,WinRateP1,WinRateP2,AvgGameLength,TimeMillis," + MoveLatencyStats.CSV_HEADER + "," + RoundStatistics.CSV_HEADER + "," + ResourceMonitor.CSV_HEADER + "\n");
             headerWritten = true;
         } catch (IOException e) {
             System.err.println("❌ Failed to initialize CSV file: " + e.getMessage());
@@ -31,20 +59,58 @@ public class Benchmarks {
     }
 
     public Benchmarks(int gamesPerSetting, String filename) {
+        this(gamesPerSetting, filename, 0, 1);
+    }
+
+    /**
+     * Constructor with a warmup phase and repeated measurement rounds.
+     *
+     * @param gamesPerSetting the number of games in each measured round.
+     * @param filename        the CSV file to write.
+     * @param warmupGames     the number of games to play (and discard) before measuring each setting.
+     * @param rounds          the number of measured rounds for each setting.
+     */
+    public Benchmarks(int gamesPerSetting, String filename, int warmupGames, int rounds) {
+        this(gamesPerSetting, filename, warmupGames, rounds, GameLog.inMemory());
+    }
+
+    /**
+     * Constructor for a resumable sweep.
+     * The results of all games are appended to the checkpoint log; if the log already holds games (from an earlier,
+     * interrupted run with the same settings), those games are skipped and their results are reused.
+     *
+     * @param gamesPerSetting the number of games in each measured round.
+     * @param filename        the CSV file to write.
+     * @param warmupGames     the number of games to play (and discard) before measuring each setting.
+     * @param rounds          the number of measured rounds for each setting.
+     * @param checkpoint      the path of the checkpoint log.
+     * @throws IOException if the checkpoint log cannot be opened.
+     */
+    public Benchmarks(int gamesPerSetting, String filename, int warmupGames, int rounds, Path checkpoint) throws IOException {
+        this(gamesPerSetting, filename, warmupGames, rounds, GameLog.open(checkpoint, SYNC_EVERY));
+    }
+
+    private Benchmarks(int gamesPerSetting, String filename, int warmupGames, int rounds, GameLog log) {
         this.gamesPerSetting = gamesPerSetting;
         this.filename = filename;
+        this.warmupGames = warmupGames;
+        this.rounds = rounds;
+        this.log = log;
 
         try (FileWriter writer = new FileWriter(filename, false)) {
-            writer.write("Iterations,TotalGames,P1Wins,P2Wins,Draws,WinRateP1,WinRateP2,AvgGameLength,TimeMillis\n");
+            writer.write("Iterations,TotalGames,P1Wins,P2Wins,Draws,WinRateP1,WinRateP2,AvgGameLength,TimeMillis," + MoveLatencyStats.CSV_HEADER + "," + RoundStatistics.CSV_HEADER + "," + ResourceMonitor.CSV_HEADER + "\n");
             headerWritten = true;
         } catch (IOException e) {
             System.err.println("❌ Failed to initialize CSV file: " + e.getMessage());
         }
     }
 
-    public static void main(String[] args) {
-        //change the number of games
-        Benchmarks manager = new Benchmarks(1000);
+    public static void main(String[] args) throws IOException {
+        //change the number of games, warmup games and measurement rounds with -n, -w and -r (default: 1000, 50 and 1)
+        //delete the checkpoint log to start a fresh sweep rather than resuming the previous one
+        Args<String> parsed = args.length == 0 ? null : Args.parse(args, Option.empty(), Option.empty()).get();
+        Benchmarks manager = new Benchmarks(intOption(parsed, "n", 1000), DEFAULT_FILENAME,
+                intOption(parsed, "w", 50), intOption(parsed, "r", 1), Path.of(DEFAULT_CHECKPOINT));
         manager.runIterationExperiments();
     }
 
@@ -61,55 +127,74 @@ public class Benchmarks {
         System.out.println("\n=============================================");
         System.out.printf("Running %d AI vs AI games on %dx%d board\n", gamesPerSetting, boardSize, boardSize);
         System.out.printf("Players: %d iterations\n", iterations);
+        if (warmupGames > 0 || rounds > 1)
+            System.out.printf("Warmup: %d games, Rounds: %d\n", warmupGames, rounds);
         System.out.println("=============================================");
 
-        int p1Wins = 0, p2Wins = 0, draws = 0;
-        long totalMoves = 0;
+        String setting = settingKey(boardSize, iterations, gamesPerSetting, rounds, warmupGames);
+        int totalGames = gamesPerSetting * rounds;
+        int maxMoves = 2 * boardSize * (boardSize - 1);
+        int resumed = log.completed(setting);
+        if (resumed > 0)
+            System.out.printf("Resuming: %d of %d games already in the log\n", Math.min(resumed, totalGames), totalGames);
 
         DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(iterations, Math.sqrt(2));
-        long totalStartTime = System.currentTimeMillis(); // Start total time here
-
-        for (int i = 1; i <= gamesPerSetting; i++) {
-            System.out.println("\n▶ Game " + i);
-
-            DotsAndBoxesGame game = new DotsAndBoxesGame(boardSize);
-           // DotsAndBoxesState state = (DotsAndBoxesState) game.start();
-            int startingPlayer = (i % 2 == 0) ? 1 : 2;
-            DotsAndBoxesState state = new DotsAndBoxesState(game, startingPlayer);
-
-            int moves = 0;
-            while (!state.isTerminal()) {
-                Move<DotsAndBoxesGame> move = mcts.findBestMove(state);
-                if (move == null) break;
-                state = (DotsAndBoxesState) state.next(move);
-                moves++;
+        if (resumed < totalGames) {
+            for (int i = 1; i <= warmupGames; i++) {
+                playGame(mcts, boardSize, i);
             }
+        }
 
-            totalMoves += moves;
+        long movesPlayed = 0;
+        ResourceMonitor resources = ResourceMonitor.start();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 1; i <= gamesPerSetting; i++) {
+                // The log is keyed by the game's position in the whole setting, so a restart resumes at the same game.
+                long gameIndex = (long) round * gamesPerSetting + i;
+                if (log.isComplete(setting, gameIndex)) continue;
+                System.out.println("\n▶ Game " + i);
 
-            int[] scores = state.getScores();
-            int winner = scores[0] > scores[1] ? 1 : (scores[1] > scores[0] ? 2 : 0);
+                long gameStart = System.nanoTime();
+                GameOutcome outcome = playGame(mcts, boardSize, i);
+                long gameNanos = System.nanoTime() - gameStart;
+                int moves = outcome.moves();
+                movesPlayed += moves;
 
-            switch (winner) {
-                case 1 -> p1Wins++;
-                case 2 -> p2Wins++;
-                default -> draws++;
-            }
+                int[] scores = outcome.state().getScores();
+                int winner = scores[0] > scores[1] ? 1 : (scores[1] > scores[0] ? 2 : 0);
+                append(new GameLog.Entry(setting, gameIndex, winner, moves, gameNanos, outcome.moveNanos()));
 
-            System.out.printf("Game %d: Winner = Player %d, Score = %d-%d, Moves = %d\n",
-                    i, winner, scores[0], scores[1], moves);
+                System.out.printf("Game %d: Winner = Player %d, Score = %d-%d, Moves = %d\n",
+                        i, winner, scores[0], scores[1], moves);
+            }
         }
+        resources.stop();
+        sync();
 
-        long totalExecutionTime = System.currentTimeMillis() - totalStartTime; // End total time here
+        // Everything which follows (except the resource columns) is derived from the log,
+        // so it covers games played by earlier (interrupted) runs.
+        String resourceColumns = resumed > 0 ? ResourceMonitor.BLANK_CSV : resources.toCsv((long) iterations * movesPlayed);
+        GameLog.Summary total = log.summarize(setting, 1, totalGames + 1, maxMoves);
+        RoundStatistics roundMillis = new RoundStatistics();
+        long totalExecutionTime = 0;
+        for (int round = 0; round < rounds; round++) {
+            long roundTime = log.summarize(setting, (long) round * gamesPerSetting + 1, (long) (round + 1) * gamesPerSetting + 1, maxMoves).nanos / 1_000_000;
+            roundMillis.add(roundTime);
+            totalExecutionTime += roundTime;
+        }
+        int p1Wins = total.p1Wins, p2Wins = total.p2Wins, draws = total.draws;
+        long totalMoves = total.moves;
+        MoveLatencyStats latency = total.latency;
 
-        double winRateP1 = (double) p1Wins / gamesPerSetting * 100;
-        double winRateP2 = (double) p2Wins / gamesPerSetting * 100;
-        double avgGameLength = (double) totalMoves / gamesPerSetting;
+        double winRateP1 = (double) p1Wins / totalGames * 100;
+        double winRateP2 = (double) p2Wins / totalGames * 100;
+        double avgGameLength = (double) totalMoves / totalGames;
 
         try (FileWriter writer = new FileWriter(filename, true)) {
-            writer.write(String.format("%d,%d,%d,%d,%d,%.2f,%.2f,%.2f,%d\n",
-                    iterations, gamesPerSetting, p1Wins, p2Wins, draws,
-                    winRateP1, winRateP2, avgGameLength, totalExecutionTime));
+            writer.write(String.format("%d,%d,%d,%d,%d,%.2f,%.2f,%.2f,%d,%s,%s,%s\n",
+                    iterations, totalGames, p1Wins, p2Wins, draws,
+                    winRateP1, winRateP2, avgGameLength, totalExecutionTime, latency.toCsv(),
+                    roundMillis.toCsv(warmupGames), resourceColumns));
         } catch (IOException e) {
             System.err.println("❌ Failed to write to CSV: " + e.getMessage());
         }
@@ -117,9 +202,79 @@ public class Benchmarks {
         System.out.printf("\n📊 Summary for %dx%d board (%d iterations):\n",
                 boardSize, boardSize, iterations);
         System.out.printf("Games: %d, P1 Wins: %d (%.2f%%), P2 Wins: %d (%.2f%%), Draws: %d\n",
-                gamesPerSetting, p1Wins, winRateP1, p2Wins, winRateP2, draws);
+                totalGames, p1Wins, winRateP1, p2Wins, winRateP2, draws);
         System.out.printf("Avg Game Length: %.2f moves, Total Execution Time: %dms\n",
                 avgGameLength, totalExecutionTime);
+        if (rounds > 1)
+            System.out.printf("Round Time: mean %.2fms, stddev %.2fms\n", roundMillis.mean(), roundMillis.stdDev());
+        System.out.printf("Move latency: p50 %dµs, p90 %dµs, p99 %dµs, max %dµs\n",
+                latency.overall().percentile(50) / 1000, latency.overall().percentile(90) / 1000,
+                latency.overall().percentile(99) / 1000, latency.overall().max() / 1000);
+        System.out.printf("Allocated: %.2fMB, GCs: %d (%dms), Peak heap: %.2fMB%s\n",
+                resources.allocatedBytes() / (1024.0 * 1024.0), resources.gcCount(), resources.gcMillis(),
+                resources.peakHeapBytes() / (1024.0 * 1024.0), resumed > 0 ? " (this run only; not in the CSV)" : "");
         System.out.printf("Results saved to: %s\n", filename);
     }
+
+    /**
+     * Play one AI vs AI game.
+     *
+     * @param mcts      the engine which plays both sides.
+     * @param boardSize the number of dots on each side of the board.
+     * @param gameIndex the (one-based) index of the game, which determines the starting player.
+     * @return the final state of the game, the number of moves played and the time taken by each move.
+     */
+    private static GameOutcome playGame(DotsAndBoxesMcts mcts, int boardSize, int gameIndex) {
+        DotsAndBoxesGame game = new DotsAndBoxesGame(boardSize);
+        // DotsAndBoxesState state = (DotsAndBoxesState) game.start();
+        int startingPlayer = (gameIndex % 2 == 0) ? 1 : 2;
+        DotsAndBoxesState state = new DotsAndBoxesState(game, startingPlayer);
+
+        int moves = 0;
+        long[] moveNanos = new long[2 * boardSize * (boardSize - 1)];
+        while (!state.isTerminal()) {
+            long moveStart = System.nanoTime();
+            Move<DotsAndBoxesGame> move = mcts.findBestMove(state);
+            long nanos = System.nanoTime() - moveStart;
+            if (move == null) break;
+            if (moves < moveNanos.length) moveNanos[moves] = nanos;
+            state = (DotsAndBoxesState) state.next(move);
+            moves++;
+        }
+        return new GameOutcome(state, moves, Arrays.copyOf(moveNanos, Math.min(moves, moveNanos.length)));
+    }
+
+    private void append(GameLog.Entry entry) {
+        try {
+            log.append(entry);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write to the checkpoint log: " + e.getMessage(), e);
+        }
+    }
+
+    private void sync() {
+        try {
+            log.sync();
+        } catch (IOException e) {
+            System.err.println("❌ Failed to sync the checkpoint log: " + e.getMessage());
+        }
+    }
+
+    private static int intOption(Args<String> parsed, String flag, int defaultValue) {
+        if (parsed == null) return defaultValue;
+        Option<String> value = parsed.getArgValue(flag);
+        return value.isDefined() ? Integer.parseInt(value.get()) : defaultValue;
+    }
+
+    /**
+     * @return the key of a setting in the log, which includes everything that determines the meaning of a game's index,
+     * so that a sweep with different games, rounds or warmup does not reuse the games of this one.
+     */
+    private static String settingKey(int boardSize, int iterations, int gamesPerSetting, int rounds, int warmupGames) {
+        return "board=" + boardSize + ",iterations=" + iterations + ",games=" + gamesPerSetting + ",rounds=" + rounds +
+                ",warmup=" + warmupGames;
+    }
+
+    private record GameOutcome(DotsAndBoxesState state, int moves, long[] moveNanos) {
+    }
 }
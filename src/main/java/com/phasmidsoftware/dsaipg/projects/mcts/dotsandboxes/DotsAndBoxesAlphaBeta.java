@@ -0,0 +1,255 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SearchStatistics;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+/**
+ * An alpha-beta (negamax) engine for Dots and Boxes, with iterative deepening, a transposition table and move ordering.
+ * <p>
+ * The value of a position is the margin (boxes taken less boxes conceded) which the player to move can secure from the
+ * unclaimed boxes, so it depends only on the lines drawn: a move which completes boxes is worth those boxes plus the
+ * value of the position after it (in which the same player moves again), and any other move is worth minus the value of
+ * the position after it. At the depth limit, a position is valued by the {@link DotsAndBoxesEvaluator}.
+ * A move which completes a box does not count towards the depth, so that the search does not stop in the middle of
+ * taking a chain.
+ * <p>
+ * The moves are searched in the order: the best move found for the position before (from the table), moves which
+ * complete a box, safe moves (which offer no box to the opponent), and sacrifices.
+ * <p>
+ * The transposition table is indexed by the Zobrist hash of the line set (an exclusive or of a fixed random number for
+ * each line drawn), and keeps the value (or bound), the depth and the best line of each position; it is kept from one
+ * move to the next. A value which was found without any static evaluation is exact, and is kept with the depth
+ * {@link #SOLVED}; when the whole of an iteration is exact, the position has been solved and the deepening stops.
+ * <p>
+ * The search deepens one ply at a time until it has searched the given number of positions, or the time limit has
+ * passed, and then plays the best move of the deepest iteration which it completed (it always completes the first).
+ */
+public class DotsAndBoxesAlphaBeta implements Engine<DotsAndBoxesGame> {
+
+    /**
+     * The default number of entries of the transposition table, as a power of two.
+     */
+    public static final int TABLE_BITS = 18;
+
+    /**
+     * The depth of an exact value in the transposition table.
+     */
+    static final int SOLVED = Byte.MAX_VALUE;
+
+    /**
+     * Constructor with the default transposition table.
+     *
+     * @param nodeBudget      the maximum number of positions to search per move (0 for no limit).
+     * @param timeLimitMillis the maximum time per move in milliseconds (0 for no limit).
+     */
+    public DotsAndBoxesAlphaBeta(long nodeBudget, long timeLimitMillis) {
+        this(nodeBudget, timeLimitMillis, TABLE_BITS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param nodeBudget      the maximum number of positions to search per move (0 for no limit).
+     * @param timeLimitMillis the maximum time per move in milliseconds (0 for no limit).
+     * @param tableBits       the number of entries of the transposition table, as a power of two.
+     */
+    public DotsAndBoxesAlphaBeta(long nodeBudget, long timeLimitMillis, int tableBits) {
+        this.nodeBudget = nodeBudget;
+        this.timeLimitMillis = timeLimitMillis;
+        keys = new long[1 << tableBits];
+        values = new float[1 << tableBits];
+        depths = new byte[1 << tableBits];
+        flags = new byte[1 << tableBits];
+        lines = new short[1 << tableBits];
+    }
+
+    @Override
+    public Optional<SearchStatistics> lastSearch() {
+        return Optional.ofNullable(lastSearch);
+    }
+
+    /**
+     * @return the value of the move chosen by the last search (exact if the position was solved).
+     */
+    double lastValue() {
+        return lastValue;
+    }
+
+    @Override
+    public Move<DotsAndBoxesGame> findBestMove(State<DotsAndBoxesGame> state) {
+        long start = System.nanoTime();
+        DotsAndBoxesState root = (DotsAndBoxesState) state;
+        int size = root.game().getSize();
+        if (zobrist == null || zobrist.length != 2 * size * (size - 1)) {
+            zobrist = new long[2 * size * (size - 1)];
+            SplittableRandom random = new SplittableRandom(size);
+            for (int line = 0; line < zobrist.length; line++) zobrist[line] = random.nextLong();
+            Arrays.fill(depths, (byte) 0);
+        }
+        long key = key(root);
+
+        deadline = timeLimitMillis > 0 ? start + timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+        nodes = 0;
+        aborted = false;
+        Move<DotsAndBoxesGame> best = null;
+        int remaining = root.remainingLines();
+        for (int depth = 1; depth <= remaining && !root.isTerminal(); depth++) {
+            long inexact = this.inexact;
+            Move<DotsAndBoxesGame> move = searchRoot(root, key, depth, best == null);
+            if (move == null) break;
+            best = move;
+            if (this.inexact == inexact) break;
+        }
+        lastSearch = new SearchStatistics(nodes, nodes, (long) keys.length * (8 + 4 + 1 + 1 + 2), System.nanoTime() - start);
+        return best;
+    }
+
+    /**
+     * @return the best move at the given depth, or null if the search was stopped before it finished.
+     */
+    private Move<DotsAndBoxesGame> searchRoot(DotsAndBoxesState state, long key, int depth, boolean first) {
+        double alpha = Double.NEGATIVE_INFINITY;
+        Move<DotsAndBoxesGame> best = null;
+        long before = inexact;
+        for (Move<DotsAndBoxesGame> move : order(state, key)) {
+            double value = value(state, key, move, depth, alpha, Double.POSITIVE_INFINITY, first);
+            if (aborted) return null;
+            if (value > alpha) {
+                alpha = value;
+                best = move;
+            }
+        }
+        store(key, alpha, depth, EXACT, ((DotsAndBoxesMove) best).lineIndex(state.game().getSize()), before);
+        lastValue = alpha;
+        return best;
+    }
+
+    /**
+     * @return the value of the position for the player to move, within the window (alpha, beta).
+     */
+    private double search(DotsAndBoxesState state, long key, int depth, double alpha, double beta, boolean first) {
+        nodes++;
+        if (!first && (nodeBudget > 0 && nodes >= nodeBudget || nodes % 1024 == 0 && System.nanoTime() >= deadline))
+            aborted = true;
+        if (aborted || state.isTerminal()) return 0;
+        int index = (int) key & (keys.length - 1);
+        if (keys[index] == key && depths[index] >= depth) {
+            double value = values[index];
+            if (flags[index] == EXACT || flags[index] == LOWER && value >= beta || flags[index] == UPPER && value <= alpha) {
+                if (depths[index] < SOLVED) inexact++;
+                return value;
+            }
+        }
+        if (depth <= 0) {
+            inexact++;
+            int player = state.player();
+            int[] scores = state.getScores();
+            return DotsAndBoxesEvaluator.margin(state, player) - (scores[player - 1] - scores[2 - player]);
+        }
+
+        long before = inexact;
+        double alpha0 = alpha;
+        double best = Double.NEGATIVE_INFINITY;
+        int bestLine = -1;
+        int size = state.game().getSize();
+        for (Move<DotsAndBoxesGame> move : order(state, key)) {
+            double value = value(state, key, move, depth, alpha, beta, first);
+            if (aborted) return 0;
+            if (value > best) {
+                best = value;
+                bestLine = ((DotsAndBoxesMove) move).lineIndex(size);
+            }
+            if (value > alpha) alpha = value;
+            if (alpha >= beta) break;
+        }
+        store(key, best, depth, best <= alpha0 ? UPPER : best >= beta ? LOWER : EXACT, bestLine, before);
+        return best;
+    }
+
+    /**
+     * @return the value of a move for the player to move, within the window (alpha, beta).
+     */
+    private double value(DotsAndBoxesState state, long key, Move<DotsAndBoxesGame> move, int depth, double alpha, double beta, boolean first) {
+        int player = state.player();
+        DotsAndBoxesState next = (DotsAndBoxesState) state.next(move);
+        long nextKey = key ^ zobrist[((DotsAndBoxesMove) move).lineIndex(state.game().getSize())];
+        int completed = next.getScores()[player - 1] - state.getScores()[player - 1];
+        if (completed > 0) return completed + search(next, nextKey, depth, alpha - completed, beta - completed, first);
+        return -search(next, nextKey, depth - 1, -beta, -alpha, first);
+    }
+
+    /**
+     * @return the moves of the position: the move from the table first, then moves which complete a box,
+     * then safe moves, then sacrifices.
+     */
+    private List<Move<DotsAndBoxesGame>> order(DotsAndBoxesState state, long key) {
+        int index = (int) key & (keys.length - 1);
+        int hint = keys[index] == key ? lines[index] : -1;
+        int size = state.game().getSize();
+        List<List<Move<DotsAndBoxesGame>>> classes = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        for (Move<DotsAndBoxesGame> move : state.moves(state.player())) {
+            DotsAndBoxesMove line = (DotsAndBoxesMove) move;
+            int sides = state.mostSides(line);
+            classes.get(line.lineIndex(size) == hint ? 0 : sides == 3 ? 1 : sides < 2 ? 2 : 3).add(move);
+        }
+        List<Move<DotsAndBoxesGame>> result = classes.get(0);
+        for (int k = 1; k < 4; k++) result.addAll(classes.get(k));
+        return result;
+    }
+
+    /**
+     * Store the value of a position, which is exact if no static evaluation was used since the count was before.
+     */
+    private void store(long key, double value, int depth, byte flag, int line, long before) {
+        int index = (int) key & (keys.length - 1);
+        boolean solved = inexact == before;
+        if (keys[index] == key && depths[index] > (solved ? SOLVED : depth)) return;
+        keys[index] = key;
+        values[index] = (float) value;
+        depths[index] = (byte) (solved ? SOLVED : Math.min(depth, SOLVED - 1));
+        flags[index] = flag;
+        lines[index] = (short) line;
+    }
+
+    /**
+     * @return the Zobrist hash of the lines drawn.
+     */
+    private long key(DotsAndBoxesState state) {
+        long key = 0;
+        int line = 0;
+        for (boolean[][] lines : new boolean[][][]{state.getHorizontalLines(), state.getVerticalLines()})
+            for (boolean[] row : lines)
+                for (boolean drawn : row) {
+                    if (drawn) key ^= zobrist[line];
+                    line++;
+                }
+        return key;
+    }
+
+    private static final byte EXACT = 0;
+    private static final byte LOWER = 1;
+    private static final byte UPPER = 2;
+
+    private final long nodeBudget;
+    private final long timeLimitMillis;
+    private final long[] keys;
+    private final float[] values;
+    private final byte[] depths;
+    private final byte[] flags;
+    private final short[] lines;
+    private long[] zobrist;
+    private long deadline;
+    private long nodes;
+    private long inexact;
+    private boolean aborted;
+    private double lastValue;
+    private volatile SearchStatistics lastSearch;
+}
@@ -0,0 +1,300 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.EarlyStop;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SearchStatistics;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SelectionPolicy;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.TreeBudget;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * An opening book for Dots and Boxes: the move chosen by a deep search for each of the positions reached by the first
+ * few lines of a game on one board, memory-mapped from a file.
+ * <p>
+ * Positions are looked up by a 64-bit key: the Zobrist hash (an exclusive or of a fixed random number for each line drawn)
+ * of the line set, taken in whichever of the eight symmetries of the board gives the least hash.
+ * So the positions which are reflections or rotations of each other share one entry, whose move is stored in the
+ * orientation of the key and mapped back to the orientation of the position when it is looked up.
+ * Only positions in which no box has been claimed are in the book (the scores, and so the value of the position,
+ * depend only on the lines drawn).
+ * <p>
+ * The file is a header (a magic number, the number of dots per side and the number of entries) followed by the entries,
+ * sorted by key, each of which is the key, the number of iterations of the search and the line chosen (14 bytes),
+ * so that a lookup is a binary search of the mapped file. Run {@link #main(String[])} to write a book.
+ */
+public final class DotsAndBoxesBook {
+
+    /**
+     * Method to search every position of the opening of a board and write the book to a file.
+     *
+     * @param size    the number of dots on each side of the board.
+     * @param lines   the greatest number of lines drawn in a position of the book.
+     * @param engines a supplier of the engine with which to search each position.
+     * @param path    the path of the file.
+     * @return the number of positions in the book.
+     * @throws IOException if the file cannot be written.
+     */
+    public static int write(int size, int lines, Supplier<Engine<DotsAndBoxesGame>> engines, Path path) throws IOException {
+        Symmetries symmetries = new Symmetries(size);
+        Map<Long, DotsAndBoxesState> positions = new LinkedHashMap<>();
+        List<DotsAndBoxesState> layer = List.of((DotsAndBoxesState) new DotsAndBoxesGame(size).start());
+        for (int drawn = 0; drawn <= lines; drawn++) {
+            List<DotsAndBoxesState> next = new ArrayList<>();
+            for (DotsAndBoxesState state : layer) {
+                if (positions.putIfAbsent(symmetries.key(state)[0], state) != null || drawn == lines) continue;
+                for (Move<DotsAndBoxesGame> move : state.moves(state.player())) {
+                    DotsAndBoxesState child = (DotsAndBoxesState) state.next(move);
+                    if (unclaimed(child)) next.add(child);
+                }
+            }
+            layer = next;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + ENTRY * positions.size());
+        buffer.putInt(MAGIC).putInt(size).putInt(positions.size());
+        positions.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            DotsAndBoxesState state = entry.getValue();
+            Engine<DotsAndBoxesGame> engine = engines.get();
+            DotsAndBoxesMove move = (DotsAndBoxesMove) engine.findBestMove(state);
+            long[] key = symmetries.key(state);
+            long iterations = engine.lastSearch().map(SearchStatistics::iterations).orElse(0L);
+            buffer.putLong(key[0]).putInt((int) Math.min(Integer.MAX_VALUE, iterations))
+                    .putShort((short) symmetries.map((int) key[1], move.lineIndex(size)));
+        });
+        buffer.flip();
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+        return positions.size();
+    }
+
+    /**
+     * Method to map a book file into memory.
+     *
+     * @param path the path of the file written by {@link #write(int, int, Supplier, Path)}.
+     * @return a DotsAndBoxesBook.
+     * @throws IOException if the file cannot be read or is not a book.
+     */
+    public static DotsAndBoxesBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER || buffer.getInt(0) != MAGIC) throw new IOException("not an opening book: " + path);
+            int size = buffer.getInt(4);
+            int entries = buffer.getInt(8);
+            if (size < 2 || entries < 0 || channel.size() != HEADER + (long) ENTRY * entries)
+                throw new IOException("corrupt opening book: " + path);
+            return new DotsAndBoxesBook(new Symmetries(size), buffer, entries);
+        }
+    }
+
+    /**
+     * @return the number of dots on each side of the board of this book.
+     */
+    public int size() {
+        return symmetries.size;
+    }
+
+    /**
+     * @return the number of positions in this book.
+     */
+    public int entries() {
+        return entries;
+    }
+
+    /**
+     * Method to look up the move for a position.
+     *
+     * @param state a position.
+     * @return the move of the book, or null if the position is not in the book.
+     */
+    public Move<DotsAndBoxesGame> move(DotsAndBoxesState state) {
+        if (state.game().getSize() != symmetries.size || !unclaimed(state)) return null;
+        long[] key = symmetries.key(state);
+        int entry = find(key[0]);
+        if (entry < 0) return null;
+        int line = symmetries.unmap((int) key[1], values.getShort(HEADER + ENTRY * entry + 12));
+        DotsAndBoxesMove move = symmetries.move(line, state.player());
+        // A key which is not that of the position (with a chance of about one in 2^64) would name a line already drawn.
+        return drawn(state, line) ? null : move;
+    }
+
+    /**
+     * Method to look up the number of iterations of the search which chose the move for a position.
+     *
+     * @param state a position.
+     * @return the number of iterations, or 0 if the position is not in the book.
+     */
+    public int iterations(DotsAndBoxesState state) {
+        if (state.game().getSize() != symmetries.size || !unclaimed(state)) return 0;
+        int entry = find(symmetries.key(state)[0]);
+        return entry < 0 ? 0 : values.getInt(HEADER + ENTRY * entry + 8);
+    }
+
+    /**
+     * @return the key by which a position is looked up.
+     */
+    long key(DotsAndBoxesState state) {
+        return symmetries.key(state)[0];
+    }
+
+    /**
+     * Method to write a book, searching each position with the same engine as the "mcts-static" benchmark variant,
+     * with all the available processors.
+     *
+     * @param args the number of dots per side (5), the greatest number of lines drawn (2),
+     *             the number of iterations per search (200000) and the path of the file (target/books/dots-SIZE.book).
+     * @throws IOException if the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+        Path path = Path.of(args.length > 3 ? args[3] : "target/books/dots-" + size + ".book");
+        int threads = Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        int entries = write(size, lines, () -> new DotsAndBoxesMcts(iterations, Math.sqrt(2), 0, threads, TreeBudget.defaultBudget(),
+                SelectionPolicy.of("puct", Math.sqrt(2)), 0, EarlyStop.OFF, 0), path);
+        System.out.printf("%s: %d positions in %.1f s%n", path, entries, (System.nanoTime() - start) / 1e9);
+    }
+
+    private DotsAndBoxesBook(Symmetries symmetries, ByteBuffer values, int entries) {
+        this.symmetries = symmetries;
+        this.values = values;
+        this.entries = entries;
+    }
+
+    /**
+     * @return the index of the entry with the given key, or -1 if there is none.
+     */
+    private int find(long key) {
+        int low = 0, high = entries - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long found = values.getLong(HEADER + ENTRY * middle);
+            if (found < key) low = middle + 1;
+            else if (found > key) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    private static boolean unclaimed(DotsAndBoxesState state) {
+        return state.boxesWithSides(4) == 0;
+    }
+
+    private boolean drawn(DotsAndBoxesState state, int line) {
+        int size = symmetries.size;
+        if (line < size * (size - 1)) return state.getHorizontalLines()[line / (size - 1)][line % (size - 1)];
+        line -= size * (size - 1);
+        return state.getVerticalLines()[line / size][line % size];
+    }
+
+    /**
+     * The eight symmetries of a board (the rotations and reflections of the square), as permutations of its lines.
+     */
+    private static final class Symmetries {
+        Symmetries(int size) {
+            this.size = size;
+            int lines = 2 * size * (size - 1);
+            zobrist = new long[lines];
+            for (int line = 0; line < lines; line++) zobrist[line] = mix((long) size << 32 | line);
+            maps = new int[8][lines];
+            inverses = new int[8][lines];
+            for (int line = 0; line < lines; line++) {
+                DotsAndBoxesMove move = move(line, 1);
+                for (int k = 0; k < 8; k++) {
+                    int[] from = transform(k, move.getRow1(), move.getCol1());
+                    int[] to = transform(k, move.getRow2(), move.getCol2());
+                    int image = new DotsAndBoxesMove(from[0], from[1], to[0], to[1], 1).lineIndex(size);
+                    maps[k][line] = image;
+                    inverses[k][image] = line;
+                }
+            }
+        }
+
+        /**
+         * @return the key of a position and the symmetry which gives it.
+         */
+        long[] key(DotsAndBoxesState state) {
+            long[] hashes = new long[8];
+            int line = 0;
+            for (boolean[][] lines : new boolean[][][]{state.getHorizontalLines(), state.getVerticalLines()})
+                for (boolean[] row : lines)
+                    for (boolean drawn : row) {
+                        if (drawn)
+                            for (int k = 0; k < 8; k++) hashes[k] ^= zobrist[maps[k][line]];
+                        line++;
+                    }
+            int best = 0;
+            for (int k = 1; k < 8; k++) if (hashes[k] < hashes[best]) best = k;
+            return new long[]{hashes[best], best};
+        }
+
+        int map(int symmetry, int line) {
+            return maps[symmetry][line];
+        }
+
+        int unmap(int symmetry, int line) {
+            return inverses[symmetry][line];
+        }
+
+        /**
+         * @return the move which draws the given line.
+         */
+        DotsAndBoxesMove move(int line, int player) {
+            int horizontal = size * (size - 1);
+            if (line < horizontal) return new DotsAndBoxesMove(line / (size - 1), line % (size - 1), line / (size - 1), line % (size - 1) + 1, player);
+            line -= horizontal;
+            return new DotsAndBoxesMove(line / size, line % size, line / size + 1, line % size, player);
+        }
+
+        private int[] transform(int symmetry, int row, int col) {
+            int last = size - 1;
+            return switch (symmetry) {
+                case 0 -> new int[]{row, col};
+                case 1 -> new int[]{col, last - row};
+                case 2 -> new int[]{last - row, last - col};
+                case 3 -> new int[]{last - col, row};
+                case 4 -> new int[]{row, last - col};
+                case 5 -> new int[]{last - row, col};
+                case 6 -> new int[]{col, row};
+                default -> new int[]{last - col, last - row};
+            };
+        }
+
+        /**
+         * The SplitMix64 finalizer, which gives the same well-mixed numbers in every run.
+         */
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        final int size;
+        final long[] zobrist;
+        final int[][] maps;
+        final int[][] inverses;
+    }
+
+    private static final int MAGIC = 0x44424f42;
+    private static final int HEADER = 12;
+    private static final int ENTRY = 14;
+
+    private final Symmetries symmetries;
+    private final ByteBuffer values;
+    private final int entries;
+}
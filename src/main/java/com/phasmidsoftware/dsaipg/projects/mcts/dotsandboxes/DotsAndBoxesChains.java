@@ -0,0 +1,279 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
+
+import java.util.Arrays;
+
+/**
+ * The chains and loops of a Dots and Boxes position, maintained incrementally (by union-find) as lines are drawn.
+ * <p>
+ * The members are the unclaimed boxes with two or three sides drawn, and two members are linked when the side which
+ * they share has not been drawn. Every member has at most two links, so each component is a path (a chain) or a cycle
+ * (a loop when it has no box of three sides). For each component the root keeps its number of boxes,
+ * of boxes with three sides and of links: a component is closed exactly when it has as many links as boxes.
+ * Running totals over the components (long chains, loops and so on) are kept up to date as the components change,
+ * so that they can be read in constant time.
+ * <p>
+ * Union-find cannot remove a link, but a drawn line removes at most one. Removing a link from a loop leaves it
+ * connected, and a link of a box which is thereby claimed leaves the rest connected,
+ * so only the removal of a link between two boxes which both remain in a chain (which opens it in the middle)
+ * splits a component: the two parts are then relabelled by walking them, in time proportional to their length.
+ * <p>
+ * An instance belongs to one DotsAndBoxesState: it is copied, not shared, by each move.
+ * The queries do not compress paths, so that a state may be read by several threads.
+ */
+final class DotsAndBoxesChains {
+
+    /**
+     * Constructor for an empty board.
+     *
+     * @param n the number of boxes along each side of the board.
+     */
+    DotsAndBoxesChains(int n) {
+        this.n = n;
+        parent = new int[n * n];
+        size = new int[n * n];
+        threeSided = new int[n * n];
+        links = new int[n * n];
+    }
+
+    /**
+     * @return a copy of these chains, which may then be changed independently.
+     */
+    DotsAndBoxesChains copy() {
+        DotsAndBoxesChains result = new DotsAndBoxesChains(n, Arrays.copyOf(parent, parent.length), Arrays.copyOf(size, size.length),
+                Arrays.copyOf(threeSided, threeSided.length), Arrays.copyOf(links, links.length));
+        result.longChains = longChains;
+        result.loops = loops;
+        result.shortBoxes = shortBoxes;
+        result.settled = settled;
+        result.capturable = capturable;
+        result.openedTwice = openedTwice;
+        result.declinable = declinable;
+        return result;
+    }
+
+    /**
+     * @return the number of unopened chains of three or more boxes.
+     */
+    int longChains() {
+        return longChains;
+    }
+
+    /**
+     * @return the number of unopened loops.
+     */
+    int loops() {
+        return loops;
+    }
+
+    /**
+     * @return the number of boxes in unopened chains of one or two boxes.
+     */
+    int shortBoxes() {
+        return shortBoxes;
+    }
+
+    /**
+     * @return the number of boxes in unopened chains and loops.
+     */
+    int settled() {
+        return settled;
+    }
+
+    /**
+     * @return the number of boxes in opened chains (those with a box of three sides), which can be taken at once.
+     */
+    int capturable() {
+        return capturable;
+    }
+
+    /**
+     * @return the number of opened chains with more than one box of three sides.
+     */
+    int openedTwice() {
+        return openedTwice;
+    }
+
+    /**
+     * @return true if some opened chain has at least two boxes.
+     */
+    boolean declinable() {
+        return declinable > 0;
+    }
+
+    /**
+     * @param sides the number of sides drawn of the box at the given row and column.
+     * @param row   the row of a box.
+     * @param col   the column of a box.
+     * @return the number of boxes in the chain or loop of the box (0 if the box has fewer than two sides or is claimed).
+     */
+    int length(int sides, int row, int col) {
+        return member(sides) ? size[find(row * n + col)] : 0;
+    }
+
+    /**
+     * Method to update the chains after a line has been drawn, once the side counts have been updated.
+     *
+     * @param a               one box which the line borders (-1 if none).
+     * @param b               the other box which the line borders (-1 if none).
+     * @param sides           the number of sides drawn of each box (row by row), including the new line.
+     * @param horizontalLines the horizontal lines, including the new line.
+     * @param verticalLines   the vertical lines, including the new line.
+     */
+    void draw(int a, int b, byte[] sides, boolean[][] horizontalLines, boolean[][] verticalLines) {
+        boolean linked = a >= 0 && b >= 0 && member(sides[a] - 1) && member(sides[b] - 1);
+        if (linked) {
+            int root = find(a);
+            boolean loop = links[root] == size[root];
+            count(root, -1);
+            links[root]--;
+            count(root, 1);
+            sideAdded(a, sides, horizontalLines, verticalLines);
+            sideAdded(b, sides, horizontalLines, verticalLines);
+            if (!loop && sides[a] < 4 && sides[b] < 4) {
+                // The chain has been opened in the middle: a and b are now the ends of its two parts.
+                count(find(a), -1);
+                relabel(a, sides, horizontalLines, verticalLines);
+                relabel(b, sides, horizontalLines, verticalLines);
+            }
+        } else {
+            if (a >= 0) sideAdded(a, sides, horizontalLines, verticalLines);
+            if (b >= 0) sideAdded(b, sides, horizontalLines, verticalLines);
+        }
+    }
+
+    private DotsAndBoxesChains(int n, int[] parent, int[] size, int[] threeSided, int[] links) {
+        this.n = n;
+        this.parent = parent;
+        this.size = size;
+        this.threeSided = threeSided;
+        this.links = links;
+    }
+
+    private static boolean member(int sides) {
+        return sides == 2 || sides == 3;
+    }
+
+    /**
+     * Update the component of a box which has just gained a side.
+     */
+    private void sideAdded(int box, byte[] sides, boolean[][] horizontalLines, boolean[][] verticalLines) {
+        if (sides[box] == 2) {
+            parent[box] = box;
+            size[box] = 1;
+            threeSided[box] = 0;
+            links[box] = 0;
+            count(box, 1);
+            for (int k = 0; k < 4; k++) {
+                int next = neighbour(box, k, horizontalLines, verticalLines);
+                if (next >= 0 && member(sides[next])) connect(box, next);
+            }
+        } else if (sides[box] > 2) {
+            int root = find(box);
+            count(root, -1);
+            if (sides[box] == 3) threeSided[root]++;
+            else {
+                // The box is claimed: its last link has gone with the line which completed it.
+                threeSided[root]--;
+                size[root]--;
+            }
+            count(root, 1);
+        }
+    }
+
+    /**
+     * Link two members which share an undrawn side.
+     */
+    private void connect(int x, int y) {
+        int rx = find(x), ry = find(y);
+        if (rx == ry) {
+            count(rx, -1);
+            links[rx]++;
+            count(rx, 1);
+            return;
+        }
+        count(rx, -1);
+        count(ry, -1);
+        if (size[rx] < size[ry]) {
+            int t = rx;
+            rx = ry;
+            ry = t;
+        }
+        parent[ry] = rx;
+        size[rx] += size[ry];
+        threeSided[rx] += threeSided[ry];
+        links[rx] += links[ry] + 1;
+        count(rx, 1);
+    }
+
+    /**
+     * Make the given end of a chain the root of the chain, walking it to count its boxes and links.
+     */
+    private void relabel(int end, byte[] sides, boolean[][] horizontalLines, boolean[][] verticalLines) {
+        size[end] = 0;
+        threeSided[end] = 0;
+        links[end] = 0;
+        int previous = -1, box = end;
+        while (box >= 0) {
+            parent[box] = end;
+            size[end]++;
+            if (sides[box] == 3) threeSided[end]++;
+            int following = -1;
+            for (int k = 0; k < 4 && following < 0; k++) {
+                int next = neighbour(box, k, horizontalLines, verticalLines);
+                if (next >= 0 && next != previous && member(sides[next])) following = next;
+            }
+            if (following >= 0) links[end]++;
+            previous = box;
+            box = following;
+        }
+        count(end, 1);
+    }
+
+    /**
+     * @return the box across side k (top, bottom, left, right) of the given box, or -1 if the side is drawn or on the edge.
+     */
+    private int neighbour(int box, int k, boolean[][] horizontalLines, boolean[][] verticalLines) {
+        int i = box / n, j = box % n;
+        return switch (k) {
+            case 0 -> i > 0 && !horizontalLines[i][j] ? box - n : -1;
+            case 1 -> i < n - 1 && !horizontalLines[i + 1][j] ? box + n : -1;
+            case 2 -> j > 0 && !verticalLines[i][j] ? box - 1 : -1;
+            default -> j < n - 1 && !verticalLines[i][j + 1] ? box + 1 : -1;
+        };
+    }
+
+    private int find(int box) {
+        while (parent[box] != box) box = parent[box];
+        return box;
+    }
+
+    /**
+     * Add (sign 1) or remove (sign -1) the component with the given root to or from the running totals.
+     */
+    private void count(int root, int sign) {
+        int boxes = size[root];
+        if (threeSided[root] > 0) {
+            capturable += sign * boxes;
+            if (threeSided[root] > 1) openedTwice += sign;
+            if (boxes >= 2) declinable += sign;
+        } else {
+            settled += sign * boxes;
+            if (links[root] == boxes && boxes >= 4) loops += sign;
+            else if (boxes >= 3) longChains += sign;
+            else shortBoxes += sign * boxes;
+        }
+    }
+
+    private final int n;
+    private final int[] parent;
+    private final int[] size;
+    private final int[] threeSided;
+    private final int[] links;
+    private int longChains;
+    private int loops;
+    private int shortBoxes;
+    private int settled;
+    private int capturable;
+    private int openedTwice;
+    private int declinable;
+}
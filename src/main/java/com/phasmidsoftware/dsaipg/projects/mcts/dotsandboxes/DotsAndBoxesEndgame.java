@@ -0,0 +1,278 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * A database of the exact values of all the positions of a small Dots and Boxes board (3 or 4 dots per side),
+ * solved by retrograde analysis and memory-mapped from a file.
+ * <p>
+ * The value of a position depends only on the set of lines drawn: it is the margin (the boxes taken less the boxes
+ * conceded) which the player to move can secure from the unclaimed boxes with perfect play. The positions are numbered
+ * by their line sets, with bit {@link DotsAndBoxesMove#lineIndex(int)} set for each line drawn, and each value is stored
+ * in four bits as (value + unclaimed) / 2, which is a whole number from 0 to the number of unclaimed boxes
+ * (the value and the number of unclaimed boxes always have the same parity).
+ * A 4x4-dot board has 24 lines, so its database takes 8 MB.
+ * <p>
+ * The solver works back from the full board, one layer (number of lines drawn) at a time, since every move adds a line;
+ * the positions of a layer are independent of each other, so each layer is solved in parallel.
+ * <p>
+ * The file is a header (a magic number, the number of dots per side and the number of lines) followed by the values,
+ * two to a byte, the lower half for the even position. Run {@link #main(String[])} to write the files.
+ */
+public final class DotsAndBoxesEndgame {
+
+    /**
+     * The largest number of dots per side for which a database can be built.
+     */
+    public static final int MAX_SIZE = 4;
+
+    /**
+     * Method to solve every position of a board.
+     *
+     * @param size the number of dots on each side of the board (2 to {@link #MAX_SIZE}).
+     * @return the value for the player to move of each line set.
+     */
+    static byte[] solve(int size) {
+        Board board = new Board(size);
+        byte[] values = new byte[1 << board.lines];
+        for (int drawn = board.lines - 1; drawn >= 0; drawn--) {
+            int layer = drawn;
+            IntStream.range(0, values.length).parallel().filter(set -> Integer.bitCount(set) == layer)
+                    .forEach(set -> values[set] = (byte) board.value(set, values));
+        }
+        return values;
+    }
+
+    /**
+     * Method to solve every position of a board and write the database to a file.
+     *
+     * @param size the number of dots on each side of the board (2 to {@link #MAX_SIZE}).
+     * @param path the path of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(int size, Path path) throws IOException {
+        byte[] values = solve(size);
+        Board board = new Board(size);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + values.length / 2);
+        buffer.putInt(MAGIC).putInt(size).putInt(board.lines);
+        for (int set = 0; set < values.length; set += 2)
+            buffer.put((byte) (board.encode(set, values[set]) | board.encode(set + 1, values[set + 1]) << 4));
+        buffer.flip();
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /**
+     * Method to map a database file into memory.
+     *
+     * @param path the path of the file written by {@link #write(int, Path)}.
+     * @return a DotsAndBoxesEndgame.
+     * @throws IOException if the file cannot be read or is not a database.
+     */
+    public static DotsAndBoxesEndgame open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER || buffer.getInt(0) != MAGIC) throw new IOException("not an endgame database: " + path);
+            int size = buffer.getInt(4);
+            if (size < 2 || size > MAX_SIZE || buffer.getInt(8) != 2 * size * (size - 1)
+                    || channel.size() != HEADER + (1L << buffer.getInt(8)) / 2)
+                throw new IOException("corrupt endgame database: " + path);
+            return new DotsAndBoxesEndgame(new Board(size), buffer);
+        }
+    }
+
+    /**
+     * @param directory a directory.
+     * @param size      the number of dots on each side of the board.
+     * @return the path of the database of the given board in the directory.
+     */
+    public static Path path(Path directory, int size) {
+        return directory.resolve("dots-" + size + ".db");
+    }
+
+    /**
+     * @return the number of dots on each side of the board of this database.
+     */
+    public int size() {
+        return board.size;
+    }
+
+    /**
+     * @param state a position.
+     * @return true if this database has the value of the position (i.e. it is on the board of this database).
+     */
+    public boolean covers(DotsAndBoxesState state) {
+        return state.game().getSize() == board.size;
+    }
+
+    /**
+     * Method to look up the value of a position.
+     *
+     * @param state a position on the board of this database.
+     * @return the margin which the player to move can secure from the unclaimed boxes with perfect play.
+     */
+    public int margin(DotsAndBoxesState state) {
+        return value(board.lineSet(state));
+    }
+
+    /**
+     * Method to look up the value of a move.
+     *
+     * @param state a position on the board of this database.
+     * @param move  a move of the position.
+     * @return the margin which the player to move can secure from the unclaimed boxes by playing the move
+     * (and then playing perfectly).
+     */
+    public int margin(DotsAndBoxesState state, Move<DotsAndBoxesGame> move) {
+        return value(board.lineSet(state), ((DotsAndBoxesMove) move).lineIndex(board.size));
+    }
+
+    /**
+     * Method to find a move with perfect play: the first of the moves of the position with the best value.
+     *
+     * @param state a position on the board of this database which is not terminal.
+     * @return the move.
+     */
+    public Move<DotsAndBoxesGame> bestMove(DotsAndBoxesState state) {
+        int set = board.lineSet(state);
+        Move<DotsAndBoxesGame> best = null;
+        int bestValue = Integer.MIN_VALUE;
+        for (Move<DotsAndBoxesGame> move : state.moves(state.player())) {
+            int value = value(set, ((DotsAndBoxesMove) move).lineIndex(board.size));
+            if (value > bestValue) {
+                best = move;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Method to write the databases of the boards with 3 and 4 dots per side.
+     *
+     * @param args the directory in which to write the files (by default target/endgames).
+     * @throws IOException if a file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "target/endgames");
+        for (int size = 3; size <= MAX_SIZE; size++) {
+            long start = System.nanoTime();
+            Path path = path(directory, size);
+            write(size, path);
+            System.out.printf("%s: %d positions in %.1f s%n", path, 1L << 2 * size * (size - 1), (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private DotsAndBoxesEndgame(Board board, ByteBuffer values) {
+        this.board = board;
+        this.values = values;
+    }
+
+    private int value(int set, int line) {
+        int completed = board.completed(set, line);
+        return completed > 0 ? completed + value(set | 1 << line) : -value(set | 1 << line);
+    }
+
+    private int value(int set) {
+        int stored = values.get(HEADER + (set >>> 1)) >> ((set & 1) << 2) & 0xF;
+        return 2 * stored - board.unclaimed(set);
+    }
+
+    /**
+     * The lines and boxes of a board, numbered as by {@link DotsAndBoxesMove#lineIndex(int)} and row by row.
+     */
+    private static final class Board {
+        Board(int size) {
+            if (size < 2 || size > MAX_SIZE) throw new IllegalArgumentException("no endgame database for size " + size);
+            this.size = size;
+            int n = size - 1;
+            lines = 2 * size * n;
+            boxSides = new int[n * n];
+            lineBoxes = new int[lines][];
+            int[] count = new int[lines];
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++) {
+                    int[] sides = {i * n + j, (i + 1) * n + j, size * n + i * size + j, size * n + i * size + j + 1};
+                    for (int line : sides) {
+                        boxSides[i * n + j] |= 1 << line;
+                        count[line]++;
+                    }
+                }
+            for (int line = 0; line < lines; line++) lineBoxes[line] = new int[count[line]];
+            for (int box = 0; box < boxSides.length; box++)
+                for (int line = 0; line < lines; line++)
+                    if ((boxSides[box] & 1 << line) != 0) lineBoxes[line][--count[line]] = box;
+        }
+
+        /**
+         * @return the value of a position, given the values of all the positions with one more line.
+         */
+        int value(int set, byte[] values) {
+            int best = Integer.MIN_VALUE;
+            for (int line = 0; line < lines; line++) {
+                if ((set & 1 << line) != 0) continue;
+                int completed = completed(set, line);
+                int value = completed > 0 ? completed + values[set | 1 << line] : -values[set | 1 << line];
+                best = Math.max(best, value);
+            }
+            return best == Integer.MIN_VALUE ? 0 : best;
+        }
+
+        /**
+         * @return the number of boxes which drawing the line completes.
+         */
+        int completed(int set, int line) {
+            int completed = 0;
+            for (int box : lineBoxes[line])
+                if ((boxSides[box] & ~set) == 1 << line) completed++;
+            return completed;
+        }
+
+        int unclaimed(int set) {
+            int unclaimed = 0;
+            for (int sides : boxSides)
+                if ((sides & set) != sides) unclaimed++;
+            return unclaimed;
+        }
+
+        int encode(int set, int value) {
+            return (value + unclaimed(set)) / 2;
+        }
+
+        int lineSet(DotsAndBoxesState state) {
+            boolean[][] horizontalLines = state.getHorizontalLines();
+            boolean[][] verticalLines = state.getVerticalLines();
+            int set = 0, line = 0;
+            for (boolean[][] lines : new boolean[][][]{horizontalLines, verticalLines})
+                for (boolean[] row : lines)
+                    for (boolean drawn : row) {
+                        if (drawn) set |= 1 << line;
+                        line++;
+                    }
+            return set;
+        }
+
+        final int size;
+        final int lines;
+        // The lines of each box, and the boxes of each line
+        final int[] boxSides;
+        final int[][] lineBoxes;
+    }
+
+    private static final int MAGIC = 0x44424547;
+    private static final int HEADER = 12;
+
+    private final Board board;
+    private final ByteBuffer values;
+}
@@ -0,0 +1,127 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
+
+import java.util.Optional;
+
+/**
+ * A static evaluator of Dots and Boxes positions: the material (the difference of the scores) plus an estimate of what
+ * the chains and loops on the board are worth to the player who will be in control of them.
+ * <p>
+ * The chains and loops are the connected groups of unclaimed boxes which have at least two sides drawn (through their
+ * undrawn sides). Once a player has to open a long chain (three or more boxes) or a loop, the other player (the controller)
+ * can take all but two boxes of each chain and all but four of each loop, hand those to the opponent, and so keep control
+ * to the end, where they take the whole of the last chain.
+ * <p>
+ * Who will be in control follows from the parity of the turns which remain: every turn but the last ends with a move
+ * which completes no box, and a double-cross (one line completing two boxes) is the only way for a move to complete two,
+ * so the number of turns left (counting the current one) is lines - boxes + double-crosses + 1,
+ * where the double-crosses still to come are one for each long chain but the last and two for each loop.
+ * The controller is the player who moves in the last turn.
+ * <p>
+ * The estimate of control is weighted by the proportion of the unclaimed boxes which already belong to chains or loops,
+ * so that it counts for little in the opening, when the structure is not yet settled.
+ * <p>
+ * Chains which have already been opened (those with a box of three sides) are taken by the player to move before the
+ * rest is evaluated, except that the player may decline the last two boxes of a chain if it pays to hand over the move.
+ */
+public final class DotsAndBoxesEvaluator {
+
+    /**
+     * The chains and loops of a position.
+     *
+     * @param unclaimed   the number of unclaimed boxes which cannot be taken at once.
+     * @param longChains  the number of (unopened) chains of three or more boxes.
+     * @param loops       the number of (unopened) loops.
+     * @param shortBoxes  the number of boxes in (unopened) chains of one or two boxes.
+     * @param settled     the number of unclaimed boxes which belong to unopened chains or loops.
+     * @param capturable  the number of boxes in opened chains, which the player to move can take at once.
+     * @param openedTwice the number of opened chains with a box of three sides at both ends
+     *                    (where one line completes the last two boxes).
+     * @param declinable  true if some opened chain has at least two boxes, so that its last two can be declined.
+     */
+    public record Structure(int unclaimed, int longChains, int loops, int shortBoxes, int settled,
+                            int capturable, int openedTwice, boolean declinable) {
+    }
+
+    /**
+     * Method to find the chains and loops of a position (which the state maintains as its lines are drawn).
+     *
+     * @param state the position.
+     * @return its Structure.
+     */
+    public static Structure structure(DotsAndBoxesState state) {
+        int n = state.game().getSize() - 1;
+        DotsAndBoxesChains chains = state.chains();
+        int unclaimed = n * n - state.boxesWithSides(4) - chains.capturable();
+        return new Structure(unclaimed, chains.longChains(), chains.loops(), chains.shortBoxes(), chains.settled(),
+                chains.capturable(), chains.openedTwice(), chains.declinable());
+    }
+
+    /**
+     * Method to estimate the final margin of the given player: their score less the opponent's score at the end.
+     *
+     * @param state  the position.
+     * @param player the player (1 or 2).
+     * @return the material plus the boxes which can be taken at once plus the weighted value of control.
+     */
+    public static double margin(DotsAndBoxesState state, int player) {
+        int[] scores = state.getScores();
+        Structure structure = structure(state);
+        double value = structure.capturable() + control(structure, state.remainingLines());
+        return scores[player - 1] - scores[2 - player] + (state.player() == player ? value : -value);
+    }
+
+    /**
+     * @return the value of the unopened chains and loops to the player to move, once the opened chains have been taken.
+     */
+    private static double control(Structure structure, int remainingLines) {
+        int unclaimed = structure.unclaimed();
+        if (unclaimed == 0 || structure.longChains() + structure.loops() == 0) return 0;
+        int doubleCrosses = structure.longChains() > 0 ? structure.longChains() - 1 + 2 * structure.loops() : 2 * (structure.loops() - 1);
+        // Taking a chain of n boxes takes n lines, or n - 1 if it is opened at both ends.
+        int lines = remainingLines - structure.capturable() + structure.openedTwice();
+        // The player to move moves in the last turn if the number of turns left is odd.
+        boolean moverControls = (lines - unclaimed + doubleCrosses) % 2 == 0;
+        int sacrificed = Math.min(unclaimed, structure.shortBoxes() + 2 * Math.max(0, structure.longChains() - 1) + 4 * structure.loops());
+        double control = (unclaimed - 2.0 * sacrificed) * structure.settled() / unclaimed;
+        if (moverControls) return control;
+        // Declining the last two boxes of an opened chain gives them away but hands over the move.
+        return structure.declinable() ? Math.max(-control, control - 4) : -control;
+    }
+
+    /**
+     * Method to map the evaluation of a position to the probability that the given player wins
+     * (a draw counting as half a win): exact for a terminal position, and otherwise a logistic function of the margin
+     * whose slope falls as the number of unclaimed boxes grows.
+     *
+     * @param state  the position.
+     * @param player the player (1 or 2).
+     * @return the probability, between 0 and 1.
+     */
+    public static double winProbability(DotsAndBoxesState state, int player) {
+        if (state.isTerminal()) {
+            Optional<Integer> winner = state.winner();
+            return winner.isEmpty() ? 0.5 : winner.get() == player ? 1 : 0;
+        }
+        int n = state.game().getSize() - 1;
+        int unclaimed = n * n - state.boxesWithSides(4);
+        return 1 / (1 + Math.exp(-margin(state, player) / (1 + Math.sqrt(unclaimed) / 2)));
+    }
+
+    /**
+     * Method to map the evaluation of a position to the share of all the boxes which the given player will have at the end
+     * (so 1/2 for a draw): exact for a terminal position, and otherwise from the estimated margin.
+     * Unlike {@link #winProbability}, this tells a narrow result from a heavy one.
+     *
+     * @param state  the position.
+     * @param player the player (1 or 2).
+     * @return the share, between 0 and 1.
+     */
+    public static double boxShare(DotsAndBoxesState state, int player) {
+        int n = state.game().getSize() - 1;
+        double margin = state.isTerminal() ? state.getScores()[player - 1] - state.getScores()[2 - player] : margin(state, player);
+        return Math.max(0, Math.min(1, (1 + margin / (n * n)) / 2));
+    }
+
+    private DotsAndBoxesEvaluator() {
+    }
+}
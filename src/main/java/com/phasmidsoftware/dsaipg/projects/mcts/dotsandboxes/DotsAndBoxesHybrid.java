@@ -0,0 +1,50 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SearchStatistics;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+
+import java.util.Optional;
+
+/**
+ * An engine for Dots and Boxes which plays the opening and middle game with MCTS and switches to alpha-beta
+ * (see {@link DotsAndBoxesAlphaBeta}) once few enough lines are left for the alpha-beta search to see to the end,
+ * or nearly so.
+ */
+public class DotsAndBoxesHybrid implements Engine<DotsAndBoxesGame> {
+
+    /**
+     * The default number of remaining lines at or below which alpha-beta takes over.
+     */
+    public static final int LINES = 20;
+
+    /**
+     * Constructor.
+     *
+     * @param mcts      the engine for positions with more than the given number of lines left.
+     * @param alphaBeta the engine for the other positions.
+     * @param lines     the number of remaining lines at or below which the alpha-beta engine plays.
+     */
+    public DotsAndBoxesHybrid(Engine<DotsAndBoxesGame> mcts, DotsAndBoxesAlphaBeta alphaBeta, int lines) {
+        this.mcts = mcts;
+        this.alphaBeta = alphaBeta;
+        this.lines = lines;
+    }
+
+    @Override
+    public Move<DotsAndBoxesGame> findBestMove(State<DotsAndBoxesGame> state) {
+        last = ((DotsAndBoxesState) state).remainingLines() > lines ? mcts : alphaBeta;
+        return last.findBestMove(state);
+    }
+
+    @Override
+    public Optional<SearchStatistics> lastSearch() {
+        return last == null ? Optional.empty() : last.lastSearch();
+    }
+
+    private final Engine<DotsAndBoxesGame> mcts;
+    private final DotsAndBoxesAlphaBeta alphaBeta;
+    private final int lines;
+    private volatile Engine<DotsAndBoxesGame> last;
+}
@@ -1,15 +1,60 @@
 package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
 
+import com.phasmidsoftware.dsaipg.projects.mcts.core.EarlyStop;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.NodePool;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.ParallelSearch;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Proof;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SearchStatistics;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SelectionPolicy;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.TreeBudget;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
 
 /**
- * Simplified MCTS for Dots and Boxes (no time limit, single instance use)
+ * Simplified MCTS for Dots and Boxes (optional time limit, optional root parallelism, single instance use)
+ * <p>
+ * With more than one search thread, each thread searches its own tree (with its own random source)
+ * for its share of the iterations, and the root children of all the trees are merged before choosing the move.
+ * <p>
+ * The size of each search tree is limited by a {@link TreeBudget} (by default a quarter of the heap):
+ * once expanding a node would exceed it, the least-visited subtrees are pruned to make room, and if that is not enough,
+ * the search plays a random rollout from the selected node instead, and adds its result to the node and its ancestors.
+ * <p>
+ * With a {@link SelectionPolicy}, the search is a conventional MCTS with rollouts (see the constructor).
+ * Such a search may also keep RAVE statistics: each expanded node counts, for every line, the results of the simulations
+ * in which its player drew that line at any later point, and blends them into the value of the child which draws it first.
+ * It is also an MCTS-Solver: terminal nodes are proven wins, draws or losses, and the proofs are propagated up the tree,
+ * so that proven nodes are no longer selected (the search goes on among their unproven siblings), the best move takes
+ * the proven values into account, and the search stops as soon as the root is proven. With one thread, it also stops
+ * once the child with the best mean result is established according to an {@link EarlyStop} rule.
+ * <p>
+ * A rollout may also be cut off after a given number of moves (or skipped altogether), in which case its result is the
+ * probability of a win given by the {@link DotsAndBoxesEvaluator} for the position reached.
+ * <p>
+ * By default, the result of a playout is its outcome (a win, draw or loss), which does not tell a narrow loss from a
+ * heavy one. With {@link #useMarginReward(double)}, it is blended with the final share of the boxes (or its estimate,
+ * for a rollout which was cut off), so that the search can separate moves with fewer iterations.
+ * <p>
+ * Given a {@link DotsAndBoxesEndgame} database (see {@link #useEndgame(DotsAndBoxesEndgame)}), the engine plays perfectly,
+ * without searching, on the board of the database. Likewise, given a {@link DotsAndBoxesBook}
+ * (see {@link #useBook(DotsAndBoxesBook)}), it plays the positions of the book without searching.
+ * <p>
+ * The nodes are taken from {@link NodePool}s which belong to this engine, and the whole tree is released to its pool
+ * when the move has been chosen, so that a long-lived engine reuses the same nodes for all of its searches.
  */
-public class DotsAndBoxesMcts {
+public class DotsAndBoxesMcts implements Engine<DotsAndBoxesGame> {
     public enum Difficulty {
         EASY(100, 1.0, false),
         MEDIUM(1000, Math.sqrt(2), true),
@@ -30,21 +75,231 @@ public class DotsAndBoxesMcts {
     private final int iterations;
     private final double explorationParam;
     private final boolean useHeuristics;
+    private final long timeLimitMillis;
+    private final int threads;
+    private final TreeBudget budget;
+    private final SelectionPolicy policy;
+    private final double raveEquivalence;
+    private final EarlyStop earlyStop;
+    private final int rolloutDepth;
     final Difficulty difficulty;
+    private volatile DotsAndBoxesEndgame endgame;
+    private volatile DotsAndBoxesBook book;
+    private volatile double marginWeight;
+    private volatile SearchStatistics lastSearch;
+    private final Deque<NodePool<DotsAndBoxesGame, DotsAndBoxesNode>> pools = new ArrayDeque<>();
+
+    /**
+     * The maximum number of free nodes kept by each pool.
+     */
+    static final int POOL_CAPACITY = 1 << 16;
+
+    /**
+     * A RAVE equivalence parameter which suits boards of 4x4 to 6x6 dots with a few thousand iterations per move.
+     */
+    public static final double RAVE_EQUIVALENCE = 500;
+
+    /**
+     * A rollout depth which suits the "mcts-cutoff" benchmark variant.
+     */
+    public static final int ROLLOUT_DEPTH = 10;
+
+    /**
+     * A weight of the margin in the result of a playout (see {@link #useMarginReward(double)}) which suits the
+     * "mcts-blend" benchmark variant.
+     */
+    public static final double MARGIN_WEIGHT = 0.5;
 
     public DotsAndBoxesMcts(Difficulty difficulty) {
         this.iterations = difficulty.iterations;
         this.explorationParam = difficulty.explorationParam;
         this.useHeuristics = difficulty.useHeuristics;
+        this.timeLimitMillis = 0;
+        this.threads = 1;
+        this.budget = TreeBudget.defaultBudget();
+        this.policy = null;
+        this.raveEquivalence = 0;
+        this.earlyStop = EarlyStop.EXACT;
+        this.rolloutDepth = -1;
         this.difficulty = difficulty;
     }
     public DotsAndBoxesMcts(int iterations, double explorationParam) {
+        this(iterations, explorationParam, 0);
+    }
+
+    /**
+     * Constructor with a time limit for each search.
+     *
+     * @param iterations       the maximum number of iterations per search.
+     * @param explorationParam the UCT exploration constant.
+     * @param timeLimitMillis  the maximum time per search in milliseconds (0 for no limit).
+     */
+    public DotsAndBoxesMcts(int iterations, double explorationParam, long timeLimitMillis) {
+        this(iterations, explorationParam, timeLimitMillis, 1);
+    }
+
+    /**
+     * Constructor for a root-parallel search.
+     *
+     * @param iterations       the maximum number of iterations per search (shared between the threads).
+     * @param explorationParam the UCT exploration constant.
+     * @param timeLimitMillis  the maximum time per search in milliseconds (0 for no limit).
+     * @param threads          the number of search threads.
+     */
+    public DotsAndBoxesMcts(int iterations, double explorationParam, long timeLimitMillis, int threads) {
+        this(iterations, explorationParam, timeLimitMillis, threads, TreeBudget.defaultBudget());
+    }
+
+    /**
+     * Constructor with a limit on the size of the search tree.
+     *
+     * @param iterations       the maximum number of iterations per search (shared between the threads).
+     * @param explorationParam the UCT exploration constant.
+     * @param timeLimitMillis  the maximum time per search in milliseconds (0 for no limit).
+     * @param threads          the number of search threads.
+     * @param budget           the maximum size of the search tree (shared between the threads).
+     */
+    public DotsAndBoxesMcts(int iterations, double explorationParam, long timeLimitMillis, int threads, TreeBudget budget) {
+        this(iterations, explorationParam, timeLimitMillis, threads, budget, null);
+    }
+
+    /**
+     * Constructor with a selection policy, which makes a conventional search: a node is expanded on its second visit,
+     * each iteration ends with a random rollout whose result is added to every node on its path, and the priors of
+     * the children (for PUCT) favour moves which complete a box and avoid moves which offer one.
+     *
+     * @param iterations       the maximum number of iterations per search (shared between the threads).
+     * @param explorationParam the exploration constant (ignored if policy is given).
+     * @param timeLimitMillis  the maximum time per search in milliseconds (0 for no limit).
+     * @param threads          the number of search threads.
+     * @param budget           the maximum size of the search tree (shared between the threads).
+     * @param policy           the rule for choosing the child to descend to (see {@link SelectionPolicy#of}),
+     *                         or null for the original UCT search, which only descends to visited children.
+     */
+    public DotsAndBoxesMcts(int iterations, double explorationParam, long timeLimitMillis, int threads, TreeBudget budget, SelectionPolicy policy) {
+        this(iterations, explorationParam, timeLimitMillis, threads, budget, policy, 0);
+    }
+
+    /**
+     * Constructor for a search with RAVE (rapid action value estimation).
+     * The value of a child is (1 - beta) * its own mean result + beta * the AMAF mean result of its move in its parent,
+     * where beta = sqrt(k / (3n + k)) for a child with n visits and the equivalence parameter k,
+     * so the AMAF statistics (which are gathered much faster) guide the search until the child has about k visits.
+     *
+     * @param iterations       the maximum number of iterations per search (shared between the threads).
+     * @param explorationParam the exploration constant (ignored if policy is given).
+     * @param timeLimitMillis  the maximum time per search in milliseconds (0 for no limit).
+     * @param threads          the number of search threads.
+     * @param budget           the maximum size of the search tree (shared between the threads).
+     * @param policy           the selection policy, or null for the original UCT search
+     *                         (or for UCB1 with the given exploration constant if raveEquivalence is positive).
+     * @param raveEquivalence  the RAVE equivalence parameter k, or 0 for no RAVE.
+     */
+    public DotsAndBoxesMcts(int iterations, double explorationParam, long timeLimitMillis, int threads, TreeBudget budget,
+                            SelectionPolicy policy, double raveEquivalence) {
+        this(iterations, explorationParam, timeLimitMillis, threads, budget, policy, raveEquivalence, EarlyStop.EXACT);
+    }
+
+    /**
+     * Constructor with a rule for stopping a search early (by default, {@link EarlyStop#EXACT}),
+     * which applies to a search with a selection policy and one thread.
+     *
+     * @param iterations       the maximum number of iterations per search (shared between the threads).
+     * @param explorationParam the exploration constant (ignored if policy is given).
+     * @param timeLimitMillis  the maximum time per search in milliseconds (0 for no limit).
+     * @param threads          the number of search threads.
+     * @param budget           the maximum size of the search tree (shared between the threads).
+     * @param policy           the selection policy, or null for the original UCT search
+     *                         (or for UCB1 with the given exploration constant if raveEquivalence is positive).
+     * @param raveEquivalence  the RAVE equivalence parameter k, or 0 for no RAVE.
+     * @param earlyStop        the rule for stopping once the move is decided.
+     */
+    public DotsAndBoxesMcts(int iterations, double explorationParam, long timeLimitMillis, int threads, TreeBudget budget,
+                            SelectionPolicy policy, double raveEquivalence, EarlyStop earlyStop) {
+        this(iterations, explorationParam, timeLimitMillis, threads, budget, policy, raveEquivalence, earlyStop, -1);
+    }
+
+    /**
+     * Constructor with truncated rollouts: each rollout plays at most rolloutDepth random moves, and if the game has not
+     * ended by then, its result is the evaluator's probability of a win (so 0 evaluates the selected node directly).
+     *
+     * @param iterations       the maximum number of iterations per search (shared between the threads).
+     * @param explorationParam the exploration constant (ignored if policy is given).
+     * @param timeLimitMillis  the maximum time per search in milliseconds (0 for no limit).
+     * @param threads          the number of search threads.
+     * @param budget           the maximum size of the search tree (shared between the threads).
+     * @param policy           the selection policy, or null for the original UCT search
+     *                         (or for UCB1 with the given exploration constant if raveEquivalence is positive).
+     * @param raveEquivalence  the RAVE equivalence parameter k, or 0 for no RAVE.
+     * @param earlyStop        the rule for stopping once the move is decided.
+     * @param rolloutDepth     the maximum number of moves in a rollout, or a negative number to play to the end.
+     */
+    public DotsAndBoxesMcts(int iterations, double explorationParam, long timeLimitMillis, int threads, TreeBudget budget,
+                            SelectionPolicy policy, double raveEquivalence, EarlyStop earlyStop, int rolloutDepth) {
         this.iterations = iterations;
         this.explorationParam = explorationParam;
         this.useHeuristics = true;
+        this.timeLimitMillis = timeLimitMillis;
+        this.threads = Math.max(1, threads);
+        this.budget = budget;
+        this.policy = policy == null && raveEquivalence > 0 ? new SelectionPolicy.Ucb1(explorationParam) : policy;
+        this.raveEquivalence = Math.max(0, raveEquivalence);
+        this.earlyStop = earlyStop;
+        this.rolloutDepth = rolloutDepth;
         this.difficulty = null;
     }
+
+    /**
+     * Method to play the positions of the board of the given database from the database instead of searching.
+     *
+     * @param endgame the database (or null for none).
+     * @return this engine.
+     */
+    public DotsAndBoxesMcts useEndgame(DotsAndBoxesEndgame endgame) {
+        this.endgame = endgame;
+        return this;
+    }
+
+    /**
+     * Method to play the positions of the given opening book from the book instead of searching.
+     *
+     * @param book the book (or null for none).
+     * @return this engine.
+     */
+    public DotsAndBoxesMcts useBook(DotsAndBoxesBook book) {
+        this.book = book;
+        return this;
+    }
+
+    /**
+     * Method to reward the playouts of a search with a selection policy by the margin as well as the outcome:
+     * the result of a playout is (1 - weight) * its outcome + weight * the final share of the boxes
+     * (see {@link DotsAndBoxesEvaluator#boxShare}), on the same scale as a win (1) or a loss (0).
+     * Nodes which have been proven, but are not terminal, still count their proven outcome.
+     *
+     * @param weight the weight of the margin, from 0 (the outcome only, the default) to 1 (the margin only).
+     * @return this engine.
+     */
+    public DotsAndBoxesMcts useMarginReward(double weight) {
+        if (weight < 0 || weight > 1) throw new IllegalArgumentException("margin weight must be between 0 and 1: " + weight);
+        this.marginWeight = weight;
+        return this;
+    }
+
+    @Override
+    public Optional<SearchStatistics> lastSearch() {
+        return Optional.ofNullable(lastSearch);
+    }
+
+    @Override
     public Move<DotsAndBoxesGame> findBestMove(State<DotsAndBoxesGame> state) {
+        long start = System.nanoTime();
+        lastSearch = SearchStatistics.NONE;
+        DotsAndBoxesEndgame endgame = this.endgame;
+        if (endgame != null && endgame.covers((DotsAndBoxesState) state)) return endgame.bestMove((DotsAndBoxesState) state);
+        DotsAndBoxesBook book = this.book;
+        Move<DotsAndBoxesGame> bookMove = book == null ? null : book.move((DotsAndBoxesState) state);
+        if (bookMove != null) return bookMove;
         if (useHeuristics) {
             Move<DotsAndBoxesGame> move = findBoxCompletingMove(state);
             if (move != null) return move;
@@ -54,22 +309,172 @@ public class DotsAndBoxesMcts {
             }
         }
 
-        Node<DotsAndBoxesGame> rootNode = new DotsAndBoxesNode(state, null);
-        for (int i = 0; i < iterations; i++) {
-            Node<DotsAndBoxesGame> selectedNode = select(rootNode);
+        long deadline = start + timeLimitMillis * 1_000_000;
+        Move<DotsAndBoxesGame> best;
+        if (threads == 1) {
+            Search search = search(state, iterations, deadline, budget);
+            lastSearch = new SearchStatistics(search.iterations, search.nodes, search.bytes(), System.nanoTime() - start, search.saved);
+            Node<DotsAndBoxesGame> bestChild = findBestChild(search.root);
+            best = bestChild == null ? null : ((DotsAndBoxesNode) bestChild).move();
+            release(search);
+        } else {
+            long seed = state.random().nextLong();
+            List<Search> searches = ParallelSearch.run(threads, k -> search(
+                    k == 0 ? state : ((DotsAndBoxesState) state).withRandom(new Random(ParallelSearch.seed(seed, k))),
+                    ParallelSearch.share(iterations, threads, k), deadline, budget.share(threads)));
+            best = findBestChild(searches);
+            searches.forEach(this::release);
+            lastSearch = new SearchStatistics(searches.stream().mapToLong(s -> s.iterations).sum(),
+                    searches.stream().mapToLong(s -> s.nodes).sum(), searches.stream().mapToLong(Search::bytes).sum(),
+                    System.nanoTime() - start, searches.stream().mapToLong(s -> s.saved).sum());
         }
-
-        Node<DotsAndBoxesGame> bestChild = findBestChild(rootNode);
-        if (bestChild != null) {
-            return findMoveToState(state, bestChild.state());
+        if (best != null) {
+            return best;
         }
 
         Iterator<Move<DotsAndBoxesGame>> moves = state.moveIterator(state.player());
         return moves.hasNext() ? moves.next() : null;
     }
 
+    /**
+     * Build a search tree from the given state.
+     *
+     * @param state      the root state.
+     * @param iterations the maximum number of iterations.
+     * @param deadline   the value of System.nanoTime() at which to stop (ignored if there is no time limit).
+     * @param budget     the maximum size of the tree.
+     * @return the Search.
+     */
+    private Search search(State<DotsAndBoxesGame> state, int iterations, long deadline, TreeBudget budget) {
+        NodePool<DotsAndBoxesGame, DotsAndBoxesNode> pool;
+        synchronized (pools) {
+            pool = pools.isEmpty() ? DotsAndBoxesNode.pool(POOL_CAPACITY) : pools.pop();
+        }
+        Search search = new Search(pool, pool.obtain(state, null), budget, raveEquivalence > 0);
+        while (search.iterations < iterations) {
+            if (policy == null) select(search.root, search);
+            else iterate(search);
+            search.iterations++;
+            if (search.solved()) break;
+            if (policy != null && threads == 1 && earlyStop.enabled() && decided(search, iterations - search.iterations)) break;
+            if (timeLimitMillis > 0 && System.nanoTime() >= deadline) break;
+        }
+        if (timeLimitMillis == 0) search.saved = iterations - search.iterations;
+        return search;
+    }
+
+    /**
+     * Method to determine whether the root child with the best mean result (which is the move chosen when there are
+     * no proven children) can no longer be overtaken by any other move.
+     * Every proof starts from a terminal node, which lies as many levels below the root as there are lines left,
+     * and the tree grows by at most one level in each iteration: until it can no longer get there in the remaining
+     * iterations, a proof might still change the move, and only the significance rule applies.
+     */
+    private boolean decided(Search search, long remaining) {
+        Node<DotsAndBoxesGame> root = search.root;
+        boolean unprovable = search.depth + remaining < ((DotsAndBoxesState) root.state()).remainingLines();
+        Node<DotsAndBoxesGame> best = null;
+        for (Node<DotsAndBoxesGame> child : root.children()) {
+            if (((DotsAndBoxesNode) child).proof() != null) return false;
+            if (child.playouts() > 0 && (best == null || child.wins() / child.playouts() > best.wins() / best.playouts())) best = child;
+        }
+        if (best == null) return false;
+        for (Node<DotsAndBoxesGame> child : root.children())
+            if (child != best && !(unprovable ? earlyStop.decided(best.wins(), best.playouts(), child.wins(), child.playouts(), remaining, 2, false) :
+                    earlyStop.significant(best.wins(), best.playouts(), child.wins(), child.playouts(), 2)))
+                return false;
+        return true;
+    }
+
+    /**
+     * Release the tree of a finished search, and its pool.
+     */
+    private void release(Search search) {
+        search.pool.release(search.root);
+        synchronized (pools) {
+            pools.push(search.pool);
+        }
+    }
+
+    /**
+     * A search tree and the counts of the work done to build it.
+     */
+    private static class Search {
+        Search(NodePool<DotsAndBoxesGame, DotsAndBoxesNode> pool, Node<DotsAndBoxesGame> root, TreeBudget budget, boolean rave) {
+            this.pool = pool;
+            this.root = root;
+            this.budget = budget;
+            int size = root.state().game().getSize();
+            this.lines = 2 * size * (size - 1);
+            this.stateBytes = DotsAndBoxesNode.stateBytes(size) + (rave ? DotsAndBoxesNode.amafBytes(size) : 0);
+            this.path = rave ? new DotsAndBoxesNode[lines + 1] : null;
+            this.played = rave ? new int[lines] : null;
+            this.players = rave ? new int[lines] : null;
+        }
+
+        /**
+         * Method to determine whether the given node may be expanded, pruning a quarter of the tree if necessary.
+         *
+         * @param node     the node to be expanded.
+         * @param children the number of nodes to be added.
+         * @return true if the tree may grow by that many nodes (the root may always be expanded).
+         */
+        boolean canGrow(Node<DotsAndBoxesGame> node, int children) {
+            if (node == root || fits(children)) return true;
+            long released = pool.releasedStates();
+            nodes -= pool.prune(root, node, Math.max(children, budget.nodeLimit(DotsAndBoxesNode.NODE_BYTES) / 4));
+            states -= pool.releasedStates() - released;
+            return fits(children);
+        }
+
+        /**
+         * Method to count the children of a node which has just been expanded
+         * (of which only the one reached by the last line on the board, if any, has its state).
+         */
+        void countChildren(Node<DotsAndBoxesGame> node) {
+            nodes += node.children().size();
+            for (Node<DotsAndBoxesGame> child : node.children())
+                if (((DotsAndBoxesNode) child).hasState()) states++;
+        }
+
+        private boolean fits(int children) {
+            return budget.allows(nodes + children, bytes() + children * DotsAndBoxesNode.NODE_BYTES);
+        }
+
+        /**
+         * @return the estimated size of the tree: all the nodes, and the states which have been materialized.
+         */
+        long bytes() {
+            return nodes * DotsAndBoxesNode.NODE_BYTES + states * stateBytes;
+        }
+
+        /**
+         * @return true if the value of the root has been proven.
+         */
+        boolean solved() {
+            return ((DotsAndBoxesNode) root).proof() != null;
+        }
+
+        final NodePool<DotsAndBoxesGame, DotsAndBoxesNode> pool;
+        final Node<DotsAndBoxesGame> root;
+        final TreeBudget budget;
+        final long stateBytes;
+        final int lines;
+        // Scratch space for RAVE: the nodes of the current path, and the lines drawn in the simulation with their players.
+        final DotsAndBoxesNode[] path;
+        final int[] played;
+        final int[] players;
+        int iterations = 0;
+        int saved = 0;
+        long nodes = 1;
+        long states = 1;
+        // The greatest depth below the root which the tree has reached (pruning does not lower it).
+        int depth = 0;
+    }
+
     private Move<DotsAndBoxesGame> findBoxCompletingMove(State<DotsAndBoxesGame> state) {
         DotsAndBoxesState db = (DotsAndBoxesState) state;
+        if (db.boxesWithSides(3) == 0) return null;
         int size = db.game().getSize();
         boolean[][] h = db.getHorizontalLines();
         boolean[][] v = db.getVerticalLines();
@@ -77,12 +482,7 @@ public class DotsAndBoxesMcts {
 
         for (int i = 0; i < size - 1; i++) {
             for (int j = 0; j < size - 1; j++) {
-                int count = 0;
-                if (h[i][j]) count++;
-                if (h[i + 1][j]) count++;
-                if (v[i][j]) count++;
-                if (v[i][j + 1]) count++;
-                if (count == 3) {
+                if (db.sides(i, j) == 3) {
                     if (!h[i][j]) return new DotsAndBoxesMove(i, j, i, j + 1, player);
                     if (!h[i + 1][j]) return new DotsAndBoxesMove(i + 1, j, i + 1, j + 1, player);
                     if (!v[i][j]) return new DotsAndBoxesMove(i, j, i + 1, j, player);
@@ -93,43 +493,257 @@ public class DotsAndBoxesMcts {
         return null;
     }
 
+    /**
+     * Method to find a move which does not offer a box to the opponent (when there is no box to complete):
+     * that is, a line which borders no box with two sides already drawn.
+     */
     private Move<DotsAndBoxesGame> findSafeMove(State<DotsAndBoxesGame> state) {
+        DotsAndBoxesState db = (DotsAndBoxesState) state;
         for (Iterator<Move<DotsAndBoxesGame>> it = state.moveIterator(state.player()); it.hasNext(); ) {
             Move<DotsAndBoxesGame> move = it.next();
-            if (findBoxCompletingMove(state.next(move)) == null) return move;
+            if (db.mostSides((DotsAndBoxesMove) move) < 2) return move;
         }
         return null;
     }
 
-    private Node<DotsAndBoxesGame> select(Node<DotsAndBoxesGame> node) {
+    private Node<DotsAndBoxesGame> select(Node<DotsAndBoxesGame> node, Search search) {
         if (node.isLeaf()) {
             node.explore();
             return node;
         }
-        if (!isFullyExpanded(node)) {
+        if (!((DotsAndBoxesNode) node).hasState()) search.states++;
+        int moves = countMoves(node);
+        if (node.children().size() < moves) {
+            if (!search.canGrow(node, moves)) {
+                rollout(node);
+                return node;
+            }
             node.explore();
+            search.countChildren(node);
             return node;
         }
         DotsAndBoxesNode dbNode = (DotsAndBoxesNode) node;
         Node<DotsAndBoxesGame> bestChild = dbNode.selectBestChild(explorationParam);
-        return bestChild == null ? node : select(bestChild);
+        return bestChild == null ? node : select(bestChild, search);
     }
 
-    private boolean isFullyExpanded(Node<DotsAndBoxesGame> node) {
+    /**
+     * One iteration of the search with a selection policy: descend by the policy to a node which has not been expanded
+     * (expanding it if it has been visited before), play a rollout from there (unless its result is already known),
+     * and propagate any new proof.
+     */
+    private void iterate(Search search) {
+        Node<DotsAndBoxesGame> node = search.root;
+        int depth = 0;
+        while (!node.isLeaf()) {
+            if (node.children().isEmpty()) {
+                if (node != search.root && node.playouts() == 0) break;
+                int moves = countMoves(node);
+                if (!search.canGrow(node, moves)) break;
+                expand((DotsAndBoxesNode) node);
+                search.countChildren(node);
+                search.depth = Math.max(search.depth, depth + 1);
+            }
+            node = selectChild((DotsAndBoxesNode) node);
+            depth++;
+        }
+        if (!((DotsAndBoxesNode) node).hasState()) search.states++;
+        Proof proof = ((DotsAndBoxesNode) node).proof();
+        if (proof != null && node.state().isTerminal()) backPropagate(node, 1, result((DotsAndBoxesState) node.state()));
+        else if (proof != null) {
+            double win = proof == Proof.DRAW ? 0.5 : proof == Proof.WIN ? 1 : 0;
+            backPropagate(node, mover(node), win);
+        } else if (raveEquivalence > 0) raveRollout(search, (DotsAndBoxesNode) node);
+        else rollout(node);
+        prove((DotsAndBoxesNode) node);
+    }
+
+    /**
+     * Method to prove the given node (if it is terminal) and then as many of its ancestors as possible.
+     */
+    private void prove(DotsAndBoxesNode node) {
+        for (DotsAndBoxesNode n = node; n != null; n = (DotsAndBoxesNode) n.getParent()) {
+            if (n.proof() != null) return; // its ancestors were examined when it was proven
+            State<DotsAndBoxesGame> state = n.state();
+            Proof proof;
+            if (state.isTerminal()) proof = Proof.of(state, mover(n));
+            else {
+                // The children are proven for the player to move here, who may also be the player who moved here.
+                proof = Proof.best(n.children(), !n.children().isEmpty(), child -> ((DotsAndBoxesNode) child).proof());
+                if (proof != null && mover(n) != state.player()) proof = proof.opposite();
+            }
+            if (proof == null) return;
+            n.setProof(proof);
+        }
+    }
+
+    /**
+     * @return the player who moved into the given node (for a root, its player to move).
+     */
+    private static int mover(Node<DotsAndBoxesGame> node) {
+        Node<DotsAndBoxesGame> parent = node.getParent();
+        return parent == null ? node.state().player() : parent.state().player();
+    }
+
+    /**
+     * Expand a node, keeping its statistics and leaving its terminal children unvisited
+     * (they are evaluated when they are selected).
+     */
+    private void expand(DotsAndBoxesNode node) {
+        double wins = node.wins();
+        int playouts = node.playouts();
+        node.explore();
+        node.setWins(wins);
+        node.setPlayouts(playouts);
+        if (raveEquivalence > 0) node.trackAmaf(2 * node.state().game().getSize() * (node.state().game().getSize() - 1));
+        double total = 0;
+        for (Node<DotsAndBoxesGame> child : node.children()) {
+            child.setWins(0);
+            child.setPlayouts(0);
+            if (policy.usesPriors()) {
+                DotsAndBoxesNode dbChild = (DotsAndBoxesNode) child;
+                dbChild.setPrior(moveWeight((DotsAndBoxesState) node.state(), (DotsAndBoxesMove) dbChild.move()));
+                total += dbChild.prior();
+            }
+        }
+        if (total > 0)
+            for (Node<DotsAndBoxesGame> child : node.children())
+                ((DotsAndBoxesNode) child).setPrior(((DotsAndBoxesNode) child).prior() / total);
+    }
+
+    private Node<DotsAndBoxesGame> selectChild(DotsAndBoxesNode node) {
+        double parentTerm = policy.parentTerm(node.playouts());
+        Random random = node.state().random();
+        double[] amafWins = node.amafWins();
+        int[] amafVisits = node.amafVisits();
+        int size = node.state().game().getSize();
+        Node<DotsAndBoxesGame> best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Node<DotsAndBoxesGame> child : node.children()) {
+            DotsAndBoxesNode dbChild = (DotsAndBoxesNode) child;
+            if (dbChild.proof() != null) continue;
+            double wins = child.wins();
+            int playouts = child.playouts();
+            if (amafVisits != null && playouts > 0) {
+                int line = ((DotsAndBoxesMove) dbChild.move()).lineIndex(size);
+                if (amafVisits[line] > 0) {
+                    double beta = Math.sqrt(raveEquivalence / (3.0 * playouts + raveEquivalence));
+                    wins = (1 - beta) * wins + beta * playouts * amafWins[line] / amafVisits[line];
+                }
+            }
+            double score = policy.score(wins, playouts, dbChild.prior(), parentTerm, 2, random);
+            if (best == null || score > bestScore) {
+                best = child;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The heuristic weight of a move: 4 if it completes a box, 1 if it draws the third side of a box
+     * (which offers that box to the opponent), and 2 otherwise.
+     */
+    static double moveWeight(DotsAndBoxesState state, DotsAndBoxesMove move) {
+        int most = state.mostSides(move);
+        return most == 3 ? 4 : most == 2 ? 1 : 2;
+    }
+
+    private int countMoves(Node<DotsAndBoxesGame> node) {
+        return ((DotsAndBoxesState) node.state()).remainingLines();
+    }
+
+    /**
+     * Play random moves from the state of the given node to the end of the game (or until rolloutDepth moves have been
+     * played) and add the result (2 for a win, 1 for a draw, 0 for a loss of the player who moved into each node,
+     * or twice the evaluator's probability of a win, blended with the margin if so configured) to the node and its ancestors.
+     */
+    private void rollout(Node<DotsAndBoxesGame> node) {
+        State<DotsAndBoxesGame> state = node.state();
+        for (int k = 0; k != rolloutDepth && !state.isTerminal(); k++) state = state.next(state.chooseMove(state.player()));
+        backPropagate(node, 1, result((DotsAndBoxesState) state));
+    }
+
+    /**
+     * @return the result of a playout which reached the given state, for player 1, between 0 (a loss) and 1 (a win).
+     */
+    private double result(DotsAndBoxesState state) {
+        double win = DotsAndBoxesEvaluator.winProbability(state, 1);
+        return marginWeight == 0 ? win : (1 - marginWeight) * win + marginWeight * DotsAndBoxesEvaluator.boxShare(state, 1);
+    }
+
+    /**
+     * Add the result of a playout, in which the given player won with the given probability, to the node and its ancestors.
+     */
+    private void backPropagate(Node<DotsAndBoxesGame> node, int player, double win) {
+        for (Node<DotsAndBoxesGame> n = node; n != null; n = n.getParent()) {
+            n.setPlayouts(n.playouts() + 1);
+            n.setWins(n.wins() + reward(mover(n), player, win));
+        }
+    }
+
+    /**
+     * @return the result for the given mover of a playout in which the given player won with the given probability.
+     */
+    private static double reward(int mover, int player, double win) {
+        return 2 * (mover == player ? win : 1 - win);
+    }
+
+    /**
+     * Play a rollout from the given node as {@link #rollout(Node)} does, and also add its result to the AMAF statistics
+     * of every node on the path from the root: for each line drawn after that node by the player to move there.
+     */
+    private void raveRollout(Search search, DotsAndBoxesNode node) {
+        int depth = 0;
+        for (Node<DotsAndBoxesGame> n = node; n != null; n = n.getParent()) depth++;
+        DotsAndBoxesNode[] path = search.path;
+        int d = depth;
+        for (Node<DotsAndBoxesGame> n = node; n != null; n = n.getParent()) path[--d] = (DotsAndBoxesNode) n;
+        int size = node.state().game().getSize();
         int count = 0;
-        for (Iterator<Move<DotsAndBoxesGame>> it = node.state().moveIterator(node.state().player()); it.hasNext(); ) {
-            it.next();
-            count++;
+        for (d = 1; d < depth; d++) {
+            search.played[count] = ((DotsAndBoxesMove) path[d].move()).lineIndex(size);
+            search.players[count++] = path[d - 1].state().player();
+        }
+        State<DotsAndBoxesGame> state = node.state();
+        for (int k = 0; k != rolloutDepth && !state.isTerminal(); k++) {
+            Move<DotsAndBoxesGame> move = state.chooseMove(state.player());
+            search.played[count] = ((DotsAndBoxesMove) move).lineIndex(size);
+            search.players[count++] = state.player();
+            state = state.next(move);
+        }
+        double win = result((DotsAndBoxesState) state);
+        for (d = 0; d < depth; d++) {
+            DotsAndBoxesNode n = path[d];
+            int player = d == 0 ? n.state().player() : path[d - 1].state().player();
+            n.setPlayouts(n.playouts() + 1);
+            n.setWins(n.wins() + reward(player, 1, win));
+            double[] amafWins = n.amafWins();
+            if (amafWins == null) continue;
+            int[] amafVisits = n.amafVisits();
+            int mover = n.state().player();
+            double result = reward(mover, 1, win);
+            // Each line is drawn once in a game, so every later line of this player counts as a first move.
+            for (int k = d; k < count; k++)
+                if (search.players[k] == mover) {
+                    amafVisits[search.played[k]]++;
+                    amafWins[search.played[k]] += result;
+                }
         }
-        return node.children().size() >= count;
+        Arrays.fill(path, 0, depth, null);
     }
 
+    /**
+     * Method to choose the root child with the best mean result, where a proven child is worth its proven result
+     * (so a proven win is taken, and a proven loss only if there is nothing else).
+     */
     private Node<DotsAndBoxesGame> findBestChild(Node<DotsAndBoxesGame> node) {
         Node<DotsAndBoxesGame> best = null;
         double bestRate = Double.NEGATIVE_INFINITY;
         for (Node<DotsAndBoxesGame> child : node.children()) {
-            if (child.playouts() == 0) continue;
-            double rate = child.wins() / child.playouts();
+            Proof proof = ((DotsAndBoxesNode) child).proof();
+            if (proof == null && child.playouts() == 0) continue;
+            double rate = proof == null ? child.wins() / child.playouts() : value(proof);
             if (rate > bestRate) {
                 best = child;
                 bestRate = rate;
@@ -138,13 +752,46 @@ public class DotsAndBoxesMcts {
         return best;
     }
 
-    private Move<DotsAndBoxesGame> findMoveToState(State<DotsAndBoxesGame> from, State<DotsAndBoxesGame> to) {
-        for (Iterator<Move<DotsAndBoxesGame>> it = from.moveIterator(from.player()); it.hasNext(); ) {
-            Move<DotsAndBoxesGame> move = it.next();
-            if (from.next(move).equals(to)) return move;
+    /**
+     * Method to choose the best root move over several search trees of the same position,
+     * by merging the statistics (and the proofs) of the children with the same move (without materializing their states).
+     */
+    private Move<DotsAndBoxesGame> findBestChild(List<Search> searches) {
+        Map<Integer, double[]> merged = new HashMap<>();
+        Map<Integer, Proof> proofs = new HashMap<>();
+        Map<Integer, Move<DotsAndBoxesGame>> moves = new HashMap<>();
+        for (Search search : searches) {
+            int size = search.root.state().game().getSize();
+            for (Node<DotsAndBoxesGame> child : search.root.children()) {
+                Move<DotsAndBoxesGame> move = ((DotsAndBoxesNode) child).move();
+                int line = ((DotsAndBoxesMove) move).lineIndex(size);
+                moves.putIfAbsent(line, move);
+                Proof proof = ((DotsAndBoxesNode) child).proof();
+                if (proof != null) proofs.put(line, proof);
+                double[] stats = merged.computeIfAbsent(line, k -> new double[2]);
+                stats[0] += child.wins();
+                stats[1] += child.playouts();
+            }
         }
-        return null;
+        Move<DotsAndBoxesGame> best = null;
+        double bestRate = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<Integer, double[]> entry : merged.entrySet()) {
+            double[] stats = entry.getValue();
+            Proof proof = proofs.get(entry.getKey());
+            if (proof == null && stats[1] == 0) continue;
+            double rate = proof == null ? stats[0] / stats[1] : value(proof);
+            if (rate > bestRate) {
+                best = moves.get(entry.getKey());
+                bestRate = rate;
+            }
+        }
+        return best;
     }
-}
-
 
+    /**
+     * @return the result of a proven node on the scale of the mean results (with a win above any mean and a loss below).
+     */
+    private static double value(Proof proof) {
+        return proof == Proof.WIN ? 3 : proof == Proof.DRAW ? 1 : -1;
+    }
+}
@@ -42,6 +42,17 @@ public class DotsAndBoxesMove implements Move<DotsAndBoxesGame> {
         return row1 == row2;
     }
 
+    /**
+     * Method to number the lines of a board: the horizontal lines row by row, then the vertical lines row by row.
+     *
+     * @param size the number of dots on each side of the board.
+     * @return the index of the line of this move, from 0 to 2 * size * (size - 1) - 1.
+     */
+    public int lineIndex(int size) {
+        if (isHorizontal()) return row1 * (size - 1) + Math.min(col1, col2);
+        return size * (size - 1) + Math.min(row1, row2) * size + col1;
+    }
+
     // Getters for accessing the move coordinates
     public int getRow1() { return row1; }
     public int getCol1() { return col1; }
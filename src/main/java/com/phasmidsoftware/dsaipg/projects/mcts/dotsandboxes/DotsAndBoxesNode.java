@@ -1,21 +1,81 @@
 package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
 
+import com.phasmidsoftware.dsaipg.adt.bqs.UnorderedIterator;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.NodePool;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.PooledNode;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Proof;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Uct;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Node implementation for Dots and Boxes MCTS
+ * <p>
+ * A child node stores only its move: its state is materialized from its parent's state when it is first needed
+ * (most of the children added by {@link #explore()} are never visited). Terminal children are evaluated immediately.
+ * A node which belongs to a {@link NodePool} (see {@link #pool(int)}) takes its children from the same pool.
  */
-public class DotsAndBoxesNode implements Node<DotsAndBoxesGame> {
-    private final State<DotsAndBoxesGame> state;
-    private final Node<DotsAndBoxesGame> parent;
-    private final Collection<Node<DotsAndBoxesGame>> children;
+public class DotsAndBoxesNode implements PooledNode<DotsAndBoxesGame> {
+    private State<DotsAndBoxesGame> state;
+    private Move<DotsAndBoxesGame> move;
+    private Node<DotsAndBoxesGame> parent;
+    private final NodePool<DotsAndBoxesGame, DotsAndBoxesNode> pool;
+    private List<Node<DotsAndBoxesGame>> children = Collections.emptyList();
     private double wins;
     private int playouts;
+    private boolean terminal;
+    private double prior;
+    private double[] amafWins;
+    private int[] amafVisits;
+    private Proof proof;
+
+    /**
+     * The estimated heap size of one node without its state: the node, its move and its slot in its parent's child list.
+     * The estimates assume compressed references, 12-byte object headers, 16-byte array headers and 8-byte alignment.
+     */
+    public static final long NODE_BYTES = align(12 + 9 * 4 + 8 + 4 + 1) + align(12 + 5 * 4) + 4;
+
+    /**
+     * Method to estimate the heap size of a materialized state (with the child list of its node)
+     * on a board with the given number of dots per side.
+     *
+     * @param size the number of dots on each side of the board.
+     * @return the estimated number of bytes of the state with its line, box, score and side-count and chain arrays.
+     */
+    public static long stateBytes(int size) {
+        long list = align(12 + 4 + 4 + 4);
+        long state = align(12 + 9 * 4 + 4);
+        long horizontal = align(16 + 4L * size) + size * align(16 + size - 1);
+        long vertical = align(16 + 4L * (size - 1)) + (size - 1) * align(16 + size);
+        long boxes = align(16 + 4L * (size - 1)) + (size - 1) * align(16 + 4L * (size - 1));
+        long scores = align(16 + 8);
+        long sides = align(16 + (long) (size - 1) * (size - 1)) + align(16 + 5 * 4);
+        long chains = align(12 + 5 * 4 + 7 * 4) + 4 * align(16 + 4L * (size - 1) * (size - 1));
+        return list + state + horizontal + vertical + boxes + scores + sides + chains;
+    }
+
+    /**
+     * Method to estimate the heap size of the AMAF tables of one node (see {@link #trackAmaf(int)}).
+     *
+     * @param size the number of dots on each side of the board.
+     * @return the estimated number of bytes of the two tables.
+     */
+    public static long amafBytes(int size) {
+        long lines = 2L * size * (size - 1);
+        return align(16 + 8 * lines) + align(16 + 4 * lines);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) / 8 * 8;
+    }
 
     /**
      * Create a new node
@@ -23,14 +83,46 @@ public class DotsAndBoxesNode implements Node<DotsAndBoxesGame> {
      * @param parent the parent node (null for root)
      */
     public DotsAndBoxesNode(State<DotsAndBoxesGame> state, Node<DotsAndBoxesGame> parent) {
+        this(null, state, parent);
+    }
+
+    /**
+     * Method to create a pool of nodes.
+     *
+     * @param capacity the maximum number of free nodes to keep.
+     * @return a NodePool whose nodes take their children from it.
+     */
+    public static NodePool<DotsAndBoxesGame, DotsAndBoxesNode> pool(int capacity) {
+        return new NodePool<>(capacity, DotsAndBoxesNode::new);
+    }
+
+    private DotsAndBoxesNode(NodePool<DotsAndBoxesGame, DotsAndBoxesNode> pool, State<DotsAndBoxesGame> state, Node<DotsAndBoxesGame> parent) {
+        this.pool = pool;
+        reset(state, parent);
+    }
+
+    @Override
+    public void reset(State<DotsAndBoxesGame> state, Node<DotsAndBoxesGame> parent) {
         this.state = state;
+        this.move = null;
         this.parent = parent;
-        this.children = new ArrayList<>();
         this.wins = 0;
         this.playouts = 0;
+        this.terminal = false;
+        this.prior = 0;
+        this.amafWins = null;
+        this.amafVisits = null;
+        this.proof = null;
+        children.clear();
+        if (state != null) evaluate();
+    }
 
-        // For terminal nodes, evaluate immediately
-        if (state.isTerminal()) {
+    /**
+     * For terminal nodes, evaluate immediately
+     */
+    private void evaluate() {
+        terminal = state.isTerminal();
+        if (terminal) {
             this.playouts = 1;
             Optional<Integer> winner = state.winner();
 
@@ -44,20 +136,119 @@ public class DotsAndBoxesNode implements Node<DotsAndBoxesGame> {
         }
     }
 
+    @Override
+    public void clear() {
+        reset(null, null);
+    }
+
+    @Override
+    public void collapse() {
+        children.clear();
+    }
+
     @Override
     public boolean isLeaf() {
-        return state.isTerminal();
+        return terminal;
     }
 
     @Override
     public State<DotsAndBoxesGame> state() {
+        if (state == null && move != null) state = parent.state().next(move);
         return state;
     }
 
+    /**
+     * @return the move which leads to this node (null for a root).
+     */
+    public Move<DotsAndBoxesGame> move() {
+        return move;
+    }
+
+    /**
+     * @return the prior probability of this node, given by a heuristic when its parent was expanded (0 if none).
+     */
+    double prior() {
+        return prior;
+    }
+
+    void setPrior(double prior) {
+        this.prior = prior;
+    }
+
+    /**
+     * Method to start keeping all-moves-as-first (AMAF) statistics in this node:
+     * for each line, the number of simulations through this node in which the player to move here drew that line later,
+     * and the sum of that player's results (2 for a win, 1 for a draw) in those simulations.
+     *
+     * @param lines the number of lines of the board (see {@link DotsAndBoxesMove#lineIndex(int)}).
+     */
+    void trackAmaf(int lines) {
+        amafWins = new double[lines];
+        amafVisits = new int[lines];
+    }
+
+    /**
+     * @return the AMAF results of this node, indexed by line (null if they are not kept).
+     */
+    double[] amafWins() {
+        return amafWins;
+    }
+
+    /**
+     * @return the AMAF visit counts of this node, indexed by line (null if they are not kept).
+     */
+    int[] amafVisits() {
+        return amafVisits;
+    }
+
+    /**
+     * @return the proven value of this node for the player who moved into it, or for a root, for its player to move
+     * (null if it has not been proven).
+     */
+    Proof proof() {
+        return proof;
+    }
+
+    void setProof(Proof proof) {
+        this.proof = proof;
+    }
+
+    /**
+     * @return true if the state of this node has been materialized.
+     */
+    @Override
+    public boolean hasState() {
+        return state != null;
+    }
+
+    /**
+     * Method which adds the immediate children of this Node, without materializing their states
+     * (except for the terminal children, which are reached by the last line on the board).
+     */
+    @Override
+    public void explore() {
+        if (isLeaf()) return;
+        if (!children.isEmpty()) throw new RuntimeException("exploration done already for " + this);
+        State<DotsAndBoxesGame> current = state();
+        Collection<Move<DotsAndBoxesGame>> moves = current.moves(current.player());
+        boolean last = moves.size() == 1;
+        for (Iterator<Move<DotsAndBoxesGame>> it = UnorderedIterator.createDeterministic(moves, current.random()); it.hasNext(); ) {
+            Move<DotsAndBoxesGame> next = it.next();
+            DotsAndBoxesNode child = pool == null ? new DotsAndBoxesNode(null, null, this) : pool.obtain(null, this);
+            child.move = next;
+            if (last) {
+                child.state = current.next(next);
+                child.evaluate();
+            }
+            add(child);
+        }
+        backPropagate();
+    }
+
     @Override
     public boolean white() {
         // Player 1 is considered "white" (first player)
-        return state.player() == 1;
+        return state().player() == 1;
     }
 
     @Override
@@ -84,7 +275,11 @@ public class DotsAndBoxesNode implements Node<DotsAndBoxesGame> {
 
     @Override
     public void addChild(State<DotsAndBoxesGame> state) {
-        Node<DotsAndBoxesGame> child = new DotsAndBoxesNode(state, this);
+        add(pool == null ? new DotsAndBoxesNode(state, this) : pool.obtain(state, this));
+    }
+
+    private void add(Node<DotsAndBoxesGame> child) {
+        if (!(children instanceof ArrayList)) children = new ArrayList<>();
         children.add(child);
     }
 
@@ -123,17 +318,19 @@ public class DotsAndBoxesNode implements Node<DotsAndBoxesGame> {
             return null;
         }
 
+        // The parent's exploration term is computed once for all the children.
+        double parentTerm = Uct.parentTerm(explorationParameter, playouts);
         Node<DotsAndBoxesGame> bestChild = null;
         double bestValue = Double.NEGATIVE_INFINITY;
 
-        for (Node<DotsAndBoxesGame> child : children) {
+        for (int i = 0, n = children.size(); i < n; i++) {
+            Node<DotsAndBoxesGame> child = children.get(i);
+            int childPlayouts = child.playouts();
             // Skip nodes with no playouts
-            if (child.playouts() == 0) continue;
+            if (childPlayouts == 0) continue;
 
             // Calculate UCT value: exploitation + exploration
-            double exploitation = child.wins() / child.playouts();
-            double exploration = explorationParameter * Math.sqrt(Math.log(this.playouts) / child.playouts());
-            double uctValue = exploitation + exploration;
+            double uctValue = Uct.value(child.wins(), childPlayouts, parentTerm);
 
             if (uctValue > bestValue) {
                 bestValue = uctValue;
@@ -18,6 +18,16 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
     private final int[][] boxes;
     private final int[] scores;
 
+    // The number of sides drawn for each box (row by row), and the number of boxes with each number of sides (0 to 4)
+    private final byte[] sides;
+    private final int[] boxesBySides;
+
+    // The number of lines drawn
+    private final int drawnLines;
+
+    // The chains and loops formed by the boxes with two or three sides
+    private final DotsAndBoxesChains chains;
+
     // Current player
     private final int currentPlayer;
 
@@ -36,6 +46,10 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
         this.verticalLines = new boolean[size - 1][size];
         this.boxes = new int[size - 1][size - 1];
         this.scores = new int[] {0, 0};
+        this.sides = new byte[(size - 1) * (size - 1)];
+        this.boxesBySides = emptyBoxesBySides(size);
+        this.drawnLines = 0;
+        this.chains = new DotsAndBoxesChains(size - 1);
 
         // First player starts
         this.currentPlayer = game.opener();
@@ -51,6 +65,10 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
         this.verticalLines = new boolean[size - 1][size];
         this.boxes = new int[size - 1][size - 1];
         this.scores = new int[] {0, 0};
+        this.sides = new byte[(size - 1) * (size - 1)];
+        this.boxesBySides = emptyBoxesBySides(size);
+        this.drawnLines = 0;
+        this.chains = new DotsAndBoxesChains(size - 1);
 
         // Use passed-in player
         this.currentPlayer = startingPlayer;
@@ -58,20 +76,51 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
         this.random = new Random();
     }
 
+    /**
+     * Constructor for an initial game state with an explicit random source (for reproducible games)
+     */
+    public DotsAndBoxesState(DotsAndBoxesGame game, int startingPlayer, Random random) {
+        this(game, new boolean[game.getSize()][game.getSize() - 1], new boolean[game.getSize() - 1][game.getSize()],
+                new int[game.getSize() - 1][game.getSize() - 1], new int[] {0, 0},
+                new byte[(game.getSize() - 1) * (game.getSize() - 1)], emptyBoxesBySides(game.getSize()), 0,
+                new DotsAndBoxesChains(game.getSize() - 1), startingPlayer, random);
+    }
+
+    private static int[] emptyBoxesBySides(int size) {
+        int[] result = new int[5];
+        result[0] = (size - 1) * (size - 1);
+        return result;
+    }
+
     /**
      * Constructor for a state after a move
      */
     private DotsAndBoxesState(DotsAndBoxesGame game, boolean[][] horizontalLines, boolean[][] verticalLines,
-                              int[][] boxes, int[] scores, int currentPlayer, Random random) {
+                              int[][] boxes, int[] scores, byte[] sides, int[] boxesBySides, int drawnLines,
+                              DotsAndBoxesChains chains, int currentPlayer, Random random) {
         this.game = game;
         this.horizontalLines = horizontalLines;
         this.verticalLines = verticalLines;
         this.boxes = boxes;
         this.scores = scores;
+        this.sides = sides;
+        this.boxesBySides = boxesBySides;
+        this.drawnLines = drawnLines;
+        this.chains = chains;
         this.currentPlayer = currentPlayer;
         this.random = random;
     }
 
+    /**
+     * Method to copy this state with a different random source (which is passed on to its successors).
+     *
+     * @param random the random source.
+     * @return a DotsAndBoxesState equal to this one.
+     */
+    DotsAndBoxesState withRandom(Random random) {
+        return new DotsAndBoxesState(game, horizontalLines, verticalLines, boxes, scores, sides, boxesBySides, drawnLines, chains, currentPlayer, random);
+    }
+
     @Override
     public DotsAndBoxesGame game() {
         return game;
@@ -79,16 +128,8 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
 
     @Override
     public boolean isTerminal() {
-        // Game is over when all boxes are claimed
-        int size = game.getSize();
-        for (int i = 0; i < size - 1; i++) {
-            for (int j = 0; j < size - 1; j++) {
-                if (boxes[i][j] == 0) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        // Game is over when all boxes are claimed (a box is claimed as soon as its fourth side is drawn)
+        return boxesBySides[4] == sides.length;
     }
 
     @Override
@@ -142,6 +183,71 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
         return validMoves;
     }
 
+    /**
+     * @return the number of lines which have not yet been drawn (the number of moves available).
+     */
+    int remainingLines() {
+        int size = game.getSize();
+        return 2 * size * (size - 1) - drawnLines;
+    }
+
+    /**
+     * @param row the row of a box.
+     * @param col the column of a box.
+     * @return the number of sides of the box which have been drawn.
+     */
+    int sides(int row, int col) {
+        return sides[row * (game.getSize() - 1) + col];
+    }
+
+    /**
+     * @param n a number of sides (0 to 4).
+     * @return the number of boxes which have exactly n sides drawn.
+     */
+    int boxesWithSides(int n) {
+        return boxesBySides[n];
+    }
+
+    /**
+     * @return the chains and loops of this state (which must not be changed).
+     */
+    DotsAndBoxesChains chains() {
+        return chains;
+    }
+
+    /**
+     * @param row the row of a box.
+     * @param col the column of a box.
+     * @return the number of boxes in the chain or loop of the box (0 if the box has fewer than two sides or is claimed).
+     */
+    int chainLength(int row, int col) {
+        return chains.length(sides(row, col), row, col);
+    }
+
+    /**
+     * Method to find the greatest number of sides already drawn of a box which the given line borders:
+     * 3 if drawing the line completes a box, 2 if it offers one to the opponent.
+     *
+     * @param move a move which draws a line not yet drawn.
+     * @return the number of sides (0 to 3).
+     */
+    int mostSides(DotsAndBoxesMove move) {
+        int boxes = game.getSize() - 1;
+        int i = move.getRow1();
+        int j = move.getCol1();
+        int most = 0;
+        if (move.isHorizontal()) {
+            j = Math.min(j, move.getCol2());
+            if (i > 0) most = sides(i - 1, j);
+            if (i < boxes) most = Math.max(most, sides(i, j));
+        } else {
+            i = Math.min(i, move.getRow2());
+            if (j > 0) most = sides(i, j - 1);
+            if (j < boxes) most = Math.max(most, sides(i, j));
+        }
+        return most;
+    }
+
     @Override
     public State<DotsAndBoxesGame> next(Move<DotsAndBoxesGame> move) {
         DotsAndBoxesMove dbMove = (DotsAndBoxesMove) move;
@@ -152,15 +258,19 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
         boolean[][] newVerticalLines = copyArray(verticalLines);
         int[][] newBoxes = copyArray(boxes);
         int[] newScores = Arrays.copyOf(scores, scores.length);
+        byte[] newSides = Arrays.copyOf(sides, sides.length);
+        int[] newBoxesBySides = Arrays.copyOf(boxesBySides, boxesBySides.length);
+        DotsAndBoxesChains newChains = chains.copy();
 
         // Apply the move
-        boolean completedBox = placeLine(dbMove, newHorizontalLines, newVerticalLines, newBoxes, newScores);
+        boolean completedBox = placeLine(dbMove, newHorizontalLines, newVerticalLines, newBoxes, newScores, newSides, newBoxesBySides, newChains);
 
         // Determine next player - if a box was completed, same player goes again
         int nextPlayer = completedBox ? currentPlayer : (currentPlayer == 1 ? 2 : 1);
 
-        // Create and return new state
-        return new DotsAndBoxesState(game, newHorizontalLines, newVerticalLines, newBoxes, newScores, nextPlayer, random);
+        // Create and return new state (with one more line drawn)
+        return new DotsAndBoxesState(game, newHorizontalLines, newVerticalLines, newBoxes, newScores, newSides, newBoxesBySides,
+                drawnLines + 1, newChains, nextPlayer, random);
     }
 
     /**
@@ -186,11 +296,12 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
     }
 
     /**
-     * Place a line on the board and check if it completes any boxes
+     * Place a line on the board, add it to the side counts of the boxes it borders and to the chains,
+     * and check if it completes any boxes
      * @return true if at least one box was completed
      */
     private boolean placeLine(DotsAndBoxesMove move, boolean[][] horizontalLines, boolean[][] verticalLines,
-                              int[][] boxes, int[] scores) {
+                              int[][] boxes, int[] scores, byte[] sides, int[] boxesBySides, DotsAndBoxesChains chains) {
         boolean completedBox = false;
         int size = game.getSize();
 
@@ -201,15 +312,16 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
             horizontalLines[r][c] = true;
 
             // Check if this completes any boxes
-            if (r > 0 && checkBox(r - 1, c, horizontalLines, verticalLines, boxes, move.player())) {
+            if (r > 0 && checkBox(r - 1, c, sides, boxesBySides, boxes, move.player())) {
                 scores[move.player() - 1]++;
                 completedBox = true;
             }
 
-            if (r < size - 1 && checkBox(r, c, horizontalLines, verticalLines, boxes, move.player())) {
+            if (r < size - 1 && checkBox(r, c, sides, boxesBySides, boxes, move.player())) {
                 scores[move.player() - 1]++;
                 completedBox = true;
             }
+            chains.draw(r > 0 ? (r - 1) * (size - 1) + c : -1, r < size - 1 ? r * (size - 1) + c : -1, sides, horizontalLines, verticalLines);
         } else {
             // Place vertical line
             int r = Math.min(move.getRow1(), move.getRow2());
@@ -217,31 +329,33 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
             verticalLines[r][c] = true;
 
             // Check if this completes any boxes
-            if (c > 0 && checkBox(r, c - 1, horizontalLines, verticalLines, boxes, move.player())) {
+            if (c > 0 && checkBox(r, c - 1, sides, boxesBySides, boxes, move.player())) {
                 scores[move.player() - 1]++;
                 completedBox = true;
             }
 
-            if (c < size - 1 && checkBox(r, c, horizontalLines, verticalLines, boxes, move.player())) {
+            if (c < size - 1 && checkBox(r, c, sides, boxesBySides, boxes, move.player())) {
                 scores[move.player() - 1]++;
                 completedBox = true;
             }
+            chains.draw(c > 0 ? r * (size - 1) + c - 1 : -1, c < size - 1 ? r * (size - 1) + c : -1, sides, horizontalLines, verticalLines);
         }
 
         return completedBox;
     }
 
     /**
-     * Check if a box is completed and claim it if it is
+     * Add a side to a box, and claim the box if it is completed
      * @return true if the box was completed
      */
-    private boolean checkBox(int row, int col, boolean[][] horizontalLines, boolean[][] verticalLines,
-                             int[][] boxes, int player) {
+    private boolean checkBox(int row, int col, byte[] sides, int[] boxesBySides, int[][] boxes, int player) {
+        int index = row * boxes.length + col;
+        boxesBySides[sides[index]]--;
+        sides[index]++;
+        boxesBySides[sides[index]]++;
+
         // A box is completed if all four sides have lines
-        if (horizontalLines[row][col] &&               // Top
-                horizontalLines[row + 1][col] &&           // Bottom
-                verticalLines[row][col] &&                 // Left
-                verticalLines[row][col + 1]) {             // Right
+        if (sides[index] == 4) {
 
             // Only claim if not already claimed
             if (boxes[row][col] == 0) {
@@ -293,11 +407,16 @@ public class DotsAndBoxesState implements State<DotsAndBoxesGame> {
                 currentPlayer == that.currentPlayer;
     }
 
+    /**
+     * The lines are hashed as the digits 0 and 1 rather than with {@link Arrays#deepHashCode(Object[])}, since the hash codes of
+     * true and false (1231 and 1237) differ so little that the line sets of a small board share very few hash codes.
+     */
     @Override
     public int hashCode() {
         int result = Objects.hash(game, currentPlayer);
-        result = 31 * result + Arrays.deepHashCode(horizontalLines);
-        result = 31 * result + Arrays.deepHashCode(verticalLines);
+        for (boolean[][] lines : new boolean[][][]{horizontalLines, verticalLines})
+            for (boolean[] row : lines)
+                for (boolean drawn : row) result = 31 * result + (drawn ? 1 : 0);
         result = 31 * result + Arrays.deepHashCode(boxes);
         result = 31 * result + Arrays.hashCode(scores);
         return result;
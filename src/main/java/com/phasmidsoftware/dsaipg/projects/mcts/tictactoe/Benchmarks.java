@@ -1,24 +1,30 @@
 package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
 
+import com.phasmidsoftware.dsaipg.projects.mcts.benchmark.MoveLatencyStats;
+import com.phasmidsoftware.dsaipg.projects.mcts.benchmark.ParallelRunner;
+import com.phasmidsoftware.dsaipg.projects.mcts.benchmark.ResourceMonitor;
+import com.phasmidsoftware.dsaipg.projects.mcts.benchmark.RoundStatistics;
+
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 public class Benchmarks {
 
     //change the number of games
     public static  int GAMES_PER_SETTING = 1000;
+    //games played (but not recorded) before measuring, so that the JIT has compiled the search
+    public static int WARMUP_GAMES = 100;
+    //number of measured rounds of GAMES_PER_SETTING games (raise it to measure the spread between rounds)
+    public static int MEASUREMENT_ROUNDS = 1;
     public static final int[] ITERATION_COUNTS = {100,200,400,800,1600,3200,6400,12800,25600,51200};
     public static final String CSV_FILE = "src/main/java/com/phasmidsoftware/dsaipg/projects/mcts/tictactoe/tictactoe_benchmarking_results.csv";
 
@@ -27,11 +33,11 @@ public class Benchmarks {
     public static void main(String[] args) throws IOException, InterruptedException {
         ThreadPoolExecutor executor = new ThreadPoolExecutor(10, 10, 1, TimeUnit.NANOSECONDS, new LinkedBlockingQueue<>());
         try (FileWriter writer = new FileWriter(CSV_FILE)) {
-            writer.write("Iterations,TotalGames,XWins,OWins,Draws,WinRateX,WinRateO,AvgGameLength,totalExecutionTimeMillis\n");
+            writer.write("Iterations,TotalGames,XWins,OWins,Draws,WinRateX,WinRateO,AvgGameLength,totalExecutionTimeMillis," + MoveLatencyStats.CSV_HEADER + "," + RoundStatistics.CSV_HEADER + "," + ResourceMonitor.CSV_HEADER + "\n");
 
             List<Supplier<String>> simulationSupplierList = new ArrayList<>();
             for (int iterations : ITERATION_COUNTS) {
-                simulationSupplierList.add(() -> runSimulation(iterations, GAMES_PER_SETTING));
+                simulationSupplierList.add(() -> runSimulation(iterations, GAMES_PER_SETTING, WARMUP_GAMES, MEASUREMENT_ROUNDS));
             }
 
             List<String> csv = supplyAllAsync(simulationSupplierList, executor);
@@ -50,59 +56,94 @@ public class Benchmarks {
     }
 
     public static <T> List<T> supplyAllAsync(final List<Supplier<T>> suppliers, final ExecutorService executorService) {
-        List<CompletableFuture<T>> futures = suppliers.stream()
-                .map(supplier -> CompletableFuture.supplyAsync(supplier, executorService))
-                .toList();
-        try {
-            return futures.stream()
-                    .map(CompletableFuture::join)
-                    .collect(Collectors.toList());
-        } catch (CompletionException e) {
-            throw new RuntimeException(e.getCause().getMessage(), e);
-        }
+        return ParallelRunner.supplyAllAsync(suppliers, executorService);
     }
 
     public static String runSimulation(int iterations, int gamesPerSetting) {
-        int xWins = 0, oWins = 0, draws = 0, totalMoves = 0;
+        return runSimulation(iterations, gamesPerSetting, 0, 1);
+    }
 
-        long startTime = System.currentTimeMillis();
+    /**
+     * Run the games for one setting of iterations.
+     *
+     * @param iterations      the number of MCTS iterations per move.
+     * @param gamesPerSetting the number of games in each measured round.
+     * @param warmupGames     the number of games to play (and discard) before measuring.
+     * @param rounds          the number of measured rounds; the outcome columns total over all rounds.
+     * @return a CSV row.
+     */
+    public static String runSimulation(int iterations, int gamesPerSetting, int warmupGames, int rounds) {
+        int xWins = 0, oWins = 0, draws = 0, totalMoves = 0;
+        MoveLatencyStats latency = new MoveLatencyStats(9);
+        RoundStatistics roundMillis = new RoundStatistics();
 
         System.out.println("Running simulation with iterations: " + iterations + " on " + Thread.currentThread().getName());
-        for (int i = 0; i < gamesPerSetting; i++) {
-            TicTacToe game = new TicTacToe();
-            int startingPlayer = (i % 2 == 0) ? TicTacToe.X : TicTacToe.O;
-            TicTacToeNode root = new TicTacToeNode(game.new TicTacToeState(startingPlayer));
-            int moves = 0;
-
-            while (!root.state().isTerminal()) {
-                MCTS mcts = new MCTS(root);
-                mcts.run(iterations);
-                root = mcts.getBestMove();
-                root = new TicTacToeNode(root.state());
-                moves++;
-            }
+        for (int i = 0; i < warmupGames; i++) {
+            playGame(iterations, i, null);
+        }
 
-            Optional<Integer> winner = root.state().winner();
-            if (winner.isEmpty()) {
-                draws++;
-            } else if (winner.get() == TicTacToe.X) {
-                xWins++;
-            } else {
-                oWins++;
+        ResourceMonitor resources = ResourceMonitor.start();
+        long totalExecutionTimeMillis = 0;
+        for (int round = 0; round < rounds; round++) {
+            long startTime = System.currentTimeMillis();
+            for (int i = 0; i < gamesPerSetting; i++) {
+                GameOutcome outcome = playGame(iterations, i, latency);
+                Optional<Integer> winner = outcome.winner();
+                if (winner.isEmpty()) {
+                    draws++;
+                } else if (winner.get() == TicTacToe.X) {
+                    xWins++;
+                } else {
+                    oWins++;
+                }
+
+                totalMoves += outcome.moves();
             }
-
-            totalMoves += moves;
+            long elapsed = System.currentTimeMillis() - startTime;
+            roundMillis.add(elapsed);
+            totalExecutionTimeMillis += elapsed;
         }
+        resources.stop();
 
-        long totalExecutionTimeMillis = System.currentTimeMillis() - startTime;
-        double winRateX = (xWins * 100.0) / gamesPerSetting;
-        double winRateO = (oWins * 100.0) / gamesPerSetting;
-        double avgGameLength = totalMoves * 1.0 / gamesPerSetting;
+        int totalGames = gamesPerSetting * rounds;
+        double winRateX = (xWins * 100.0) / totalGames;
+        double winRateO = (oWins * 100.0) / totalGames;
+        double avgGameLength = totalMoves * 1.0 / totalGames;
 
         System.out.println("Successfully simulation completed of iterations: " + iterations + " on " + Thread.currentThread().getName());
         return String.format(Locale.US,
-                "%d,%d,%d,%d,%d,%.2f,%.2f,%.2f,%d\n",
-                iterations, gamesPerSetting, xWins, oWins, draws,
-                winRateX, winRateO, avgGameLength, totalExecutionTimeMillis);
+                "%d,%d,%d,%d,%d,%.2f,%.2f,%.2f,%d,%s,%s,%s\n",
+                iterations, totalGames, xWins, oWins, draws,
+                winRateX, winRateO, avgGameLength, totalExecutionTimeMillis, latency.toCsv(), roundMillis.toCsv(warmupGames),
+                resources.toCsv((long) iterations * totalMoves));
+    }
+
+    /**
+     * Play one MCTS vs MCTS game.
+     *
+     * @param iterations the number of MCTS iterations per move.
+     * @param gameIndex  the index of the game (which determines the starting player).
+     * @param latency    the latency statistics to record into (or null if this game is not measured).
+     * @return the outcome of the game.
+     */
+    private static GameOutcome playGame(int iterations, int gameIndex, MoveLatencyStats latency) {
+        TicTacToe game = new TicTacToe();
+        int startingPlayer = (gameIndex % 2 == 0) ? TicTacToe.X : TicTacToe.O;
+        TicTacToeNode root = new TicTacToeNode(game.new TicTacToeState(startingPlayer));
+        int moves = 0;
+
+        while (!root.state().isTerminal()) {
+            long moveStart = System.nanoTime();
+            MCTS mcts = new MCTS(root);
+            mcts.run(iterations);
+            root = mcts.getBestMove();
+            if (latency != null) latency.record(moves, System.nanoTime() - moveStart);
+            root = new TicTacToeNode(root.state());
+            moves++;
+        }
+        return new GameOutcome(root.state().winner(), moves);
+    }
+
+    private record GameOutcome(Optional<Integer> winner, int moves) {
     }
-}
\ No newline at end of file
+}
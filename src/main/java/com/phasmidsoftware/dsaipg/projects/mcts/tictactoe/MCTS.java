@@ -1,32 +1,163 @@
 
 package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
 
+import com.phasmidsoftware.dsaipg.projects.mcts.core.EarlyStop;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.NodePool;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Proof;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SelectionPolicy;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.TreeBudget;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Uct;
 
 import java.util.*;
 
+/**
+ * Monte Carlo tree search for TicTacToe.
+ * <p>
+ * The search is also an MCTS-Solver: terminal nodes are proven wins, draws or losses, and the proofs are propagated
+ * up the tree (a node is won if one of its children is won for the player to move, and otherwise, once it has been
+ * fully expanded, it is worth the best of its proven children). Proven children are no longer selected (the search
+ * goes on among their unproven siblings), and the search stops as soon as the root is proven.
+ */
 public class MCTS {
 
     private final Node<TicTacToe> root;
     private final double explorationParameter; // Tunable exploration parameter
+    private final SelectionPolicy policy;
+    private final TreeBudget budget;
+    private final NodePool<TicTacToe, TicTacToeNode> pool;
+    private long nodes = 1;
+    // The greatest depth below the root which the tree has reached (pruning does not lower it).
+    private int depth = 0;
+    private int savedIterations = 0;
 
     public MCTS(Node<TicTacToe> root) {
         this(root, 1.414); // Default to sqrt(2)
     }
 
     public MCTS(Node<TicTacToe> root, double explorationParameter) {
+        this(root, explorationParameter, TreeBudget.defaultBudget());
+    }
+
+    /**
+     * Constructor with a limit on the size of the tree: once it is reached, no more nodes are added
+     * (other than the children of the root) and the playouts start from the existing leaves.
+     *
+     * @param root                 the root of the tree.
+     * @param explorationParameter the UCT exploration constant.
+     * @param budget               the maximum size of the tree.
+     */
+    public MCTS(Node<TicTacToe> root, double explorationParameter, TreeBudget budget) {
+        this(root, explorationParameter, budget, null);
+    }
+
+    /**
+     * Constructor for a tree whose nodes belong to a pool: when the budget is reached, the least-visited subtrees
+     * are pruned to make room before giving up on expansion, and the tree can be released when it is finished with.
+     *
+     * @param root                 the root of the tree (which should have been obtained from the pool).
+     * @param explorationParameter the UCT exploration constant.
+     * @param budget               the maximum size of the tree.
+     * @param pool                 the pool of the nodes (or null).
+     */
+    public MCTS(Node<TicTacToe> root, double explorationParameter, TreeBudget budget, NodePool<TicTacToe, TicTacToeNode> pool) {
+        this(root, new SelectionPolicy.Ucb1(explorationParameter), budget, pool);
+    }
+
+    /**
+     * Constructor with a selection policy. The priors of the children (for PUCT) are uniform.
+     *
+     * @param root   the root of the tree (which should have been obtained from the pool, if there is one).
+     * @param policy the rule for choosing the child to descend to.
+     * @param budget the maximum size of the tree.
+     * @param pool   the pool of the nodes (or null).
+     */
+    public MCTS(Node<TicTacToe> root, SelectionPolicy policy, TreeBudget budget, NodePool<TicTacToe, TicTacToeNode> pool) {
         this.root = root;
-        this.explorationParameter = explorationParameter;
+        this.policy = policy;
+        this.explorationParameter = policy instanceof SelectionPolicy.Ucb1 ucb1 ? ucb1.explorationParameter() : 1.414;
+        this.budget = budget;
+        this.pool = pool;
     }
 
     public Node<TicTacToe> getRoot() {
         return root;
     }
 
+    /**
+     * @return the number of nodes in the tree (including the root).
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the estimated size of the tree in bytes.
+     */
+    public long estimatedBytes() {
+        return nodes * TicTacToeNode.ESTIMATED_BYTES;
+    }
+
+    /**
+     * @return the pool of the nodes (or null).
+     */
+    public NodePool<TicTacToe, TicTacToeNode> pool() {
+        return pool;
+    }
+
+    /**
+     * Release the whole tree to the pool (if any): the tree must not be used afterwards.
+     */
+    public void release() {
+        if (pool != null) pool.release(root);
+        nodes = 0;
+    }
+
     public void run(int iterations) {
-        for (int i = 0; i < iterations; i++) {
+        run(iterations, 0);
+    }
+
+    /**
+     * Run the search for the given number of iterations, or until the time limit expires or the root is proven.
+     *
+     * @param iterations      the maximum number of iterations.
+     * @param timeLimitMillis the maximum time in milliseconds (0 for no limit).
+     * @return the number of iterations actually performed.
+     */
+    public int run(int iterations, long timeLimitMillis) {
+        return run(iterations, timeLimitMillis, EarlyStop.OFF);
+    }
+
+    /**
+     * Run the search for the given number of iterations, or until the time limit expires or the root is proven,
+     * or the most-visited child of the root has been established according to the given rule.
+     *
+     * @param iterations      the maximum number of iterations.
+     * @param timeLimitMillis the maximum time in milliseconds (0 for no limit).
+     * @param stop            the rule for stopping once the move is decided.
+     * @return the number of iterations actually performed.
+     */
+    public int run(int iterations, long timeLimitMillis, EarlyStop stop) {
+        int performed = search(iterations, timeLimitMillis, stop);
+        savedIterations = timeLimitMillis > 0 ? 0 : iterations - performed;
+        return performed;
+    }
+
+    /**
+     * @return the number of iterations which the last run did not need (see {@link #run(int, long, EarlyStop)}).
+     */
+    public int savedIterations() {
+        return savedIterations;
+    }
+
+    private int search(int iterations, long timeLimitMillis, EarlyStop stop) {
+        long deadline = System.nanoTime() + timeLimitMillis * 1_000_000;
+        int i = 0;
+        for (; i < iterations; i++) {
+            if (i > 0 && timeLimitMillis > 0 && System.nanoTime() >= deadline) break;
+
             // 1. Selection + Expansion: Select a promising node to expand
             Node<TicTacToe> selected = select(root);
 
@@ -35,18 +166,96 @@ public class MCTS {
 
             // 3. Backpropagation: Update statistics based on simulation result
             backPropagate(selected, simulatedResult);
+
+            // 4. Proof: propagate the value of a decided node towards the root
+            prove(selected);
+            if (solved()) return i + 1;
+
+            // 5. Early stop: the remaining iterations would not change the move
+            if (stop.enabled() && decided(stop, iterations - i - 1)) return i + 1;
+        }
+        return i;
+    }
+
+    /**
+     * Method to determine whether the most-visited child of the root (which is the move chosen when there are no proven
+     * children) can no longer be overtaken by any other move, including those which have not yet been expanded.
+     * No game ends before its fifth mark, and the tree grows by at most one level in each iteration: until it can no
+     * longer reach such a position in the remaining iterations, a proof might still change the move, and only the
+     * significance rule applies.
+     */
+    private boolean decided(EarlyStop stop, long remaining) {
+        int marks = 9 - Integer.bitCount(((TicTacToe.TicTacToeState) root.state()).position().emptyCells());
+        boolean unprovable = depth + remaining < 5 - marks;
+        Node<TicTacToe> best = null;
+        for (Node<TicTacToe> child : root.children()) {
+            if (proof(child) != null) return false;
+            if (best == null || child.playouts() > best.playouts()) best = child;
         }
+        if (best == null) return false;
+        if (root instanceof TicTacToeNode t && !t.expanded() && !(unprovable && stop.decided(best.wins(), best.playouts(), 0, 0, remaining, 1, true)))
+            return false;
+        for (Node<TicTacToe> child : root.children())
+            if (child != best && !(unprovable ? stop.decided(best.wins(), best.playouts(), child.wins(), child.playouts(), remaining, 1, true) :
+                    stop.significant(best.wins(), best.playouts(), child.wins(), child.playouts(), 1)))
+                return false;
+        return true;
+    }
+
+    /**
+     * @return true if the value of the root has been proven.
+     */
+    public boolean solved() {
+        return proof(root) != null;
+    }
+
+    /**
+     * Method to prove the given node (if it is terminal) and then as many of its ancestors as possible.
+     */
+    void prove(Node<TicTacToe> node) {
+        for (Node<TicTacToe> n = node; n instanceof TicTacToeNode t; n = n.getParent()) {
+            Proof proof = t.proof();
+            if (proof == null) {
+                if (t.state().isTerminal()) proof = Proof.of(t.state(), mover(t));
+                else {
+                    // The children are proven for the player to move here, who is not the player who moved here.
+                    proof = Proof.best(t.children(), t.expanded(), MCTS::proof);
+                    if (proof != null) proof = proof.opposite();
+                }
+                if (proof == null) return;
+                t.setProof(proof);
+            } else return; // its ancestors were examined when it was proven
+        }
+    }
+
+    private static Proof proof(Node<TicTacToe> node) {
+        return node instanceof TicTacToeNode t ? t.proof() : null;
+    }
+
+    /**
+     * @return the player who moved into the given node.
+     */
+    private static int mover(Node<TicTacToe> node) {
+        Node<TicTacToe> parent = node.getParent();
+        if (parent != null) return parent.state().player();
+        return (node.state().player() == TicTacToe.X) ? TicTacToe.O : TicTacToe.X;
     }
 
     Node<TicTacToe> select(Node<TicTacToe> node) {
+        int level = 0;
         // Keep going down the tree until we reach a leaf node
         while (!node.isLeaf()) {
+            // A proven node need not be searched any further
+            if (proof(node) != null) return node;
+
             // If all children have been explored, choose best child according to UCT
             if (node.children() != null && !node.children().isEmpty()) {
                 node = getBestChild(node);
+                level++;
             } else {
                 // If node has unexplored moves, expand one of them
-                node.explore();
+                expand(node);
+                depth = Math.max(depth, level + 1);
                 return node;
             }
         }
@@ -57,7 +266,8 @@ public class MCTS {
         }
 
         // Otherwise, expand one child and return it
-        node.explore();
+        expand(node);
+        depth = Math.max(depth, level + 1);
         if (!node.children().isEmpty()) {
             return node.children().iterator().next();
         }
@@ -65,10 +275,43 @@ public class MCTS {
         return node;
     }
 
+    private void expand(Node<TicTacToe> node) {
+        if (node != root && !fits()) {
+            if (pool == null) return;
+            nodes -= pool.prune(root, node, Math.max(1, budget.nodeLimit(TicTacToeNode.ESTIMATED_BYTES) / 4));
+            if (!fits()) return;
+        }
+        int before = node.children().size();
+        node.explore();
+        nodes += node.children().size() - before;
+    }
+
+    private boolean fits() {
+        return budget.allows(nodes + 1, (nodes + 1) * TicTacToeNode.ESTIMATED_BYTES);
+    }
+
+    /**
+     * Method to choose the child with the highest score according to the selection policy
+     * (for UCT, the first unvisited child, if there is one), other than the children which have been proven.
+     * The parent's term of the score is computed once for all the children.
+     */
     Node<TicTacToe> getBestChild(Node<TicTacToe> node) {
-        return node.children().stream()
-                .max(Comparator.comparingDouble(this::uct))
-                .orElseThrow(() -> new IllegalStateException("No best child found"));
+        double parentTerm = policy.parentTerm(node.playouts());
+        double prior = 1.0 / node.children().size();
+        Random random = node.state().random();
+        Node<TicTacToe> best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node<TicTacToe> child : node.children()) {
+            if (proof(child) != null) continue;
+            double value = policy.score(child.wins(), child.playouts(), prior, parentTerm, 1, random);
+            if (value == Double.POSITIVE_INFINITY) return child; // Ensure unvisited nodes are explored first
+            if (best == null || value > bestValue) {
+                best = child;
+                bestValue = value;
+            }
+        }
+        if (best == null) throw new IllegalStateException("No best child found");
+        return best;
     }
 
     double uct(Node<TicTacToe> node) {
@@ -77,80 +320,120 @@ public class MCTS {
         }
 
         Node<TicTacToe> parent = node.getParent();
-        double parentVisits = (parent != null) ? parent.playouts() : 1;
-
-        // Exploitation term: win rate from this node's perspective
-        double exploitation = node.wins() / node.playouts();
-
-        // Exploration term: encourages visiting less-explored nodes
-        double exploration = explorationParameter * Math.sqrt(Math.log(parentVisits) / node.playouts());
+        int parentVisits = (parent != null) ? parent.playouts() : 1;
 
-        return exploitation + exploration;
+        // Exploitation term: win rate from this node's perspective, plus the exploration term,
+        // which encourages visiting less-explored nodes
+        return Uct.value(node.wins(), node.playouts(), Uct.parentTerm(explorationParameter, parentVisits));
     }
 
     int simulate(Node<TicTacToe> node) {
-        // Make a copy of the state to simulate on
-        State<TicTacToe> state = node.state();
-
-        // Continue until we reach a terminal state
-        while (!state.isTerminal()) {
-            List<Move<TicTacToe>> possibleMoves = new ArrayList<>(state.moves(state.player()));
-
-            // Use strategic simulation instead of purely random
-            Move<TicTacToe> selectedMove = findStrategicMove(state, possibleMoves);
-            state = state.next(selectedMove);
+        // The result of a proven node is known
+        Proof proof = proof(node);
+        if (proof != null) {
+            int mover = mover(node);
+            return proof == Proof.DRAW ? -1 : proof == Proof.WIN ? mover : (mover == TicTacToe.X ? TicTacToe.O : TicTacToe.X);
         }
 
-        // Return the winner (or -1 for a draw)
-        return state.winner().orElse(-1);
+        // Play out on bit masks of the cells (see Position#cells), so that a playout allocates nothing.
+        State<TicTacToe> state = node.state();
+        if (state.isTerminal()) return state.winner().orElse(-1);
+        Position position = ((TicTacToe.TicTacToeState) state).position();
+        int player = state.player();
+        int own = position.cells(player);
+        int other = position.cells(opponent(player));
+        Random random = state.random();
+        while (true) {
+            int empty = ALL_CELLS & ~(own | other);
+            int cell = strategicCell(own, other, empty, random);
+            own |= 1 << cell;
+            if (winningCells(own & ~(1 << cell), 1 << cell) != 0) return player;
+            if (empty == 1 << cell) return -1;
+            int swap = own;
+            own = other;
+            other = swap;
+            player = opponent(player);
+        }
     }
 
+    /**
+     * Method to choose the move of the playout policy: a winning move, else a move which leaves the opponent a winning
+     * reply (the first such move, as the original policy chose it), else the center, else a corner, else a random move.
+     *
+     * @param state the state.
+     * @param moves the moves of the state's player, in the order of {@link State#moves(int)}.
+     * @return the chosen move.
+     */
     Move<TicTacToe> findStrategicMove(State<TicTacToe> state, List<Move<TicTacToe>> moves) {
-        int currentPlayer = state.player();
-        int opponent = (currentPlayer == TicTacToe.X) ? TicTacToe.O : TicTacToe.X;
+        Position position = ((TicTacToe.TicTacToeState) state).position();
+        int cell = strategicCell(position.cells(state.player()), position.cells(opponent(state.player())), position.emptyCells(), state.random());
+        for (Move<TicTacToe> move : moves)
+            if (((TicTacToe.TicTacToeMove) move).cell() == cell) return move;
+        throw new IllegalStateException("No move to cell " + cell);
+    }
 
+    /**
+     * Method to choose the cell of the playout policy, where the moves are taken in order of their cells.
+     *
+     * @param own    the cells of the player to move.
+     * @param other  the cells of the opponent.
+     * @param empty  the empty cells (at least one).
+     * @param random the random source (used only for the fallback move).
+     * @return the index of the chosen cell.
+     */
+    static int strategicCell(int own, int other, int empty, Random random) {
         // 1. Win immediately
-        for (Move<TicTacToe> move : moves) {
-            State<TicTacToe> nextState = state.next(move);
-            if (nextState.isTerminal() && nextState.winner().orElse(-1) == currentPlayer)
-                return move;
-        }
-
-// 2. Block opponent win
-        for (Move<TicTacToe> move : moves) {
-            State<TicTacToe> nextState = state.next(move);
-            if (nextState.isTerminal()) continue; // no block needed
-
-            for (Move<TicTacToe> opponentMove : nextState.moves(opponent)) {
-                State<TicTacToe> opponentState = nextState.next(opponentMove);
-                if (opponentState.isTerminal() && opponentState.winner().orElse(-1) == opponent)
-                    return move;
-            }
+        int wins = winningCells(own, empty);
+        if (wins != 0) return Integer.numberOfTrailingZeros(wins);
+
+        // 2. The first move after which the opponent can still win
+        int threats = winningCells(other, empty);
+        if (threats != 0) {
+            int candidates = Integer.bitCount(threats) > 1 ? empty : empty & ~threats;
+            if (candidates != 0) return Integer.numberOfTrailingZeros(candidates);
         }
 
         // 3. Prefer center
-        for (Move<TicTacToe> move : moves) {
-            int[] coords = ((TicTacToe.TicTacToeMove) move).move();
-            if (coords[0] == 1 && coords[1] == 1) {
-                return move;
-            }
-        }
+        if ((empty & CENTER) != 0) return Integer.numberOfTrailingZeros(CENTER);
 
         // 4. Prefer corners
-        for (Move<TicTacToe> move : moves) {
-            int[] coords = ((TicTacToe.TicTacToeMove) move).move();
-            if ((coords[0] == 0 && coords[1] == 0) || // top-left
-                    (coords[0] == 0 && coords[1] == 2) || // top-right
-                    (coords[0] == 2 && coords[1] == 0) || // bottom-left
-                    (coords[0] == 2 && coords[1] == 2)) { // bottom-right
-                return move;
-            }
-        }
+        if ((empty & CORNERS) != 0) return Integer.numberOfTrailingZeros(empty & CORNERS);
 
         // 5. Random move as fallback
-        return moves.get(state.random().nextInt(moves.size()));
+        int remaining = empty;
+        for (int k = random.nextInt(Integer.bitCount(empty)); k > 0; k--) remaining &= remaining - 1;
+        return Integer.numberOfTrailingZeros(remaining);
+    }
+
+    /**
+     * @param cells the cells of a player.
+     * @param empty the empty cells.
+     * @return the empty cells which would complete a line of the player.
+     */
+    static int winningCells(int cells, int empty) {
+        int result = 0;
+        for (int line : LINES)
+            if (Integer.bitCount(cells & line) == 2) result |= empty & line;
+        return result;
+    }
+
+    private static int opponent(int player) {
+        return player == TicTacToe.X ? TicTacToe.O : TicTacToe.X;
     }
 
+    /**
+     * The rows, columns and diagonals of the board as bit masks of cells.
+     */
+    private static final int[] LINES = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100
+    };
+
+    private static final int ALL_CELLS = 0b111_111_111;
+    private static final int CENTER = 0b000_010_000;
+    private static final int CORNERS = 0b101_000_101;
+
     void backPropagate(Node<TicTacToe> node, int result) {
         // Traverse up the tree, updating statistics for each node
         while (node != null) {
@@ -188,10 +471,23 @@ public class MCTS {
     }
 
     public TicTacToeNode getBestMove() {
-        // For the actual move selection, we prioritize the child with most visits
-        // This is more robust than using UCT for the final decision
-        return (TicTacToeNode) root.children().stream()
-                .max(Comparator.comparing(Node::playouts))
-                .orElseThrow(() -> new IllegalStateException("No children to choose from. Run MCTS first."));
+        Node<TicTacToe> best = null;
+        Node<TicTacToe> draw = null;
+        Node<TicTacToe> loss = null;
+        for (Node<TicTacToe> child : root.children()) {
+            Proof proof = proof(child);
+            // A proven win is taken
+            if (proof == Proof.WIN) return (TicTacToeNode) child;
+            if (proof == Proof.DRAW) draw = child;
+            else if (proof == Proof.LOSS) loss = child;
+            // For the actual move selection, we prioritize the child with most visits
+            // This is more robust than using UCT for the final decision
+            else if (best == null || child.playouts() > best.playouts()) best = child;
+        }
+        // A proven draw is preferred to a move which is doing worse than a draw, and a proven loss is the last resort
+        if (draw != null && (best == null || best.wins() < 0.5 * best.playouts())) best = draw;
+        if (best == null) best = loss;
+        if (best == null) throw new IllegalStateException("No children to choose from. Run MCTS first.");
+        return (TicTacToeNode) best;
     }
 }
\ No newline at end of file
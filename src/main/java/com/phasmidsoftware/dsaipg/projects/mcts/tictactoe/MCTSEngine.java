@@ -0,0 +1,228 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.EarlyStop;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Engine;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.NodePool;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.ParallelSearch;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Proof;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SearchStatistics;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SelectionPolicy;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.TreeBudget;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * An Engine for TicTacToe which runs a fresh MCTS from the given state for each move.
+ * The child to descend to is chosen by a {@link SelectionPolicy} (UCT by default).
+ * <p>
+ * With more than one search thread, each thread runs its own MCTS (with its own random source) for its share of the
+ * iterations, and the move is chosen by the playouts of the root children summed over all the trees
+ * (but a move which any of the trees has proven to win is taken, and moves proven to lose are avoided).
+ * <p>
+ * The nodes are taken from {@link NodePool}s which belong to this engine, and each tree is released to its pool
+ * when the move has been chosen, so that a long-lived engine reuses the same nodes for all of its searches.
+ */
+public class MCTSEngine implements Engine<TicTacToe> {
+
+    /**
+     * Constructor.
+     *
+     * @param iterations           the maximum number of iterations per move.
+     * @param explorationParameter the UCT exploration constant.
+     * @param timeLimitMillis      the maximum time per move in milliseconds (0 for no limit).
+     */
+    public MCTSEngine(int iterations, double explorationParameter, long timeLimitMillis) {
+        this(iterations, explorationParameter, timeLimitMillis, 1);
+    }
+
+    /**
+     * Constructor for a root-parallel search.
+     *
+     * @param iterations           the maximum number of iterations per move (shared between the threads).
+     * @param explorationParameter the UCT exploration constant.
+     * @param timeLimitMillis      the maximum time per move in milliseconds (0 for no limit).
+     * @param threads              the number of search threads.
+     */
+    public MCTSEngine(int iterations, double explorationParameter, long timeLimitMillis, int threads) {
+        this(iterations, explorationParameter, timeLimitMillis, threads, TreeBudget.defaultBudget());
+    }
+
+    /**
+     * Constructor with a limit on the size of the search trees.
+     *
+     * @param iterations           the maximum number of iterations per move (shared between the threads).
+     * @param explorationParameter the UCT exploration constant.
+     * @param timeLimitMillis      the maximum time per move in milliseconds (0 for no limit).
+     * @param threads              the number of search threads.
+     * @param budget               the maximum size of the search trees (shared between the threads).
+     */
+    public MCTSEngine(int iterations, double explorationParameter, long timeLimitMillis, int threads, TreeBudget budget) {
+        this(iterations, new SelectionPolicy.Ucb1(explorationParameter), timeLimitMillis, threads, budget);
+    }
+
+    /**
+     * Constructor with a selection policy.
+     *
+     * @param iterations      the maximum number of iterations per move (shared between the threads).
+     * @param policy          the rule for choosing the child to descend to (see {@link SelectionPolicy#of}).
+     * @param timeLimitMillis the maximum time per move in milliseconds (0 for no limit).
+     * @param threads         the number of search threads.
+     * @param budget          the maximum size of the search trees (shared between the threads).
+     */
+    public MCTSEngine(int iterations, SelectionPolicy policy, long timeLimitMillis, int threads, TreeBudget budget) {
+        this(iterations, policy, timeLimitMillis, threads, budget, EarlyStop.EXACT);
+    }
+
+    /**
+     * Constructor with a rule for stopping a search early (by default, {@link EarlyStop#EXACT}),
+     * which applies to a search with one thread: each tree of a root-parallel search spends its whole share.
+     *
+     * @param iterations      the maximum number of iterations per move (shared between the threads).
+     * @param policy          the rule for choosing the child to descend to (see {@link SelectionPolicy#of}).
+     * @param timeLimitMillis the maximum time per move in milliseconds (0 for no limit).
+     * @param threads         the number of search threads.
+     * @param budget          the maximum size of the search trees (shared between the threads).
+     * @param earlyStop       the rule for stopping once the move is decided.
+     */
+    public MCTSEngine(int iterations, SelectionPolicy policy, long timeLimitMillis, int threads, TreeBudget budget, EarlyStop earlyStop) {
+        this.iterations = iterations;
+        this.policy = policy;
+        this.timeLimitMillis = timeLimitMillis;
+        this.threads = Math.max(1, threads);
+        this.budget = budget;
+        this.earlyStop = earlyStop;
+    }
+
+    /**
+     * Constructor with the default exploration constant and no time limit.
+     *
+     * @param iterations the number of iterations per move.
+     */
+    public MCTSEngine(int iterations) {
+        this(iterations, 1.414, 0);
+    }
+
+    @Override
+    public Optional<SearchStatistics> lastSearch() {
+        return Optional.ofNullable(lastSearch);
+    }
+
+    @Override
+    public Move<TicTacToe> findBestMove(State<TicTacToe> state) {
+        if (state.isTerminal()) return null;
+        long start = System.nanoTime();
+        Position target;
+        if (threads == 1) {
+            MCTS mcts = search(state, budget);
+            int done = mcts.run(iterations, timeLimitMillis, earlyStop);
+            lastSearch = new SearchStatistics(done, mcts.nodes(), mcts.estimatedBytes(), System.nanoTime() - start, mcts.savedIterations());
+            target = ((TicTacToe.TicTacToeState) mcts.getBestMove().state()).position();
+            release(mcts);
+        } else {
+            Position position = ((TicTacToe.TicTacToeState) state).position();
+            long seed = state.random().nextLong();
+            int[] done = new int[threads];
+            TreeBudget share = budget.share(threads);
+            List<MCTS> searches = ParallelSearch.run(threads, k -> {
+                State<TicTacToe> root = k == 0 ? state : new TicTacToe(new Random(ParallelSearch.seed(seed, k))).new TicTacToeState(position);
+                MCTS mcts = search(root, share);
+                done[k] = mcts.run(ParallelSearch.share(iterations, threads, k), timeLimitMillis);
+                return mcts;
+            });
+            Map<Position, double[]> merged = new HashMap<>();
+            Map<Position, Proof> proofs = new HashMap<>();
+            long nodes = 0;
+            long bytes = 0;
+            for (MCTS mcts : searches) {
+                nodes += mcts.nodes();
+                bytes += mcts.estimatedBytes();
+                for (Node<TicTacToe> child : mcts.getRoot().children()) {
+                    Position next = ((TicTacToe.TicTacToeState) child.state()).position();
+                    double[] stats = merged.computeIfAbsent(next, k -> new double[2]);
+                    stats[0] += child.wins();
+                    stats[1] += child.playouts();
+                    if (((TicTacToeNode) child).proof() != null) proofs.put(next, ((TicTacToeNode) child).proof());
+                }
+                release(mcts);
+            }
+            long saved = searches.stream().mapToLong(MCTS::savedIterations).sum();
+            lastSearch = new SearchStatistics(Arrays.stream(done).sum(), nodes, bytes, System.nanoTime() - start, saved);
+            target = choose(merged, proofs);
+        }
+        for (Move<TicTacToe> move : state.moves(state.player()))
+            if (((TicTacToe.TicTacToeState) state.next(move)).position().equals(target)) return move;
+        throw new IllegalStateException("MCTSEngine: no move leads to the chosen state");
+    }
+
+    /**
+     * Method to choose a move from the merged statistics of the root children of several trees, as
+     * {@link MCTS#getBestMove()} does: a move proven to win in any tree is taken; otherwise the move with the most
+     * playouts, unless a proven draw is better than its mean result; and a proven loss only if there is nothing else.
+     *
+     * @param merged the summed wins and playouts of each position after a move.
+     * @param proofs the proofs of the positions which have been proven in any tree.
+     * @return the chosen position.
+     */
+    private static Position choose(Map<Position, double[]> merged, Map<Position, Proof> proofs) {
+        Position best = null;
+        Position draw = null;
+        Position loss = null;
+        for (Map.Entry<Position, double[]> entry : merged.entrySet()) {
+            Proof proof = proofs.get(entry.getKey());
+            if (proof == Proof.WIN) return entry.getKey();
+            if (proof == Proof.DRAW) draw = entry.getKey();
+            else if (proof == Proof.LOSS) loss = entry.getKey();
+            else if (best == null || entry.getValue()[1] > merged.get(best)[1]) best = entry.getKey();
+        }
+        if (draw != null && (best == null || merged.get(best)[0] < 0.5 * merged.get(best)[1])) best = draw;
+        if (best == null) best = loss;
+        if (best == null) throw new IllegalStateException("MCTSEngine: no children to choose from");
+        return best;
+    }
+
+    /**
+     * Create a search of the given state, whose nodes come from one of the pools.
+     */
+    private MCTS search(State<TicTacToe> state, TreeBudget budget) {
+        NodePool<TicTacToe, TicTacToeNode> pool;
+        synchronized (pools) {
+            pool = pools.isEmpty() ? TicTacToeNode.pool(POOL_CAPACITY) : pools.pop();
+        }
+        return new MCTS(pool.obtain(state, null), policy, budget, pool);
+    }
+
+    /**
+     * Release the tree of a finished search, and its pool.
+     */
+    private void release(MCTS mcts) {
+        NodePool<TicTacToe, TicTacToeNode> pool = mcts.pool();
+        mcts.release();
+        synchronized (pools) {
+            pools.push(pool);
+        }
+    }
+
+    /**
+     * The maximum number of free nodes kept by each pool.
+     */
+    static final int POOL_CAPACITY = 1 << 14;
+
+    private final int iterations;
+    private final SelectionPolicy policy;
+    private final EarlyStop earlyStop;
+    private final long timeLimitMillis;
+    private final int threads;
+    private final TreeBudget budget;
+    private volatile SearchStatistics lastSearch;
+    private final Deque<NodePool<TicTacToe, TicTacToeNode>> pools = new ArrayDeque<>();
+}
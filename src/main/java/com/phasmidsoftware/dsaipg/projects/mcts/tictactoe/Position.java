@@ -197,6 +197,29 @@ public class Position {
         return count == 9;
     }
 
+    /**
+     * @return a bit mask of the empty cells, where bit 3i+j is set if the cell in row i and column j is empty.
+     */
+    int emptyCells() {
+        int result = 0;
+        for (int i = 0; i < gridSize; i++)
+            for (int j = 0; j < gridSize; j++)
+                if (grid[i][j] < 0) result |= 1 << (gridSize * i + j);
+        return result;
+    }
+
+    /**
+     * @param player the player (0: O, 1: X).
+     * @return a bit mask of the cells of the given player, where bit 3i+j is set if the cell in row i and column j is theirs.
+     */
+    int cells(int player) {
+        int result = 0;
+        for (int i = 0; i < gridSize; i++)
+            for (int j = 0; j < gridSize; j++)
+                if (grid[i][j] == player) result |= 1 << (gridSize * i + j);
+        return result;
+    }
+
     /**
      * Method to render this Position in a pleasing manner.
      *
@@ -96,6 +96,16 @@ public class TicTacToe implements Game<TicTacToe> {
         return new TicTacToeState();
     }
 
+    /**
+     * Get a starting state for this game in which the given player moves first.
+     *
+     * @param startingPlayer the player (X or O) who makes the first move.
+     * @return a State of TicTacToe.
+     */
+    public State<TicTacToe> start(int startingPlayer) {
+        return new TicTacToeState(startingPlayer);
+    }
+
     /**
      * Primary constructor.
      *
@@ -155,6 +165,13 @@ public class TicTacToe implements Game<TicTacToe> {
             return new int[]{i, j};
         }
 
+        /**
+         * @return the cell of this move as a bit index (see {@link Position#emptyCells()}).
+         */
+        int cell() {
+            return 3 * i + j;
+        }
+
         private final int player;
         private final int i;
         private final int j;
@@ -256,6 +273,18 @@ public class TicTacToe implements Game<TicTacToe> {
                     "\n}";
         }
 
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TicTacToeState that)) return false;
+            return position.equals(that.position) && player() == that.player();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * position.hashCode() + player();
+        }
+
         public TicTacToeState(Position position) {
             this.position = position;
         }
@@ -1,22 +1,40 @@
 
 package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
 
-import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.NodePool;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.PooledNode;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Proof;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
 
-public class TicTacToeNode implements Node<TicTacToe> {
+/**
+ * Node implementation for TicTacToe MCTS, which expands one (random) unexplored move at a time.
+ * <p>
+ * A child node stores only the cell of its move: its state is materialized from its parent's state when it is first
+ * needed, and its unexplored moves are kept as a bit mask of cells.
+ * A node which belongs to a {@link NodePool} (see {@link #pool(int)}) takes its children from the same pool.
+ */
+public class TicTacToeNode implements PooledNode<TicTacToe> {
 
-    private final State<TicTacToe> state;
-    private final ArrayList<Node<TicTacToe>> children;
-    private final Node<TicTacToe> parent;
+    /**
+     * The estimated heap size of one node (with its slot in its parent's list of children) once its state
+     * has been materialized.
+     */
+    public static final long ESTIMATED_BYTES = 272;
+
+    private State<TicTacToe> state;
+    private ArrayList<Node<TicTacToe>> children;
+    private Node<TicTacToe> parent;
+    private final NodePool<TicTacToe, TicTacToeNode> pool;
     private double wins;
     private int playouts;
-    private List<Move<TicTacToe>> unexploredMoves;
+    private int cell = -1;
+    private int unexplored = UNKNOWN;
+    private Proof proof;
 
     /**
      * Constructor for creating a root node
@@ -29,18 +47,44 @@ public class TicTacToeNode implements Node<TicTacToe> {
      * Constructor for creating a child node with a reference to its parent
      */
     public TicTacToeNode(State<TicTacToe> state, Node<TicTacToe> parent) {
+        this(null, state, parent);
+    }
+
+    /**
+     * Method to create a pool of nodes.
+     *
+     * @param capacity the maximum number of free nodes to keep.
+     * @return a NodePool whose nodes take their children from it.
+     */
+    public static NodePool<TicTacToe, TicTacToeNode> pool(int capacity) {
+        return new NodePool<>(capacity, TicTacToeNode::new);
+    }
+
+    private TicTacToeNode(NodePool<TicTacToe, TicTacToeNode> pool, State<TicTacToe> state, Node<TicTacToe> parent) {
+        this.pool = pool;
+        reset(state, parent);
+    }
+
+    @Override
+    public void reset(State<TicTacToe> state, Node<TicTacToe> parent) {
         this.state = state;
         this.parent = parent;
-        this.children = new ArrayList<>();
+        this.cell = -1;
         this.wins = 0;
         this.playouts = 0;
+        this.proof = null;
+        collapse();
+    }
 
-        // Initialize unexplored moves if the state is not terminal
-        if (!state.isTerminal()) {
-            this.unexploredMoves = new ArrayList<>(state.moves(state.player()));
-        } else {
-            this.unexploredMoves = new ArrayList<>();
-        }
+    @Override
+    public void clear() {
+        reset(null, null);
+    }
+
+    @Override
+    public void collapse() {
+        if (children != null) children.clear();
+        unexplored = UNKNOWN;
     }
 
     /**
@@ -48,44 +92,89 @@ public class TicTacToeNode implements Node<TicTacToe> {
      */
     @Override
     public boolean isLeaf() {
-        return state.isTerminal() || !unexploredMoves.isEmpty();
+        return state().isTerminal() || unexplored() != 0;
     }
 
     /**
-     * @return the State of the Game G that this Node represents.
+     * @return the State of the Game G that this Node represents (materializing it if necessary).
      */
     @Override
     public State<TicTacToe> state() {
+        if (state == null && cell >= 0) {
+            State<TicTacToe> from = parent.state();
+            state = from.next(new TicTacToe.TicTacToeMove(from.player(), cell / 3, cell % 3));
+        }
         return state;
     }
 
+    @Override
+    public boolean hasState() {
+        return state != null;
+    }
+
     /**
      * Explore this node by selecting and expanding an unexplored move
      */
     @Override
     public void explore() {
-        if (!unexploredMoves.isEmpty()) {
-            // Select a random unexplored move
-            int index = state.random().nextInt(unexploredMoves.size());
-            Move<TicTacToe> move = unexploredMoves.remove(index);
-
-            // Create a new state by applying the move
-            State<TicTacToe> childState = state.next(move);
-
-            // Create a new child node
-            TicTacToeNode childNode = new TicTacToeNode(childState, this);
+        int moves = unexplored();
+        if (moves != 0) {
+            // Select a random unexplored move (in the order of the cells)
+            int index = state().random().nextInt(Integer.bitCount(moves));
+            int move = moves;
+            for (int k = 0; k < index; k++) move &= move - 1;
+            int chosen = Integer.numberOfTrailingZeros(move);
+            unexplored = moves & ~(1 << chosen);
+
+            // Create a new child node, whose state will be materialized when it is needed
+            TicTacToeNode childNode = pool == null ? new TicTacToeNode(null, null, this) : pool.obtain(null, this);
+            childNode.cell = chosen;
 
             // Add the child node to children
-            children.add(childNode);
+            add(childNode);
         }
     }
 
+    /**
+     * @return the cells of the unexplored moves, as a bit mask (see {@link Position#emptyCells()}).
+     */
+    private int unexplored() {
+        if (unexplored == UNKNOWN) {
+            State<TicTacToe> current = state();
+            unexplored = current.isTerminal() ? 0 : ((TicTacToe.TicTacToeState) current).position().emptyCells();
+        }
+        return unexplored;
+    }
+
+    /**
+     * @return true if this node has a child for every move of its state (and so is not terminal).
+     */
+    boolean expanded() {
+        return !state().isTerminal() && unexplored() == 0;
+    }
+
+    /**
+     * @return the proven value of this node for the player who moved into it (null if it has not been proven).
+     */
+    Proof proof() {
+        return proof;
+    }
+
+    void setProof(Proof proof) {
+        this.proof = proof;
+    }
+
+    private void add(Node<TicTacToe> child) {
+        if (children == null) children = new ArrayList<>();
+        children.add(child);
+    }
+
     /**
      * @return the children of this Node.
      */
     @Override
     public Collection<Node<TicTacToe>> children() {
-        return children;
+        return children == null ? Collections.emptyList() : children;
     }
 
     /**
@@ -94,7 +183,7 @@ public class TicTacToeNode implements Node<TicTacToe> {
      * @return true if this node represents a move by the opening player.
      */
     public boolean white() {
-        return state.player() == state.game().opener();
+        return state().player() == state().game().opener();
     }
 
     /**
@@ -140,12 +229,14 @@ public class TicTacToeNode implements Node<TicTacToe> {
     public void backPropagate() {
         playouts = 0;
         wins = 0;
-        for (Node<TicTacToe> child : children) {
+        for (Node<TicTacToe> child : children()) {
             wins += child.wins();
             playouts += child.playouts();
         }
     }
     public void addChild(State<TicTacToe> state) {
-        children.add(new TicTacToeNode(state));
+        add(new TicTacToeNode(state));
     }
-}
\ No newline at end of file
+
+    private static final int UNKNOWN = -1;
+}
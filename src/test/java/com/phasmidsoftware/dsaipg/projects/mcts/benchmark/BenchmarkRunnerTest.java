@@ -0,0 +1,118 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BenchmarkRunnerTest {
+
+    @Test
+    public void testDefaultOptions() {
+        BenchmarkRunner.Options options = BenchmarkRunner.Options.parse(new String[]{});
+        assertEquals(List.of("dots"), options.games());
+        assertEquals(List.of(5), options.boardSizes());
+        assertEquals(List.of(1000), options.iterations());
+        assertEquals(Path.of("target/benchmarks"), options.outputDirectory());
+        assertEquals(1, options.experiments().size());
+    }
+
+    @Test
+    public void testHelp() {
+        assertNull(BenchmarkRunner.Options.parse(new String[]{"-h"}));
+    }
+
+    @Test
+    public void testMatrix() {
+        BenchmarkRunner.Options options = BenchmarkRunner.Options.parse(new String[]{
+                "-g", "tictactoe,dots", "-b", "3,4", "-i", "10,20", "-c", "1.0,1.414", "-s", "1,2,3"});
+        List<Experiment> experiments = options.experiments();
+        // TicTacToe has a fixed board, so it only gets one board size.
+        assertEquals(2 * 2 * 3 + 2 * 2 * 2 * 3, experiments.size());
+        assertEquals(12, experiments.stream().filter(e -> e.game().equals("tictactoe")).count());
+    }
+
+    @Test
+    public void testTimeBudgetMakesIterationsUnlimited() {
+        BenchmarkRunner.Options options = BenchmarkRunner.Options.parse(new String[]{"-t", "5"});
+        assertEquals(List.of(Integer.MAX_VALUE), options.iterations());
+        assertEquals(List.of(5L), options.timeBudgets());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEngine() {
+        BenchmarkRunner.Options.parse(new String[]{"-e", "nonesuch"}).experiments();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownGame() {
+        BenchmarkRunner.Options.parse(new String[]{"-g", "chess"}).experiments();
+    }
+
+    @Test
+    public void testRunExperiment() {
+        Experiment experiment = new Experiment("tictactoe", 3, "mcts", 20, 0, 1.414, 2, 1, 42, 5, 2, 2);
+        String[] columns = BenchmarkRunner.runExperiment(experiment).trim().split(",");
+        assertEquals(BenchmarkRunner.CSV_HEADER.split(",").length, columns.length);
+        assertEquals("10", columns[9]);
+        assertEquals(10, Integer.parseInt(columns[10]) + Integer.parseInt(columns[11]) + Integer.parseInt(columns[12]));
+    }
+
+    @Test
+    public void testParallelSearchLeavesResourceColumnsBlank() {
+        // With two search threads, half of the search would run on threads which the ResourceMonitor cannot see.
+        Experiment experiment = new Experiment("tictactoe", 3, "mcts", 20, 0, 1.414, 1, 2, 42, 2, 0, 1);
+        String[] columns = BenchmarkRunner.runExperiment(experiment).trim().split(",", -1);
+        List<String> header = List.of(BenchmarkRunner.CSV_HEADER.split(","));
+        assertEquals(header.size(), columns.length);
+        for (String column : ResourceMonitor.CSV_HEADER.split(","))
+            assertEquals(column, "", columns[header.indexOf(column)]);
+        assertNotEquals("", columns[header.indexOf("TimeMillis")]);
+    }
+
+    @Test
+    public void testGameSeedsDiffer() {
+        Experiment experiment = new Experiment("dots", 3, "mcts", 10, 0, 1.414, 1, 1, 0, 1, 0, 1);
+        assertNotEquals(experiment.gameSeed(0), experiment.gameSeed(1));
+        assertNotEquals(experiment.gameSeed(1), new Experiment("dots", 3, "mcts", 10, 0, 1.414, 1, 1, 1, 1, 0, 1).gameSeed(0));
+    }
+
+    @Test
+    public void testRunWritesToOutputDirectory() throws Exception {
+        Path directory = Files.createTempDirectory("benchmarks");
+        BenchmarkRunner.Options options = BenchmarkRunner.Options.parse(new String[]{
+                "-g", "dots", "-b", "3", "-e", "mcts,easy", "-i", "10", "-n", "2", "-w", "0", "-p", "2", "-o", directory.toString()});
+        Path path = BenchmarkRunner.run(options);
+        assertEquals(directory.resolve(BenchmarkRunner.RESULTS_FILE), path);
+        List<String> lines = Files.readAllLines(path);
+        assertEquals(3, lines.size());
+        assertEquals(BenchmarkRunner.CSV_HEADER, lines.get(0));
+        assertTrue(lines.get(1).startsWith("dots,3,mcts,10,"));
+        assertTrue(lines.get(2).startsWith("dots,3,easy,10,"));
+    }
+
+    @Test
+    public void testRunResumesFromGameLog() throws Exception {
+        Path directory = Files.createTempDirectory("benchmarks");
+        String[] args = {"-g", "tictactoe", "-i", "10", "-n", "4", "-w", "0", "-o", directory.toString()};
+        Experiment experiment = BenchmarkRunner.Options.parse(args).experiments().get(0);
+        // Pretend that an earlier run was interrupted after two games, both of which P2 won in one move.
+        try (GameLog log = GameLog.open(directory.resolve(BenchmarkRunner.LOG_FILE), 1)) {
+            log.append(new GameLog.Entry(experiment.toCsv(), 0, 2, 1, 1000, new long[]{1000}));
+            log.append(new GameLog.Entry(experiment.toCsv(), 1, 2, 1, 1000, new long[]{1000}));
+        }
+        String[] columns = Files.readAllLines(BenchmarkRunner.run(BenchmarkRunner.Options.parse(args))).get(1).split(",", -1);
+        assertEquals("4", columns[9]);
+        assertTrue(Integer.parseInt(columns[11]) >= 2);
+        assertEquals(4, Files.readAllLines(directory.resolve(BenchmarkRunner.LOG_FILE)).size());
+        // The time, round and resource columns would only cover the two games played now, so they are blank.
+        List<String> header = List.of(BenchmarkRunner.CSV_HEADER.split(","));
+        assertEquals(header.size(), columns.length);
+        for (String column : List.of("TimeMillis", "MeanRoundMillis", "StdDevRoundMillis", "AllocatedBytesPerIteration", "PeakHeapMB"))
+            assertEquals(column, "", columns[header.indexOf(column)]);
+        assertEquals("1", columns[header.indexOf("Rounds")]);
+    }
+}
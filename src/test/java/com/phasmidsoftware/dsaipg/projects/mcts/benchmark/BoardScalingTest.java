@@ -0,0 +1,45 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BoardScalingTest {
+
+    @Test
+    public void testDefaultOptions() {
+        BoardScaling.Options options = BoardScaling.Options.parse(new String[]{});
+        assertEquals(List.of(3, 4, 5, 6, 7, 8, 9, 10), options.boardSizes());
+        assertEquals("mcts", options.engine());
+        assertEquals(1000, options.iterations());
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        Path directory = Files.createTempDirectory("scaling");
+        BoardScaling.Options options = BoardScaling.Options.parse(new String[]{
+                "-b", "3,4,6", "-i", "50", "-P", "3", "-w", "0", "-o", directory.toString()});
+        List<String> rows = BoardScaling.run(options);
+        assertEquals(3, rows.size());
+        String[] small = rows.get(0).trim().split(",");
+        String[] large = rows.get(2).trim().split(",");
+        assertEquals(BoardScaling.CSV_HEADER.split(",").length, small.length);
+        assertEquals("3", small[1]);
+        assertEquals("6", large[1]);
+        assertEquals("3", large[5]);
+        // Nodes per search grow with the branching factor.
+        assertTrue(Double.parseDouble(large[7]) > Double.parseDouble(small[7]));
+        List<String> lines = Files.readAllLines(directory.resolve(BoardScaling.RESULTS_FILE));
+        assertEquals(BoardScaling.CSV_HEADER, lines.get(0));
+        assertEquals(4, lines.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEngine() throws Exception {
+        BoardScaling.run(BoardScaling.Options.parse(new String[]{"-e", "nonesuch", "-b", "3"}));
+    }
+}
@@ -0,0 +1,61 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesEndgame;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesEvaluator;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesState;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConvergenceTest {
+
+    @Test
+    public void testDefaultOptions() {
+        Convergence.Options options = Convergence.Options.parse(new String[]{});
+        assertEquals(4, options.boardSize());
+        assertEquals(List.of("mcts-puct", "mcts-margin", "mcts-blend"), options.engines());
+        assertEquals(List.of(100, 300, 1000, 3000), options.iterations());
+    }
+
+    @Test
+    public void testPositionsAreQuiet() {
+        Convergence.Options options = Convergence.Options.parse(new String[]{"-l", "10", "-P", "20"});
+        List<DotsAndBoxesState> positions = Convergence.positions(DotsAndBoxesBenchmarkGame.INSTANCE, options);
+        assertEquals(20, positions.size());
+        for (DotsAndBoxesState state : positions) {
+            assertFalse(state.isTerminal());
+            if (DotsAndBoxesEvaluator.structure(state).capturable() > 0)
+                assertTrue(state.next(state.chooseMove(state.player())).isTerminal());
+        }
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        Path directory = Files.createTempDirectory("convergence");
+        Convergence.Options options = Convergence.Options.parse(new String[]{
+                "-b", "3", "-e", "mcts-puct,mcts-margin", "-i", "50,2000", "-l", "8", "-P", "10",
+                "-d", directory.toString(), "-o", directory.toString()});
+        List<String> rows = Convergence.run(options);
+        assertTrue(Files.exists(DotsAndBoxesEndgame.path(directory, 3)));
+        assertEquals(4, rows.size());
+        for (String row : rows) {
+            String[] columns = row.trim().split(",");
+            assertEquals(Convergence.CSV_HEADER.split(",").length, columns.length);
+            double perfect = Double.parseDouble(columns[6]);
+            assertTrue(perfect >= 0 && perfect <= 1);
+            assertTrue(Double.parseDouble(columns[7]) >= 0);
+        }
+        List<String> lines = Files.readAllLines(directory.resolve(Convergence.RESULTS_FILE));
+        assertEquals(Convergence.CSV_HEADER, lines.get(0));
+        assertEquals(5, lines.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsolvedBoard() throws Exception {
+        Convergence.run(Convergence.Options.parse(new String[]{"-b", "5"}));
+    }
+}
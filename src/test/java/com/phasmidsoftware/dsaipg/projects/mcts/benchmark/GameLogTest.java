@@ -0,0 +1,90 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GameLogTest {
+
+    @Test
+    public void testAppendAndSummarize() throws Exception {
+        GameLog log = GameLog.inMemory();
+        log.append(new GameLog.Entry("a", 0, 1, 3, 3000, new long[]{1000, 1000, 1000}));
+        log.append(new GameLog.Entry("a", 1, 2, 2, 2000, new long[]{1000, 1000}));
+        log.append(new GameLog.Entry("a", 2, 0, 4, 4000, new long[]{1000, 1000, 1000, 1000}));
+        log.append(new GameLog.Entry("b", 0, 1, 1, 1000, new long[]{1000}));
+        // A game which is already in the log is ignored.
+        log.append(new GameLog.Entry("a", 0, 2, 9, 9000, new long[0]));
+
+        assertEquals(3, log.completed("a"));
+        assertTrue(log.isComplete("a", 2));
+        assertFalse(log.isComplete("b", 2));
+        GameLog.Summary summary = log.summarize("a", 0, 2, 9);
+        assertEquals(2, summary.games());
+        assertEquals(1, summary.p1Wins);
+        assertEquals(1, summary.p2Wins);
+        assertEquals(0, summary.draws);
+        assertEquals(5, summary.moves);
+        assertEquals(5000, summary.nanos);
+        assertEquals(5, summary.latency.overall().count());
+    }
+
+    @Test
+    public void testReopenResumes() throws Exception {
+        Path path = Files.createTempDirectory("gamelog").resolve("games.log");
+        try (GameLog log = GameLog.open(path, 2)) {
+            log.append(new GameLog.Entry("x,y", 0, 1, 2, 500, new long[]{200, 300}));
+            log.append(new GameLog.Entry("x,y", 1, 0, 0, 100, new long[0]));
+        }
+        try (GameLog log = GameLog.open(path, 2)) {
+            assertEquals(2, log.completed("x,y"));
+            GameLog.Summary summary = log.summarize("x,y", 0, 10, 2);
+            assertEquals(1, summary.p1Wins);
+            assertEquals(1, summary.draws);
+            assertEquals(300, summary.latency.overall().max());
+            log.append(new GameLog.Entry("x,y", 2, 2, 1, 50, new long[]{50}));
+        }
+        List<String> lines = Files.readAllLines(path);
+        assertEquals(3, lines.size());
+    }
+
+    @Test
+    public void testTornLastLineIsDiscarded() throws Exception {
+        Path path = Files.createTempDirectory("gamelog").resolve("games.log");
+        try (GameLog log = GameLog.open(path, 1)) {
+            log.append(new GameLog.Entry("s", 0, 1, 1, 10, new long[]{10}));
+        }
+        Files.write(path, "s\t1\t2\t".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (GameLog log = GameLog.open(path, 1)) {
+            assertEquals(1, log.completed("s"));
+            assertFalse(log.isComplete("s", 1));
+            log.append(new GameLog.Entry("s", 1, 2, 1, 10, new long[]{10}));
+        }
+        try (GameLog log = GameLog.open(path, 1)) {
+            assertEquals(2, log.completed("s"));
+            assertEquals(1, log.summarize("s", 0, 2, 1).p2Wins);
+        }
+    }
+
+    @Test
+    public void testCorruptLineIsSkipped() throws Exception {
+        Path path = Files.createTempDirectory("gamelog").resolve("games.log");
+        Files.write(path, "s\t0\t1\t1\t10\t10\ns\tone\t2\n\ns\t2\t2\t1\t10\t10\n".getBytes(StandardCharsets.UTF_8));
+        try (GameLog log = GameLog.open(path, 1)) {
+            assertEquals(1, log.skipped());
+            assertEquals(2, log.completed("s"));
+            assertFalse(log.isComplete("s", 1));
+            log.append(new GameLog.Entry("s", 1, 2, 1, 10, new long[]{10}));
+        }
+        try (GameLog log = GameLog.open(path, 1)) {
+            assertEquals(3, log.completed("s"));
+            assertEquals(2, log.summarize("s", 0, 3, 1).p2Wins);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.max());
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) histogram.record(i);
+        assertEquals(100, histogram.count());
+        assertEquals(50, histogram.percentile(50));
+        assertEquals(90, histogram.percentile(90));
+        assertEquals(99, histogram.percentile(99));
+        assertEquals(100, histogram.max());
+        assertEquals(1, histogram.min());
+    }
+
+    @Test
+    public void testLargeValuesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) histogram.record(i * 1_000_000L);
+        assertEquals(500_000_000L, histogram.percentile(50), 500_000_000L / 64.0);
+        assertEquals(990_000_000L, histogram.percentile(99), 990_000_000L / 64.0);
+        assertEquals(1_000_000_000L, histogram.max());
+        assertEquals(1_000_000_000L, histogram.percentile(100));
+    }
+
+    @Test
+    public void testBucketsAreContiguous() {
+        for (long v = 0; v < 100_000; v++) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(LatencyHistogram.highestEquivalentValue(index) >= v);
+            if (index > 0) assertTrue(LatencyHistogram.highestEquivalentValue(index - 1) < v);
+        }
+    }
+
+    @Test
+    public void testAdd() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(20);
+        b.record(30);
+        a.add(b);
+        assertEquals(3, a.count());
+        assertEquals(30, a.max());
+        assertEquals(10, a.min());
+        assertEquals(20, a.percentile(50));
+    }
+
+    @Test
+    public void testPhases() {
+        assertEquals(MoveLatencyStats.Phase.OPENING, MoveLatencyStats.Phase.of(0, 9));
+        assertEquals(MoveLatencyStats.Phase.OPENING, MoveLatencyStats.Phase.of(2, 9));
+        assertEquals(MoveLatencyStats.Phase.MIDDLEGAME, MoveLatencyStats.Phase.of(3, 9));
+        assertEquals(MoveLatencyStats.Phase.ENDGAME, MoveLatencyStats.Phase.of(8, 9));
+        assertEquals(MoveLatencyStats.Phase.ENDGAME, MoveLatencyStats.Phase.of(20, 9));
+    }
+
+    @Test
+    public void testMoveLatencyStatsCsv() {
+        MoveLatencyStats stats = new MoveLatencyStats(9);
+        for (int i = 0; i < 9; i++) stats.record(i, (i + 1) * 1000L);
+        String[] columns = stats.toCsv().split(",");
+        assertEquals(MoveLatencyStats.CSV_HEADER.split(",").length, columns.length);
+        assertEquals("9", columns[3]);
+        assertEquals("3", columns[7]);
+        assertEquals(3, stats.phase(MoveLatencyStats.Phase.ENDGAME).count());
+    }
+}
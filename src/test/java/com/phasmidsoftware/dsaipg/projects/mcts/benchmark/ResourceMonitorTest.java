@@ -0,0 +1,56 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResourceMonitorTest {
+
+    @Test
+    public void testAllocationIsCounted() {
+        ResourceMonitor monitor = ResourceMonitor.start();
+        long[][] garbage = new long[64][];
+        for (int i = 0; i < garbage.length; i++) garbage[i] = new long[1024];
+        long allocated = monitor.stop().allocatedBytes();
+        assertNotNull(garbage[63]);
+        if (allocated >= 0) assertTrue("allocated " + allocated, allocated >= 64 * 1024 * 8);
+    }
+
+    @Test
+    public void testStopFreezesValues() {
+        ResourceMonitor monitor = ResourceMonitor.start().stop();
+        long allocated = monitor.allocatedBytes();
+        byte[] garbage = new byte[1 << 20];
+        assertEquals(1 << 20, garbage.length);
+        assertEquals(allocated, monitor.allocatedBytes());
+        assertTrue(monitor.gcCount() >= 0);
+        assertTrue(monitor.gcMillis() >= 0);
+        assertTrue(monitor.peakHeapBytes() > 0);
+    }
+
+    @Test
+    public void testOverlappingMonitorsKeepTheirPeaks() throws InterruptedException {
+        ResourceMonitor first = ResourceMonitor.start();
+        long[] garbage = new long[1 << 22];
+        Thread.sleep(5 * ResourceMonitor.SAMPLE_MILLIS);
+        long peak = first.peakHeapBytes();
+        assertTrue("peak " + peak, peak >= garbage.length * 8L);
+        garbage = null;
+        System.gc();
+        // Starting (and stopping) another monitor does not lower the peak of one which is still running.
+        ResourceMonitor second = ResourceMonitor.start().stop();
+        assertTrue(second.peakHeapBytes() > 0);
+        assertNull(garbage);
+        assertTrue(first.peakHeapBytes() >= peak);
+        assertTrue(first.stop().peakHeapBytes() >= peak);
+    }
+
+    @Test
+    public void testToCsv() {
+        ResourceMonitor monitor = ResourceMonitor.start().stop();
+        String[] columns = monitor.toCsv(100).split(",");
+        assertEquals(ResourceMonitor.CSV_HEADER.split(",").length, columns.length);
+        assertTrue(Long.parseLong(columns[0]) >= -1);
+        assertTrue(Double.parseDouble(columns[4]) > 0);
+    }
+}
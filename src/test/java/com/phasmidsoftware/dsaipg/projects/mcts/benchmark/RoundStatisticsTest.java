@@ -0,0 +1,48 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RoundStatisticsTest {
+
+    @Test
+    public void testEmpty() {
+        RoundStatistics statistics = new RoundStatistics();
+        assertEquals(0, statistics.count());
+        assertEquals(0.0, statistics.mean(), 0.0);
+        assertEquals(0.0, statistics.stdDev(), 0.0);
+    }
+
+    @Test
+    public void testSingleRound() {
+        RoundStatistics statistics = new RoundStatistics();
+        statistics.add(42);
+        assertEquals(42.0, statistics.mean(), 1E-9);
+        assertEquals(0.0, statistics.stdDev(), 0.0);
+    }
+
+    @Test
+    public void testMeanAndStdDev() {
+        RoundStatistics statistics = new RoundStatistics();
+        for (double x : new double[]{2, 4, 4, 4, 5, 5, 7, 9}) statistics.add(x);
+        assertEquals(8, statistics.count());
+        assertEquals(5.0, statistics.mean(), 1E-9);
+        assertEquals(Math.sqrt(32.0 / 7), statistics.stdDev(), 1E-9);
+    }
+
+    @Test
+    public void testToCsv() {
+        RoundStatistics statistics = new RoundStatistics();
+        statistics.add(100);
+        statistics.add(200);
+        assertEquals("10,2,150.00,70.71", statistics.toCsv(10));
+    }
+
+    @Test
+    public void testBlankCsv() {
+        String csv = RoundStatistics.blankCsv(10, 3);
+        assertEquals("10,3,,", csv);
+        assertEquals(RoundStatistics.CSV_HEADER.split(",").length, csv.split(",", -1).length);
+    }
+}
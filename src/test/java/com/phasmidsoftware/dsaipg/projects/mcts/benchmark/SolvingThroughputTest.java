@@ -0,0 +1,49 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SolvingThroughputTest {
+
+    @Test
+    public void testDefaultOptions() {
+        SolvingThroughput.Options options = SolvingThroughput.Options.parse(new String[]{});
+        assertEquals("dots", options.game());
+        assertEquals(List.of(3, 4), options.boardSizes());
+        assertEquals(List.of(8, 12, 16), options.movesLeft());
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        Path directory = Files.createTempDirectory("solving");
+        SolvingThroughput.Options options = SolvingThroughput.Options.parse(new String[]{
+                "-g", "tictactoe", "-l", "9,3", "-P", "4", "-o", directory.toString()});
+        List<String> rows = SolvingThroughput.run(options);
+        assertEquals(2, rows.size());
+        String[] start = rows.get(0).trim().split(",");
+        assertEquals(SolvingThroughput.CSV_HEADER.split(",").length, start.length);
+        // TicTacToe is a draw: no player can force a win from the start.
+        assertEquals("4", start[4]);
+        assertEquals("0", start[5]);
+        assertEquals("4", start[6]);
+        assertEquals("0", start[7]);
+        List<String> lines = Files.readAllLines(directory.resolve(SolvingThroughput.RESULTS_FILE));
+        assertEquals(SolvingThroughput.CSV_HEADER, lines.get(0));
+        assertEquals(3, lines.size());
+    }
+
+    @Test
+    public void testNodeBudget() throws Exception {
+        Path directory = Files.createTempDirectory("solving");
+        List<String> rows = SolvingThroughput.run(SolvingThroughput.Options.parse(new String[]{
+                "-b", "6", "-l", "60", "-n", "50", "-P", "2", "-o", directory.toString()}));
+        String[] row = rows.get(0).trim().split(",");
+        assertEquals("2", row[7]);
+        assertEquals(50.0, Double.parseDouble(row[8]), 0);
+    }
+}
@@ -0,0 +1,49 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesGame;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ThreadScalingTest {
+
+    @Test
+    public void testDefaultThreadCounts() {
+        List<Integer> counts = ThreadScaling.Options.parse(new String[]{}).threadCounts();
+        assertEquals(1, (int) counts.get(0));
+        assertEquals(Runtime.getRuntime().availableProcessors(), (int) counts.get(counts.size() - 1));
+    }
+
+    @Test
+    public void testPositionsAreReproducible() {
+        List<State<DotsAndBoxesGame>> first = ThreadScaling.positions(DotsAndBoxesBenchmarkGame.INSTANCE, 4, 6, 7);
+        List<State<DotsAndBoxesGame>> second = ThreadScaling.positions(DotsAndBoxesBenchmarkGame.INSTANCE, 4, 6, 7);
+        assertEquals(6, first.size());
+        assertEquals(first, second);
+        for (State<DotsAndBoxesGame> state : first) assertFalse(state.isTerminal());
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        Path directory = Files.createTempDirectory("scaling");
+        ThreadScaling.Options options = ThreadScaling.Options.parse(new String[]{
+                "-g", "tictactoe,dots", "-b", "3", "-T", "1,2", "-i", "100", "-P", "4", "-r", "1", "-n", "2", "-o", directory.toString()});
+        List<String> rows = ThreadScaling.run(options);
+        assertEquals(4, rows.size());
+        String[] single = rows.get(0).trim().split(",");
+        assertEquals(ThreadScaling.CSV_HEADER.split(",").length, single.length);
+        assertEquals("1", single[3]);
+        assertEquals(1.0, Double.parseDouble(single[10]), 1e-9);
+        String[] dual = rows.get(1).trim().split(",");
+        assertEquals("2", dual[3]);
+        assertEquals("2", dual[12]);
+        List<String> lines = Files.readAllLines(directory.resolve(ThreadScaling.RESULTS_FILE));
+        assertEquals(ThreadScaling.CSV_HEADER, lines.get(0));
+        assertEquals(5, lines.size());
+    }
+}
@@ -0,0 +1,91 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.benchmark;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TournamentTest {
+
+    @Test
+    public void testEloFromScore() {
+        assertEquals(0.0, Elo.fromScore(0.5), 1e-9);
+        assertEquals(190.85, Elo.fromScore(0.75), 0.01);
+        assertEquals(-190.85, Elo.fromScore(0.25), 0.01);
+        assertEquals(Elo.MAX_ELO, Elo.fromScore(1.0), 1e-9);
+        assertEquals(0.75, Elo.expectedScore(Elo.fromScore(0.75)), 1e-9);
+    }
+
+    @Test
+    public void testEloEstimate() {
+        Elo.Estimate estimate = Elo.estimate(60, 20, 20);
+        assertEquals(0.7, estimate.score(), 1e-9);
+        assertTrue(estimate.low() < estimate.elo());
+        assertTrue(estimate.elo() < estimate.high());
+        assertTrue(estimate.low() > 0);
+        Elo.Estimate wider = Elo.estimate(6, 2, 2);
+        assertTrue(wider.high() - wider.low() > estimate.high() - estimate.low());
+    }
+
+    @Test
+    public void testSprtDecides() {
+        Sprt sprt = new Sprt(0, 50, 0.05, 0.05);
+        assertEquals(Sprt.Decision.CONTINUE, sprt.decide(0, 0, 0));
+        assertEquals(Sprt.Decision.CONTINUE, sprt.decide(3, 2, 2));
+        assertEquals(Sprt.Decision.H1, sprt.decide(150, 50, 50));
+        assertEquals(Sprt.Decision.H0, sprt.decide(50, 50, 150));
+        assertEquals(Sprt.Decision.H0, sprt.decide(0, 400, 0));
+        assertTrue(sprt.lowerBound() < 0 && sprt.upperBound() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSprtRejectsBadBounds() {
+        new Sprt(50, 0, 0.05, 0.05);
+    }
+
+    @Test
+    public void testEntrantParse() {
+        Tournament.Entrant entrant = Tournament.Entrant.parse("mcts:200:0.7:5");
+        assertEquals("mcts:200:0.7:5", entrant.label());
+        assertEquals("mcts", entrant.engine());
+        assertEquals(200, entrant.iterations());
+        assertEquals(0.7, entrant.exploration(), 1e-9);
+        assertEquals(5, entrant.timeBudgetMillis());
+        assertEquals("hard", Tournament.Entrant.parse("hard").engine());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateEntrants() {
+        Tournament.Options.parse(new String[]{"-e", "mcts:10,mcts:10"});
+    }
+
+    @Test
+    public void testRunTicTacToe() throws Exception {
+        Path directory = Files.createTempDirectory("tournament");
+        Tournament.Options options = Tournament.Options.parse(new String[]{
+                "-g", "tictactoe", "-e", "mcts:2,mcts:200,mcts:50", "-n", "8", "-p", "2", "-o", directory.toString()});
+        List<Tournament.PairingResult> results = Tournament.run(options);
+        assertEquals(3, results.size());
+        for (Tournament.PairingResult result : results) {
+            assertTrue(result.games() > 0 && result.games() <= 8);
+            assertEquals(0, result.games() % 2);
+        }
+        assertEquals(4, Files.readAllLines(directory.resolve(Tournament.PAIRINGS_FILE)).size());
+        List<String> standings = Files.readAllLines(directory.resolve(Tournament.STANDINGS_FILE));
+        assertEquals(Tournament.STANDINGS_HEADER, standings.get(0));
+        assertEquals(4, standings.size());
+    }
+
+    @Test
+    public void testRunDotsStopsEarly() throws Exception {
+        Path directory = Files.createTempDirectory("tournament");
+        Tournament.Options options = Tournament.Options.parse(new String[]{
+                "-g", "dots", "-b", "3", "-e", "mcts:1,expert", "-n", "200", "-l", "0", "-u", "200", "-p", "4", "-o", directory.toString()});
+        Tournament.PairingResult result = Tournament.run(options).get(0);
+        assertNotEquals(Sprt.Decision.CONTINUE, result.decision());
+        assertTrue(result.games() < 200);
+    }
+}
@@ -0,0 +1,36 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EarlyStopTest {
+
+    @Test
+    public void testPlayouts() {
+        assertTrue(EarlyStop.EXACT.decided(60, 100, 10, 49, 50, 1, true));
+        assertFalse(EarlyStop.EXACT.decided(60, 100, 10, 50, 50, 1, true));
+        assertFalse(EarlyStop.OFF.decided(60, 100, 10, 0, 50, 1, true));
+    }
+
+    @Test
+    public void testMean() {
+        // 150/200 falls to 150/210 = 0.71 at worst, while 20/100 rises to 40/110 = 0.36 at best.
+        assertTrue(EarlyStop.EXACT.decided(150, 200, 20, 100, 10, 2, false));
+        // 150/300 = 0.5 may fall below 120/300 = 0.4 rising to 720/600 = 1.2.
+        assertFalse(EarlyStop.EXACT.decided(150, 300, 120, 300, 300, 2, false));
+    }
+
+    @Test
+    public void testConfidence() {
+        // Means of 0.8 and 0.4 over 1000 playouts each, with intervals of about 0.04.
+        assertFalse(EarlyStop.EXACT.decided(800, 1000, 400, 1000, 100_000, 1, false));
+        assertTrue(EarlyStop.confident(0.01).decided(800, 1000, 400, 1000, 100_000, 1, false));
+        assertFalse(EarlyStop.confident(0.01).decided(800, 1000, 780, 1000, 100_000, 1, false));
+        assertFalse(EarlyStop.confident(0.01).decided(800, 1000, 0, 0, 100_000, 1, false));
+        // Only the confidence rule applies while a child might still be proven.
+        assertTrue(EarlyStop.confident(0.01).significant(800, 1000, 400, 1000, 1));
+        assertFalse(EarlyStop.EXACT.significant(800, 1000, 400, 1000, 1));
+    }
+}
@@ -0,0 +1,106 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesEndgame;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesGame;
+import com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes.DotsAndBoxesState;
+import com.phasmidsoftware.dsaipg.projects.mcts.tictactoe.TicTacToe;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ProofNumberSearchTest {
+
+    @Test
+    public void testTicTacToeIsADraw() {
+        State<TicTacToe> start = new TicTacToe(0).start();
+        ProofNumberSearch<TicTacToe> search = new ProofNumberSearch<>(0);
+        assertEquals(ProofNumberSearch.Result.DISPROVEN, search.prove(start, TicTacToe.X));
+        assertTrue(search.nodes() > 0);
+        assertEquals(ProofNumberSearch.Result.DISPROVEN, search.prove(start, TicTacToe.O));
+        assertTrue(search.winningMove(start).isEmpty());
+    }
+
+    @Test
+    public void testTicTacToeForcedWin() {
+        // X takes a corner and O replies on an adjacent edge, after which X can force a win.
+        State<TicTacToe> state = firstMove(firstMove(new TicTacToe(0).start()));
+        ProofNumberSearch<TicTacToe> search = new ProofNumberSearch<>(0);
+        assertEquals(ProofNumberSearch.Result.PROVEN, search.prove(state, TicTacToe.X));
+        assertEquals(ProofNumberSearch.Result.DISPROVEN, search.prove(state, TicTacToe.O));
+        // Following the winning moves (against any defence) wins the game.
+        Random random = new Random(0);
+        while (!state.isTerminal()) {
+            if (state.player() == TicTacToe.X) state = state.next(search.winningMove(state).orElseThrow());
+            else {
+                List<Move<TicTacToe>> moves = new ArrayList<>(state.moves(state.player()));
+                state = state.next(moves.get(random.nextInt(moves.size())));
+            }
+        }
+        assertEquals(Integer.valueOf(TicTacToe.X), state.winner().orElseThrow());
+    }
+
+    @Test
+    public void testDotsAndBoxes() throws IOException {
+        Path path = Files.createTempFile("endgame", ".db");
+        path.toFile().deleteOnExit();
+        DotsAndBoxesEndgame.write(3, path);
+        DotsAndBoxesEndgame endgame = DotsAndBoxesEndgame.open(path);
+        ProofNumberSearch<DotsAndBoxesGame> search = new ProofNumberSearch<>(0, 12);
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            DotsAndBoxesState state = new DotsAndBoxesState(new DotsAndBoxesGame(3), 1, random);
+            for (int k = (int) (seed % 8); k > 0 && !state.isTerminal(); k--) {
+                List<Move<DotsAndBoxesGame>> moves = new ArrayList<>(state.moves(state.player()));
+                state = (DotsAndBoxesState) state.next(moves.get(random.nextInt(moves.size())));
+            }
+            if (state.isTerminal()) continue;
+            int player = state.player();
+            int[] scores = state.getScores();
+            boolean win = scores[player - 1] - scores[2 - player] + endgame.margin(state) > 0;
+            assertEquals(win ? ProofNumberSearch.Result.PROVEN : ProofNumberSearch.Result.DISPROVEN, search.prove(state, player));
+        }
+    }
+
+    @Test
+    public void testNodeBudget() {
+        State<DotsAndBoxesGame> start = new DotsAndBoxesGame(5).start();
+        ProofNumberSearch<DotsAndBoxesGame> search = new ProofNumberSearch<>(100);
+        assertEquals(ProofNumberSearch.Result.UNKNOWN, search.prove(start, start.player()));
+        assertEquals(100, search.nodes());
+        assertTrue(search.winningMove(start).isEmpty());
+    }
+
+    @Test
+    public void testProvingEngine() {
+        State<TicTacToe> state = firstMove(firstMove(new TicTacToe(0).start()));
+        Engine<TicTacToe> never = s -> {
+            throw new AssertionError("the position should have been proven");
+        };
+        ProvingEngine<TicTacToe> engine = new ProvingEngine<>(new ProofNumberSearch<>(0), never);
+        Move<TicTacToe> move = engine.findBestMove(state);
+        assertEquals(ProofNumberSearch.Result.PROVEN, new ProofNumberSearch<TicTacToe>(0).prove(state.next(move), TicTacToe.X));
+        assertEquals(0, engine.lastSearch().orElseThrow().iterations());
+        assertTrue(engine.lastSearch().orElseThrow().nodes() > 0);
+
+        // The start is not a win, so the other engine chooses.
+        State<TicTacToe> start = new TicTacToe(0).start();
+        Move<TicTacToe> first = start.moves(start.player()).iterator().next();
+        engine = new ProvingEngine<>(new ProofNumberSearch<>(0), s -> first);
+        assertSame(first, engine.findBestMove(start));
+        assertTrue(engine.lastSearch().isEmpty());
+    }
+
+    /**
+     * @return the state after the first of the moves, which are in the order of the empty cells, row by row.
+     */
+    private static State<TicTacToe> firstMove(State<TicTacToe> state) {
+        return state.next(state.moves(state.player()).iterator().next());
+    }
+}
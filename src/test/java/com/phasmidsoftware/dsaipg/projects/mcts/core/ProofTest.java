@@ -0,0 +1,44 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.tictactoe.TicTacToe;
+import com.phasmidsoftware.dsaipg.projects.mcts.tictactoe.TicTacToeNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ProofTest {
+
+    @Test
+    public void testOpposite() {
+        assertEquals(Proof.LOSS, Proof.WIN.opposite());
+        assertEquals(Proof.WIN, Proof.LOSS.opposite());
+        assertEquals(Proof.DRAW, Proof.DRAW.opposite());
+    }
+
+    @Test
+    public void testBest() {
+        assertEquals(Proof.WIN, best(true, Proof.LOSS, null, Proof.WIN));
+        assertEquals(Proof.WIN, best(false, Proof.WIN));
+        assertEquals(Proof.DRAW, best(true, Proof.LOSS, Proof.DRAW, Proof.LOSS));
+        assertEquals(Proof.LOSS, best(true, Proof.LOSS, Proof.LOSS));
+        assertNull(best(true, Proof.DRAW, null));
+        assertNull(best(false, Proof.DRAW, Proof.LOSS));
+    }
+
+    private static Proof best(boolean complete, Proof... proofs) {
+        Map<Node<TicTacToe>, Proof> map = new HashMap<>();
+        List<Node<TicTacToe>> children = new ArrayList<>();
+        for (Proof proof : proofs) {
+            Node<TicTacToe> child = new TicTacToeNode(null);
+            children.add(child);
+            map.put(child, proof);
+        }
+        return Proof.best(children, complete, map::get);
+    }
+}
@@ -0,0 +1,68 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SelectionPolicyTest {
+
+    @Test
+    public void testOf() {
+        for (String name : SelectionPolicy.NAMES)
+            assertEquals(name, SelectionPolicy.of(name, 1.414).name());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfUnknown() {
+        SelectionPolicy.of("random", 1.414);
+    }
+
+    @Test
+    public void testUcb1() {
+        SelectionPolicy policy = SelectionPolicy.of("ucb1", 1.414);
+        double parentTerm = policy.parentTerm(100);
+        assertEquals(Uct.value(6, 10, Uct.parentTerm(1.414, 100)), policy.score(6, 10, 0, parentTerm, 1, null), 0);
+        assertEquals(Double.POSITIVE_INFINITY, policy.score(0, 0, 0, parentTerm, 1, null), 0);
+    }
+
+    @Test
+    public void testUcb1Tuned() {
+        SelectionPolicy policy = SelectionPolicy.of("ucb1-tuned", Math.sqrt(2));
+        double parentTerm = policy.parentTerm(100);
+        double mean = 0.6;
+        double variance = mean * (1 - mean) + Math.sqrt(2 * Math.log(100) / 10);
+        double expected = mean + Math.sqrt(Math.log(100) / 10 * Math.min(0.25, variance));
+        assertEquals(expected, policy.score(6, 10, 0, parentTerm, 1, null), 1E-12);
+        // Rewards are scaled by the reward of a win.
+        assertEquals(2 * expected, policy.score(12, 10, 0, parentTerm, 2, null), 1E-12);
+        assertEquals(Double.POSITIVE_INFINITY, policy.score(0, 0, 0, parentTerm, 1, null), 0);
+    }
+
+    @Test
+    public void testPuct() {
+        SelectionPolicy policy = SelectionPolicy.of("puct", 1.0);
+        assertTrue(policy.usesPriors());
+        double parentTerm = policy.parentTerm(100);
+        assertTrue(policy.score(5, 10, 0.5, parentTerm, 1, null) > policy.score(5, 10, 0.1, parentTerm, 1, null));
+        // An unvisited child with a high prior beats a visited child with a low prior and a moderate mean.
+        assertTrue(policy.score(0, 0, 0.5, parentTerm, 1, null) > policy.score(5, 10, 0.1, parentTerm, 1, null));
+        assertEquals(0.5 + 10 * 0.5 / 11, policy.score(5, 10, 0.5, parentTerm, 1, null), 1E-12);
+    }
+
+    @Test
+    public void testThompson() {
+        SelectionPolicy policy = SelectionPolicy.of("thompson", 0);
+        Random random = new Random(0L);
+        double sum = 0;
+        int n = 20000;
+        for (int i = 0; i < n; i++) {
+            double score = policy.score(160, 100, 0, policy.parentTerm(1000), 2, random);
+            assertTrue(score >= 0 && score <= 2);
+            sum += score;
+        }
+        // The posterior is Beta(81, 21), whose mean is 81/102.
+        assertEquals(2 * 81.0 / 102, sum / n, 0.01);
+    }
+}
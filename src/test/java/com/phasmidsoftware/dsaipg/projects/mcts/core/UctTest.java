@@ -0,0 +1,32 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class UctTest {
+
+    @Test
+    public void testTables() {
+        for (int n : new int[]{1, 2, 3, 100, Uct.TABLE_SIZE - 1, Uct.TABLE_SIZE, 1_000_000}) {
+            assertEquals(Math.log(n), Uct.log(n), 0);
+            assertEquals(1 / Math.sqrt(n), Uct.inverseSqrt(n), 0);
+        }
+    }
+
+    @Test
+    public void testValue() {
+        double c = 1.414;
+        for (int parent : new int[]{1, 7, 1000, 50_000})
+            for (int child = 1; child <= parent; child *= 3) {
+                double wins = child * 0.4;
+                double expected = wins / child + c * Math.sqrt(Math.log(parent) / child);
+                assertEquals(expected, Uct.value(wins, child, Uct.parentTerm(c, parent)), 1E-12);
+            }
+    }
+
+    @Test
+    public void testParentTermWithoutPlayouts() {
+        assertEquals(0, Uct.parentTerm(1.414, 0), 0);
+    }
+}
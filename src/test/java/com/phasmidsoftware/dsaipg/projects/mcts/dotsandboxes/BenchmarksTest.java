@@ -1,11 +1,15 @@
 package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
 
+import com.phasmidsoftware.dsaipg.projects.mcts.benchmark.ResourceMonitor;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 import static org.junit.Assert.*;
 
@@ -34,10 +38,35 @@ public class BenchmarksTest {
 
             String data = reader.readLine();
             assertNotNull("Should have at least one row of data", data);
-            assertEquals("Data should have 9 columns", 9, data.split(",").length);
+            assertEquals("Data should have 34 columns", 34, data.split(",").length);
         }
     }
 
+    @Test
+    public void testResumedSettingLeavesResourceColumnsBlank() throws Exception {
+        Path directory = Files.createTempDirectory("benchmarks");
+        Path csv = directory.resolve("results.csv");
+        Path checkpoint = directory.resolve("games.log");
+        new Benchmarks(4, csv.toString(), 0, 1, checkpoint).runExperimentSet(3, 10);
+        String[] first = Files.readAllLines(csv).get(1).split(",", -1);
+        assertNotEquals("", first[first.length - 1]);
+
+        // Every game is already in the log, so nothing is played and there is nothing to measure.
+        new Benchmarks(4, csv.toString(), 0, 1, checkpoint).runExperimentSet(3, 10);
+        String[] resumed = Files.readAllLines(csv).get(1).split(",", -1);
+        assertEquals(first.length, resumed.length);
+        assertArrayEquals(Arrays.copyOfRange(first, 0, 5), Arrays.copyOfRange(resumed, 0, 5));
+        int resources = ResourceMonitor.CSV_HEADER.split(",").length;
+        for (int i = resumed.length - resources; i < resumed.length; i++) assertEquals("", resumed[i]);
+        assertEquals(4, Files.readAllLines(checkpoint).size());
+
+        // A different number of rounds is a different setting, whose games are not taken from the log.
+        new Benchmarks(2, csv.toString(), 0, 2, checkpoint).runExperimentSet(3, 10);
+        String[] other = Files.readAllLines(csv).get(1).split(",", -1);
+        assertNotEquals("", other[other.length - 1]);
+        assertEquals(8, Files.readAllLines(checkpoint).size());
+    }
+
     @Test
     public void testRunIterationExperimentsAppendsMultipleLines() throws Exception {
         benchmarks = new Benchmarks(10);
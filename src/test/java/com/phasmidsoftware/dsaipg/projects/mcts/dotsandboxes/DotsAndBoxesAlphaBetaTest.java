@@ -0,0 +1,96 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SearchStatistics;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DotsAndBoxesAlphaBetaTest {
+
+    private static DotsAndBoxesEndgame endgame;
+
+    @BeforeClass
+    public static void solveEndgames() throws IOException {
+        Path path = Files.createTempFile("endgame", ".db");
+        path.toFile().deleteOnExit();
+        DotsAndBoxesEndgame.write(3, path);
+        endgame = DotsAndBoxesEndgame.open(path);
+    }
+
+    @Test
+    public void testSolvesSmallBoard() {
+        DotsAndBoxesAlphaBeta alphaBeta = new DotsAndBoxesAlphaBeta(0, 0);
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(3).start();
+        // The engine keeps its table from one move to the next, and plays perfectly throughout.
+        while (!state.isTerminal()) {
+            Move<DotsAndBoxesGame> move = alphaBeta.findBestMove(state);
+            assertEquals(endgame.margin(state), alphaBeta.lastValue(), 0);
+            assertEquals(endgame.margin(state), endgame.margin(state, move));
+            state = (DotsAndBoxesState) state.next(move);
+        }
+    }
+
+    @Test
+    public void testSolvesEndgames() {
+        for (long seed = 0; seed < 50; seed++) {
+            DotsAndBoxesState state = randomPosition(3, 4 + (int) (seed % 6), new Random(seed));
+            if (state.isTerminal()) continue;
+            DotsAndBoxesAlphaBeta alphaBeta = new DotsAndBoxesAlphaBeta(0, 0, 10);
+            Move<DotsAndBoxesGame> move = alphaBeta.findBestMove(state);
+            assertEquals(endgame.margin(state), alphaBeta.lastValue(), 0);
+            assertEquals(endgame.margin(state), endgame.margin(state, move));
+        }
+    }
+
+    @Test
+    public void testNodeBudget() {
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(7).start();
+        DotsAndBoxesAlphaBeta alphaBeta = new DotsAndBoxesAlphaBeta(5000, 0);
+        Move<DotsAndBoxesGame> move = alphaBeta.findBestMove(state);
+        assertEquals(state.remainingLines() - 1, ((DotsAndBoxesState) state.next(move)).remainingLines());
+        SearchStatistics statistics = alphaBeta.lastSearch().orElseThrow();
+        assertTrue(statistics.nodes() > 1000);
+        assertTrue(statistics.nodes() <= 5000);
+    }
+
+    @Test
+    public void testTimeLimit() {
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(8).start();
+        DotsAndBoxesAlphaBeta alphaBeta = new DotsAndBoxesAlphaBeta(0, 50);
+        assertNotNull(alphaBeta.findBestMove(state));
+        assertTrue(alphaBeta.lastSearch().orElseThrow().nanos() < 2_000_000_000L);
+    }
+
+    @Test
+    public void testHybrid() {
+        DotsAndBoxesHybrid hybrid = new DotsAndBoxesHybrid(new DotsAndBoxesMcts(200, Math.sqrt(2)), new DotsAndBoxesAlphaBeta(0, 0), 8);
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(3).start();
+        assertNotNull(hybrid.findBestMove(state));
+        assertEquals(200, hybrid.lastSearch().orElseThrow().iterations());
+        state = randomPosition(3, 8, new Random(0));
+        Move<DotsAndBoxesGame> move = hybrid.findBestMove(state);
+        assertEquals(endgame.margin(state), endgame.margin(state, move));
+        assertEquals(hybrid.lastSearch().orElseThrow().nodes(), hybrid.lastSearch().orElseThrow().iterations());
+    }
+
+    /**
+     * Play random moves until there are no more than the given number of lines left.
+     */
+    private static DotsAndBoxesState randomPosition(int size, int lines, Random random) {
+        DotsAndBoxesState state = ((DotsAndBoxesState) new DotsAndBoxesGame(size).start()).withRandom(random);
+        while (state.remainingLines() > lines) {
+            List<Move<DotsAndBoxesGame>> moves = new ArrayList<>(state.moves(state.player()));
+            state = (DotsAndBoxesState) state.next(moves.get(random.nextInt(moves.size())));
+        }
+        return state;
+    }
+}
@@ -0,0 +1,82 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DotsAndBoxesBookTest {
+
+    private static DotsAndBoxesBook book;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        Path path = Files.createTempFile("dots", ".book");
+        path.toFile().deleteOnExit();
+        assertEquals(1 + 6, DotsAndBoxesBook.write(5, 1, () -> new DotsAndBoxesMcts(100, Math.sqrt(2)), path));
+        book = DotsAndBoxesBook.open(path);
+    }
+
+    @Test
+    public void testSymmetricPositionsShareEntries() {
+        DotsAndBoxesState start = (DotsAndBoxesState) new DotsAndBoxesGame(5).start();
+        assertEquals(5, book.size());
+        assertEquals(7, book.entries());
+        Set<Long> keys = new HashSet<>();
+        for (Move<DotsAndBoxesGame> line : start.moves(start.player())) {
+            DotsAndBoxesState state = (DotsAndBoxesState) start.next(line);
+            keys.add(book.key(state));
+            Move<DotsAndBoxesGame> move = book.move(state);
+            assertNotNull(move);
+            assertEquals(100, book.iterations(state));
+            DotsAndBoxesState next = (DotsAndBoxesState) state.next(move);
+            assertEquals(state.remainingLines() - 1, next.remainingLines());
+            // The reply to every line of one orbit is the same reply, seen in the orientation of the position.
+            assertEquals(book.key(next), book.key((DotsAndBoxesState) canonical(start, line).next(book.move(canonical(start, line)))));
+        }
+        // The 40 lines of the board make 6 orbits under its symmetries (the first line of each corner, edge, ...).
+        assertEquals(6, keys.size());
+    }
+
+    @Test
+    public void testMisses() {
+        DotsAndBoxesState start = (DotsAndBoxesState) new DotsAndBoxesGame(5).start();
+        DotsAndBoxesState state = start;
+        for (int k = 0; k < 2; k++) state = (DotsAndBoxesState) state.next(state.moves(state.player()).iterator().next());
+        assertNull(book.move(state));
+        assertEquals(0, book.iterations(state));
+        assertNull(book.move((DotsAndBoxesState) new DotsAndBoxesGame(4).start()));
+
+        // The engine plays from the book without searching.
+        DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(1000, Math.sqrt(2)).useBook(book);
+        assertEquals(start.next(book.move(start)), start.next(mcts.findBestMove(start)));
+        assertEquals(0, mcts.lastSearch().orElseThrow().iterations());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotABook() throws IOException {
+        Path path = Files.createTempFile("dots", ".book");
+        path.toFile().deleteOnExit();
+        Files.write(path, new byte[100]);
+        DotsAndBoxesBook.open(path);
+    }
+
+    /**
+     * @return the position after the first line (in the order of the moves) with the same key as the given line.
+     */
+    private static DotsAndBoxesState canonical(DotsAndBoxesState start, Move<DotsAndBoxesGame> line) {
+        long key = book.key((DotsAndBoxesState) start.next(line));
+        for (Move<DotsAndBoxesGame> move : start.moves(start.player())) {
+            DotsAndBoxesState state = (DotsAndBoxesState) start.next(move);
+            if (book.key(state) == key) return state;
+        }
+        throw new AssertionError();
+    }
+}
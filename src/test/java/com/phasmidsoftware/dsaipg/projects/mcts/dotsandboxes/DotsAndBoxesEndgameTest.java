@@ -0,0 +1,103 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DotsAndBoxesEndgameTest {
+
+    private static DotsAndBoxesEndgame small;
+    private static DotsAndBoxesEndgame large;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        Path directory = Files.createTempDirectory("endgames");
+        directory.toFile().deleteOnExit();
+        for (int size = 3; size <= 4; size++) {
+            Path path = DotsAndBoxesEndgame.path(directory, size);
+            DotsAndBoxesEndgame.write(size, path);
+            path.toFile().deleteOnExit();
+        }
+        small = DotsAndBoxesEndgame.open(DotsAndBoxesEndgame.path(directory, 3));
+        large = DotsAndBoxesEndgame.open(DotsAndBoxesEndgame.path(directory, 4));
+    }
+
+    @Test
+    public void testStart() {
+        // The first player takes three of the four boxes of the smallest board, and the second player six of nine on the next.
+        assertEquals(2, small.margin((DotsAndBoxesState) new DotsAndBoxesGame(3).start()));
+        assertEquals(-3, large.margin((DotsAndBoxesState) new DotsAndBoxesGame(4).start()));
+        assertEquals(4, large.size());
+        assertTrue(large.covers((DotsAndBoxesState) new DotsAndBoxesGame(4).start()));
+        assertFalse(large.covers((DotsAndBoxesState) new DotsAndBoxesGame(5).start()));
+    }
+
+    @Test
+    public void testAgreesWithSearch() {
+        for (DotsAndBoxesEndgame endgame : new DotsAndBoxesEndgame[]{small, large})
+            for (long seed = 0; seed < 50; seed++) {
+                DotsAndBoxesState state = randomPosition(endgame.size(), 7, new Random(seed));
+                assertEquals(search(state), endgame.margin(state));
+            }
+    }
+
+    @Test
+    public void testBestMove() {
+        for (long seed = 0; seed < 50; seed++) {
+            DotsAndBoxesState state = randomPosition(4, 16, new Random(seed));
+            DotsAndBoxesState next = (DotsAndBoxesState) state.next(large.bestMove(state));
+            assertEquals(large.margin(state), gain(state, next) + (next.player() == state.player() ? 1 : -1) * large.margin(next));
+        }
+        // The engine plays from the database without searching.
+        DotsAndBoxesState start = (DotsAndBoxesState) new DotsAndBoxesGame(4).start();
+        DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(1000, Math.sqrt(2)).useEndgame(large);
+        assertEquals(start.next(large.bestMove(start)), start.next(mcts.findBestMove(start)));
+        assertEquals(0, mcts.lastSearch().orElseThrow().iterations());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotADatabase() throws IOException {
+        Path path = Files.createTempFile("endgame", ".db");
+        path.toFile().deleteOnExit();
+        Files.write(path, new byte[100]);
+        DotsAndBoxesEndgame.open(path);
+    }
+
+    /**
+     * Play random moves until there are no more than the given number of lines left.
+     */
+    private static DotsAndBoxesState randomPosition(int size, int lines, Random random) {
+        DotsAndBoxesState state = ((DotsAndBoxesState) new DotsAndBoxesGame(size).start()).withRandom(random);
+        while (state.remainingLines() > lines) {
+            List<Move<DotsAndBoxesGame>> moves = new ArrayList<>(state.moves(state.player()));
+            state = (DotsAndBoxesState) state.next(moves.get(random.nextInt(moves.size())));
+        }
+        return state;
+    }
+
+    /**
+     * @return the margin which the player to move can secure from the unclaimed boxes, by exhaustive search.
+     */
+    private static int search(DotsAndBoxesState state) {
+        if (state.isTerminal()) return 0;
+        int best = Integer.MIN_VALUE;
+        for (Move<DotsAndBoxesGame> move : state.moves(state.player())) {
+            DotsAndBoxesState next = (DotsAndBoxesState) state.next(move);
+            best = Math.max(best, gain(state, next) + (next.player() == state.player() ? search(next) : -search(next)));
+        }
+        return best;
+    }
+
+    private static int gain(DotsAndBoxesState state, DotsAndBoxesState next) {
+        return next.getScores()[state.player() - 1] - state.getScores()[state.player() - 1];
+    }
+}
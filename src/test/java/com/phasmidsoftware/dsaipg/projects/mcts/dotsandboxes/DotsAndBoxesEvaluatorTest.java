@@ -0,0 +1,103 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DotsAndBoxesEvaluatorTest {
+
+    @Test
+    public void testStart() {
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(4).start();
+        assertEquals(new DotsAndBoxesEvaluator.Structure(9, 0, 0, 0, 0, 0, 0, false), DotsAndBoxesEvaluator.structure(state));
+        assertEquals(0, DotsAndBoxesEvaluator.margin(state, 1), 0);
+        assertEquals(0.5, DotsAndBoxesEvaluator.winProbability(state, 2), 0);
+        assertEquals(0.5, DotsAndBoxesEvaluator.boxShare(state, 2), 0);
+    }
+
+    @Test
+    public void testChain() {
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(4).start();
+        // The top and bottom sides of the top row of boxes make a chain of three.
+        for (int j = 0; j < 3; j++) {
+            state = horizontal(state, 0, j);
+            state = horizontal(state, 1, j);
+        }
+        assertEquals(new DotsAndBoxesEvaluator.Structure(9, 1, 0, 0, 3, 0, 0, false), DotsAndBoxesEvaluator.structure(state));
+
+        // Closing one end opens the chain, which player 2 can now take.
+        state = vertical(state, 0, 0);
+        assertEquals(2, state.player());
+        assertEquals(new DotsAndBoxesEvaluator.Structure(6, 0, 0, 0, 0, 3, 0, true), DotsAndBoxesEvaluator.structure(state));
+        assertEquals(3, DotsAndBoxesEvaluator.margin(state, 2), 0);
+        assertEquals(-3, DotsAndBoxesEvaluator.margin(state, 1), 0);
+        assertTrue(DotsAndBoxesEvaluator.winProbability(state, 2) > 0.5);
+        assertEquals(1, DotsAndBoxesEvaluator.winProbability(state, 1) + DotsAndBoxesEvaluator.winProbability(state, 2), 1E-9);
+    }
+
+    @Test
+    public void testLoop() {
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(4).start();
+        // The outline of the top-left block of four boxes.
+        for (int k = 0; k < 2; k++) {
+            state = horizontal(state, 0, k);
+            state = horizontal(state, 2, k);
+            state = vertical(state, k, 0);
+            state = vertical(state, k, 2);
+        }
+        DotsAndBoxesEvaluator.Structure structure = DotsAndBoxesEvaluator.structure(state);
+        assertEquals(1, structure.loops());
+        assertEquals(0, structure.longChains());
+        assertEquals(4, structure.settled());
+        assertEquals(4, state.chainLength(1, 1));
+        assertEquals(0, state.chainLength(2, 2));
+    }
+
+    @Test
+    public void testOpeningChainInTheMiddle() {
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(4).start();
+        for (int j = 0; j < 3; j++) {
+            state = horizontal(state, 0, j);
+            state = horizontal(state, 1, j);
+        }
+        for (int j = 0; j < 3; j++) assertEquals(3, state.chainLength(0, j));
+        assertEquals(0, state.chainLength(1, 0));
+
+        // The line between the first two boxes splits the chain into two opened chains, of one box and of two.
+        state = vertical(state, 0, 1);
+        assertEquals(1, state.chainLength(0, 0));
+        assertEquals(2, state.chainLength(0, 1));
+        assertEquals(2, state.chainLength(0, 2));
+        assertEquals(new DotsAndBoxesEvaluator.Structure(6, 0, 0, 0, 0, 3, 0, true), DotsAndBoxesEvaluator.structure(state));
+
+        // Taking the single box leaves the other chain as it was.
+        state = vertical(state, 0, 0);
+        assertEquals(0, state.chainLength(0, 0));
+        assertEquals(2, state.chainLength(0, 2));
+        assertEquals(new DotsAndBoxesEvaluator.Structure(6, 0, 0, 0, 0, 2, 0, true), DotsAndBoxesEvaluator.structure(state));
+    }
+
+    @Test
+    public void testTerminal() {
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(2).start();
+        state = horizontal(state, 0, 0);
+        state = horizontal(state, 1, 0);
+        state = vertical(state, 0, 0);
+        // Player 2 completes the only box.
+        state = vertical(state, 0, 1);
+        assertTrue(state.isTerminal());
+        assertEquals(1, DotsAndBoxesEvaluator.winProbability(state, 2), 0);
+        assertEquals(0, DotsAndBoxesEvaluator.winProbability(state, 1), 0);
+        assertEquals(-1, DotsAndBoxesEvaluator.margin(state, 1), 0);
+        assertEquals(1, DotsAndBoxesEvaluator.boxShare(state, 2), 0);
+        assertEquals(0, DotsAndBoxesEvaluator.boxShare(state, 1), 0);
+    }
+
+    private static DotsAndBoxesState horizontal(DotsAndBoxesState state, int row, int col) {
+        return (DotsAndBoxesState) state.next(new DotsAndBoxesMove(row, col, row, col + 1, state.player()));
+    }
+
+    private static DotsAndBoxesState vertical(DotsAndBoxesState state, int row, int col) {
+        return (DotsAndBoxesState) state.next(new DotsAndBoxesMove(row, col, row + 1, col, state.player()));
+    }
+}
@@ -1,19 +1,44 @@
 package com.phasmidsoftware.dsaipg.projects.mcts.dotsandboxes;
 
+import com.phasmidsoftware.dsaipg.projects.mcts.core.EarlyStop;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Proof;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SearchStatistics;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SelectionPolicy;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.TreeBudget;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
 public class DotsAndBoxesMctsTest {
 
+    private static DotsAndBoxesEndgame endgame;
+
     private DotsAndBoxesGame game;
     private DotsAndBoxesState initialState;
 
+    @BeforeClass
+    public static void solveEndgames() throws IOException {
+        Path path = Files.createTempFile("endgame", ".db");
+        path.toFile().deleteOnExit();
+        DotsAndBoxesEndgame.write(3, path);
+        endgame = DotsAndBoxesEndgame.open(path);
+    }
+
     @Before
     public void setup() {
         game = new DotsAndBoxesGame(3);
@@ -50,6 +75,227 @@ public class DotsAndBoxesMctsTest {
         assertNotNull(mcts.findBestMove(initialState));
     }
 
+    @Test
+    public void testRootParallelSearch() {
+        DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(200, Math.sqrt(2), 0, 4);
+        Move<DotsAndBoxesGame> move = mcts.findBestMove(initialState);
+        assertNotNull(move);
+        assertEquals(200, mcts.lastSearch().orElseThrow().iterations());
+        assertTrue(mcts.lastSearch().orElseThrow().nodes() > 1);
+    }
+
+    @Test
+    public void testTreeBudget() {
+        DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(200, Math.sqrt(2), 0, 1, new TreeBudget(2, 0));
+        assertNotNull(mcts.findBestMove(initialState));
+        SearchStatistics statistics = mcts.lastSearch().orElseThrow();
+        // Only the root may grow beyond the budget.
+        assertEquals(1 + initialState.moves(initialState.player()).size(), statistics.nodes());
+        // Only the state of the root has been materialized.
+        assertEquals(statistics.nodes() * DotsAndBoxesNode.NODE_BYTES + DotsAndBoxesNode.stateBytes(initialState.game().getSize()),
+                statistics.estimatedBytes());
+    }
+
+    @Test
+    public void testTreeKeepsGrowingAfterPruning() {
+        State<DotsAndBoxesGame> state = new DotsAndBoxesGame(6).start();
+        int children = state.moves(state.player()).size();
+        DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(5000, Math.sqrt(2), 0, 1, new TreeBudget(0, 200_000),
+                SelectionPolicy.of("ucb1", Math.sqrt(2)));
+        mcts.findBestMove(state);
+        SearchStatistics statistics = mcts.lastSearch().orElseThrow();
+        // The states of pruned nodes are no longer counted, so the tree grows below the children of the root again.
+        assertTrue("nodes " + statistics.nodes(), statistics.nodes() > 1 + children);
+        assertTrue("bytes " + statistics.estimatedBytes(), statistics.estimatedBytes() <= 200_000);
+    }
+
+    @Test
+    public void testSelectionPolicies() {
+        for (String name : SelectionPolicy.NAMES) {
+            DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(300, Math.sqrt(2), 0, 1, TreeBudget.UNLIMITED, SelectionPolicy.of(name, Math.sqrt(2)));
+            assertNotNull(name, mcts.findBestMove(initialState));
+            SearchStatistics statistics = mcts.lastSearch().orElseThrow();
+            assertEquals(name, 300, statistics.iterations() + statistics.savedIterations());
+            // Nodes are expanded on their second visit, so the tree grows beyond the children of the root.
+            assertTrue(name, statistics.nodes() > 1 + initialState.moves(initialState.player()).size());
+        }
+    }
+
+    @Test
+    public void testRave() {
+        DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(300, Math.sqrt(2), 0, 1, TreeBudget.UNLIMITED, null, DotsAndBoxesMcts.RAVE_EQUIVALENCE);
+        assertNotNull(mcts.findBestMove(initialState));
+        SearchStatistics statistics = mcts.lastSearch().orElseThrow();
+        assertEquals(300, statistics.iterations() + statistics.savedIterations());
+        assertTrue(statistics.nodes() > 1 + initialState.moves(initialState.player()).size());
+        // Every expanded node (at least the root) carries AMAF tables.
+        int size = initialState.game().getSize();
+        assertTrue(statistics.estimatedBytes() >= statistics.nodes() * DotsAndBoxesNode.NODE_BYTES
+                + DotsAndBoxesNode.stateBytes(size) + DotsAndBoxesNode.amafBytes(size));
+    }
+
+    @Test
+    public void testRemainingLines() {
+        DotsAndBoxesState state = new DotsAndBoxesState(new DotsAndBoxesGame(4), 1, new Random(0));
+        assertEquals(24, state.remainingLines());
+        while (!state.isTerminal()) {
+            assertEquals(state.moves(state.player()).size(), state.remainingLines());
+            assertEquals(state.remainingLines(), state.withRandom(new Random(1)).remainingLines());
+            state = (DotsAndBoxesState) state.next(state.chooseMove(state.player()));
+        }
+        assertEquals(0, state.remainingLines());
+    }
+
+    @Test
+    public void testTruncatedRollouts() {
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(5).start();
+        for (int depth : new int[]{0, 4}) {
+            DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(300, Math.sqrt(2), 0, 1, TreeBudget.UNLIMITED,
+                    SelectionPolicy.of("puct", Math.sqrt(2)), 0, EarlyStop.OFF, depth);
+            Move<DotsAndBoxesGame> move = mcts.findBestMove(state);
+            assertEquals(state.remainingLines() - 1, ((DotsAndBoxesState) state.next(move)).remainingLines());
+            assertEquals(300, mcts.lastSearch().orElseThrow().iterations());
+        }
+    }
+
+    @Test
+    public void testStaticEvaluationPlaysEndgames() {
+        // Evaluating the leaves (instead of playing rollouts) must not lose the value of a small endgame.
+        for (long seed = 0; seed < 5; seed++) {
+            DotsAndBoxesState state = quietEndgame(seed);
+            DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(2000, Math.sqrt(2), 0, 1, TreeBudget.UNLIMITED,
+                    SelectionPolicy.of("puct", Math.sqrt(2)), 0, EarlyStop.OFF, 0);
+            Move<DotsAndBoxesGame> move = mcts.findBestMove(state);
+            assertEquals(solve(state, state.player()), solve((DotsAndBoxesState) state.next(move), state.player()));
+        }
+    }
+
+    @Test
+    public void testMarginReward() {
+        // Rewarding the margin must not lose the value of a small endgame either.
+        for (long seed = 0; seed < 5; seed++) {
+            DotsAndBoxesState state = quietEndgame(seed);
+            for (double weight : new double[]{DotsAndBoxesMcts.MARGIN_WEIGHT, 1}) {
+                DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(2000, Math.sqrt(2), 0, 1, TreeBudget.UNLIMITED,
+                        SelectionPolicy.of("puct", Math.sqrt(2))).useMarginReward(weight);
+                Move<DotsAndBoxesGame> move = mcts.findBestMove(state);
+                assertEquals(solve(state, state.player()), solve((DotsAndBoxesState) state.next(move), state.player()));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMarginWeightOutOfRange() {
+        new DotsAndBoxesMcts(100, Math.sqrt(2)).useMarginReward(1.5);
+    }
+
+    @Test
+    public void testSolverStopsWhenRootIsProven() {
+        for (long seed = 0; seed < 5; seed++) {
+            DotsAndBoxesState state = quietEndgame(seed);
+            DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(50000, Math.sqrt(2), 0, 1, TreeBudget.UNLIMITED, SelectionPolicy.of("ucb1", Math.sqrt(2)));
+            Move<DotsAndBoxesGame> move = mcts.findBestMove(state);
+            assertTrue(mcts.lastSearch().orElseThrow().iterations() < 50000);
+            // The move chosen from the proven root is an optimal move.
+            assertEquals(solve(state, state.player()), solve((DotsAndBoxesState) state.next(move), state.player()));
+        }
+    }
+
+    /**
+     * Play safe moves (which neither complete nor offer a box) at random until there are none left.
+     */
+    private static DotsAndBoxesState quietEndgame(long seed) {
+        DotsAndBoxesState state = ((DotsAndBoxesState) new DotsAndBoxesGame(3).start()).withRandom(new Random(seed));
+        while (true) {
+            List<Move<DotsAndBoxesGame>> safe = new ArrayList<>();
+            for (Move<DotsAndBoxesGame> move : state.moves(state.player()))
+                if (DotsAndBoxesMcts.moveWeight(state, (DotsAndBoxesMove) move) == 2) safe.add(move);
+            if (safe.isEmpty()) return state;
+            state = (DotsAndBoxesState) state.next(safe.get(state.random().nextInt(safe.size())));
+        }
+    }
+
+    /**
+     * @return the value of the state (on a board of three dots per side) for the given player with perfect play.
+     */
+    private static Proof solve(DotsAndBoxesState state, int player) {
+        int[] scores = state.getScores();
+        int margin = scores[player - 1] - scores[2 - player] + (state.player() == player ? 1 : -1) * endgame.margin(state);
+        return margin > 0 ? Proof.WIN : margin < 0 ? Proof.LOSS : Proof.DRAW;
+    }
+
+    @Test
+    public void testEarlyStopKeepsMove() {
+        DotsAndBoxesState state = (DotsAndBoxesState) new DotsAndBoxesGame(4).start();
+        for (long seed = 0; seed < 3; seed++) {
+            DotsAndBoxesMcts exact = new DotsAndBoxesMcts(1000, Math.sqrt(2), 0, 1, TreeBudget.UNLIMITED, SelectionPolicy.of("ucb1", Math.sqrt(2)), 0, EarlyStop.EXACT);
+            DotsAndBoxesMcts full = new DotsAndBoxesMcts(1000, Math.sqrt(2), 0, 1, TreeBudget.UNLIMITED, SelectionPolicy.of("ucb1", Math.sqrt(2)), 0, EarlyStop.OFF);
+            Move<DotsAndBoxesGame> move = exact.findBestMove(state.withRandom(new Random(seed)));
+            assertEquals(state.next(full.findBestMove(state.withRandom(new Random(seed)))), state.next(move));
+            SearchStatistics statistics = exact.lastSearch().orElseThrow();
+            assertEquals(1000, statistics.iterations() + statistics.savedIterations());
+            // Until the tree can no longer reach the end of the game, a proof might still change the move.
+            assertTrue(statistics.savedIterations() < state.remainingLines());
+            assertEquals(0, full.lastSearch().orElseThrow().savedIterations());
+        }
+    }
+
+    @Test
+    public void testLineIndex() {
+        int size = initialState.game().getSize();
+        Set<Integer> indices = new HashSet<>();
+        for (Move<DotsAndBoxesGame> move : initialState.moves(initialState.player())) {
+            int index = ((DotsAndBoxesMove) move).lineIndex(size);
+            assertTrue(index >= 0 && index < 2 * size * (size - 1));
+            assertTrue(indices.add(index));
+        }
+        assertEquals(2 * size * (size - 1), indices.size());
+    }
+
+    @Test
+    public void testMoveWeight() {
+        DotsAndBoxesState state = (DotsAndBoxesState) game.start();
+        state = (DotsAndBoxesState) state.next(new DotsAndBoxesMove(0, 0, 0, 1, 1)); // top
+        state = (DotsAndBoxesState) state.next(new DotsAndBoxesMove(1, 0, 1, 1, 1)); // bottom
+        assertEquals(1, DotsAndBoxesMcts.moveWeight(state, new DotsAndBoxesMove(0, 0, 1, 0, state.player())), 0); // offers the box
+        assertEquals(2, DotsAndBoxesMcts.moveWeight(state, new DotsAndBoxesMove(0, 1, 0, 2, state.player())), 0);
+        state = (DotsAndBoxesState) state.next(new DotsAndBoxesMove(0, 0, 1, 0, state.player())); // left
+        assertEquals(4, DotsAndBoxesMcts.moveWeight(state, new DotsAndBoxesMove(0, 1, 1, 1, state.player())), 0); // completes it
+    }
+
+    @Test
+    public void testSideCounts() {
+        DotsAndBoxesState state = (DotsAndBoxesState) game.start();
+        assertEquals(4, state.boxesWithSides(0));
+        state = (DotsAndBoxesState) state.next(new DotsAndBoxesMove(1, 0, 1, 1, 1)); // between the two left boxes
+        assertEquals(1, state.sides(0, 0));
+        assertEquals(1, state.sides(1, 0));
+        assertEquals(2, state.boxesWithSides(1));
+        state = (DotsAndBoxesState) state.next(new DotsAndBoxesMove(0, 0, 0, 1, state.player()));
+        state = (DotsAndBoxesState) state.next(new DotsAndBoxesMove(0, 0, 1, 0, state.player()));
+        assertEquals(3, state.sides(0, 0));
+        assertEquals(1, state.boxesWithSides(3));
+        assertEquals(3, state.mostSides(new DotsAndBoxesMove(0, 1, 1, 1, state.player())));
+        state = (DotsAndBoxesState) state.next(new DotsAndBoxesMove(0, 1, 1, 1, state.player()));
+        assertEquals(1, state.boxesWithSides(4));
+        assertEquals(0, state.boxesWithSides(3));
+        assertEquals(2, state.getBoxes()[0][0]);
+        assertEquals(2, state.player()); // completing the box earns another move
+    }
+
+    @Test
+    public void testExploreDefersChildStates() {
+        DotsAndBoxesNode root = new DotsAndBoxesNode(initialState, null);
+        root.explore();
+        assertEquals(initialState.moves(initialState.player()).size(), root.children().size());
+        for (Node<DotsAndBoxesGame> child : root.children()) {
+            DotsAndBoxesNode node = (DotsAndBoxesNode) child;
+            assertFalse(node.hasState());
+            assertEquals(initialState.next(node.move()), node.state());
+            assertTrue(node.hasState());
+        }
+    }
+
     @Test
     public void testFindBoxCompletingMove() {
         DotsAndBoxesMcts mcts = new DotsAndBoxesMcts(DotsAndBoxesMcts.Difficulty.EXPERT);
@@ -20,7 +20,7 @@ public class BenchmarksTest {
         String result = Benchmarks.runSimulation(10, 5);
         String[] parts = result.trim().split(",");
 
-        assertEquals(9, parts.length);
+        assertEquals(34, parts.length);
         assertDoesNotThrow(() -> Integer.parseInt(parts[0]));
         assertDoesNotThrow(() -> Double.parseDouble(parts[5]));
         assertDoesNotThrow(() -> Double.parseDouble(parts[6]));
@@ -42,7 +42,7 @@ public class BenchmarksTest {
         String[] parts = result.trim().split(",");
 
         // Check column count
-        assertEquals(9, parts.length, "Expected 9 columns in CSV output");
+        assertEquals(34, parts.length, "Expected 34 columns in CSV output");
 
         // Check types of a few columns
         assertDoesNotThrow(() -> Integer.parseInt(parts[0]), "Iterations should be an int");
@@ -89,13 +89,28 @@ public class BenchmarksTest {
         // Then
         // Validate the structure
         String[] parts = result.split(",");
-        assertEquals(9, parts.length, "CSV line must contain 11 values");
+        assertEquals(34, parts.length, "CSV line must contain 34 values");
         assertTrue(result.endsWith("\n"), "CSV line must end with a newline");
     }
 
+    @Test
+    public void testRunSimulationWithWarmupAndRounds() {
+        String result = Benchmarks.runSimulation(10, 2, 3, 3);
+        String[] parts = result.trim().split(",");
+
+        assertEquals(34, parts.length);
+        assertEquals(6, Integer.parseInt(parts[1]), "TotalGames should cover all measured rounds");
+        assertEquals(6, Integer.parseInt(parts[2]) + Integer.parseInt(parts[3]) + Integer.parseInt(parts[4]));
+        assertEquals(3, Integer.parseInt(parts[25]), "WarmupGames");
+        assertEquals(3, Integer.parseInt(parts[26]), "Rounds");
+        assertTrue(Double.parseDouble(parts[28]) >= 0, "StdDevRoundMillis should be non-negative");
+    }
+
     @Test
     public void testMainDoesNotThrow() {
       Benchmarks.GAMES_PER_SETTING=10;
+      Benchmarks.WARMUP_GAMES=0;
+      Benchmarks.MEASUREMENT_ROUNDS=1;
         Benchmarks.runSimulation(2, 1);
 
         assertDoesNotThrow(() -> Benchmarks.main(new String[]{}));
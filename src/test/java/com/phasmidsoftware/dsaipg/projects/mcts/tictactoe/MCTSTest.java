@@ -1,11 +1,16 @@
 package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
 
+import com.phasmidsoftware.dsaipg.projects.mcts.core.EarlyStop;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Proof;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.SelectionPolicy;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.TreeBudget;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -87,6 +92,20 @@ public class MCTSTest {
         assertEquals(1, coords[1], "Expected move col to be center (1)");
     }
 
+    @Test
+    void testStrategicCell() {
+        Random random = new Random(0);
+        // Bit 3 * row + column of a mask is set for the cell in that row and column.
+        assertEquals(2, MCTS.strategicCell(0b000_000_011, 0b000_011_000, 0b111_100_100, random), "win");
+        // With a single threat (at 5), the first move other than the threat is chosen, as the original policy did.
+        assertEquals(1, MCTS.strategicCell(0b000_000_001, 0b000_011_000, 0b111_100_110, random), "threat");
+        assertEquals(4, MCTS.strategicCell(0b000_000_000, 0b000_000_001, 0b111_111_110, random), "center");
+        assertEquals(0, MCTS.strategicCell(0b000_000_000, 0b000_010_000, 0b111_101_111, random), "corner");
+        int cell = MCTS.strategicCell(0b010_000_101, 0b101_010_010, 0b000_101_000, random);
+        assertTrue(cell == 3 || cell == 5, "random");
+        assertEquals(0b000_100_000, MCTS.winningCells(0b000_011_000, 0b000_100_000));
+    }
+
     @Test
     void testUCTPrefersUnvisited() {
         TicTacToeNode parent = new TicTacToeNode(new TicTacToe().new TicTacToeState());
@@ -122,4 +141,93 @@ public class MCTSTest {
         }
         assertTrue(winsOrDraws >= RUNS * 0.5);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRunWithTimeLimit() {
+        TicTacToeNode root = new TicTacToeNode(new TicTacToe().new TicTacToeState());
+        MCTS mcts = new MCTS(root);
+        int performed = mcts.run(Integer.MAX_VALUE, 20);
+        assertTrue(performed > 0);
+        assertEquals(performed, root.playouts());
+    }
+
+    @Test
+    void testEngineTakesWin() {
+        // X to play and win in the top row
+        Position position = Position.parsePosition("X X .\nO O .\n. . .", TicTacToe.O);
+        TicTacToe.TicTacToeState state = new TicTacToe(0L).new TicTacToeState(position);
+        Move<TicTacToe> move = new MCTSEngine(500).findBestMove(state);
+        assertArrayEquals(new int[]{0, 2}, ((TicTacToe.TicTacToeMove) move).move());
+    }
+
+    @Test
+    void testRootParallelEngineTakesWin() {
+        Position position = Position.parsePosition("X X .\nO O .\n. . .", TicTacToe.O);
+        TicTacToe.TicTacToeState state = new TicTacToe(0L).new TicTacToeState(position);
+        MCTSEngine engine = new MCTSEngine(1000, 1.414, 0, 4);
+        Move<TicTacToe> move = engine.findBestMove(state);
+        assertArrayEquals(new int[]{0, 2}, ((TicTacToe.TicTacToeMove) move).move());
+        // Each tree stops as soon as it proves the win.
+        assertTrue(engine.lastSearch().orElseThrow().iterations() < 1000);
+        assertTrue(engine.lastSearch().orElseThrow().nodes() > 1);
+    }
+
+    @Test
+    void testTreeBudgetLimitsNodes() {
+        TicTacToeNode root = new TicTacToeNode(new TicTacToe(0L).new TicTacToeState());
+        MCTS mcts = new MCTS(root, 1.414, new TreeBudget(10, 0));
+        assertEquals(1000, mcts.run(1000, 0));
+        assertEquals(10, mcts.nodes());
+        assertEquals(10 * TicTacToeNode.ESTIMATED_BYTES, mcts.estimatedBytes());
+        assertNotNull(mcts.getBestMove());
+    }
+
+    @Test
+    void testSelectionPoliciesTakeWin() {
+        Position position = Position.parsePosition("X X .\nO O .\n. . .", TicTacToe.O);
+        for (String name : SelectionPolicy.NAMES) {
+            TicTacToe.TicTacToeState state = new TicTacToe(0L).new TicTacToeState(position);
+            MCTSEngine engine = new MCTSEngine(1000, SelectionPolicy.of(name, 1.414), 0, 1, TreeBudget.UNLIMITED);
+            Move<TicTacToe> move = engine.findBestMove(state);
+            assertArrayEquals(new int[]{0, 2}, ((TicTacToe.TicTacToeMove) move).move(), name);
+        }
+    }
+
+    @Test
+    void testEarlyStopKeepsMove() {
+        MCTS full = new MCTS(new TicTacToeNode(new TicTacToe(7L).new TicTacToeState()));
+        assertEquals(2000, full.run(2000, 0));
+        MCTS early = new MCTS(new TicTacToeNode(new TicTacToe(7L).new TicTacToeState()));
+        // The tree reaches finished games long before the end, and a proof might then change the move at any time.
+        assertEquals(2000, early.run(2000, 0, EarlyStop.EXACT));
+        assertEquals(0, early.savedIterations());
+        // The early search is the same as the full search, and chooses the same move.
+        assertEquals(((TicTacToe.TicTacToeState) full.getBestMove().state()).position(),
+                ((TicTacToe.TicTacToeState) early.getBestMove().state()).position());
+    }
+
+    @Test
+    void testSolverProvesWin() {
+        Position position = Position.parsePosition("X X .\nO O .\n. . .", TicTacToe.O);
+        TicTacToeNode root = new TicTacToeNode(new TicTacToe(0L).new TicTacToeState(position));
+        MCTS mcts = new MCTS(root);
+        int performed = mcts.run(1000, 0);
+        assertTrue(mcts.solved());
+        assertTrue(performed < 1000);
+        assertEquals(performed, root.playouts());
+        TicTacToeNode best = mcts.getBestMove();
+        assertEquals(Proof.WIN, best.proof());
+        assertTrue(best.state().isTerminal());
+    }
+
+    @Test
+    void testSolverProvesDraw() {
+        // O to play: every line is blocked, so the game is a proven draw.
+        Position position = Position.parsePosition("X O X\nX O .\nO X .", TicTacToe.X);
+        TicTacToeNode root = new TicTacToeNode(new TicTacToe(0L).new TicTacToeState(position));
+        MCTS mcts = new MCTS(root);
+        assertTrue(mcts.run(1000, 0) < 1000);
+        assertEquals(Proof.DRAW, root.proof());
+        for (Node<TicTacToe> child : root.children()) assertEquals(Proof.DRAW, ((TicTacToeNode) child).proof());
+    }
+}
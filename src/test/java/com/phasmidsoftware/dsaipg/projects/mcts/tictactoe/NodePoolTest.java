@@ -0,0 +1,86 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.NodePool;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.TreeBudget;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodePoolTest {
+
+    @Test
+    void testReleaseAndReuse() {
+        NodePool<TicTacToe, TicTacToeNode> pool = TicTacToeNode.pool(100);
+        TicTacToeNode root = pool.obtain(new TicTacToe(0L).new TicTacToeState(), null);
+        for (int i = 0; i < 3; i++) root.explore();
+        assertEquals(4, pool.created());
+        assertEquals(4, pool.release(root));
+        assertEquals(4, pool.free());
+        // The states of the children were never materialized.
+        assertEquals(1, pool.releasedStates());
+        assertNull(root.state());
+
+        State<TicTacToe> state = new TicTacToe(1L).new TicTacToeState();
+        TicTacToeNode node = pool.obtain(state, null);
+        assertEquals(1, pool.reused());
+        assertEquals(4, pool.created());
+        assertSame(state, node.state());
+        assertTrue(node.children().isEmpty());
+        assertEquals(0, node.playouts());
+        assertTrue(node.isLeaf());
+    }
+
+    @Test
+    void testCapacity() {
+        NodePool<TicTacToe, TicTacToeNode> pool = TicTacToeNode.pool(2);
+        TicTacToeNode root = pool.obtain(new TicTacToe(0L).new TicTacToeState(), null);
+        for (int i = 0; i < 5; i++) root.explore();
+        assertEquals(6, pool.release(root));
+        assertEquals(2, pool.free());
+    }
+
+    @Test
+    void testPruneLeastVisited() {
+        NodePool<TicTacToe, TicTacToeNode> pool = TicTacToeNode.pool(100);
+        TicTacToeNode root = pool.obtain(new TicTacToe(0L).new TicTacToeState(), null);
+        root.explore();
+        root.explore();
+        List<Node<TicTacToe>> children = new ArrayList<>(root.children());
+        for (int i = 0; i < 2; i++) {
+            children.get(i).explore();
+            children.get(i).explore();
+            children.get(i).setPlayouts(10 * (i + 1));
+        }
+        assertEquals(2, pool.prune(root, null, 1));
+        assertTrue(children.get(0).children().isEmpty());
+        assertEquals(10, children.get(0).playouts());
+        assertTrue(children.get(0).isLeaf());
+        assertEquals(2, children.get(1).children().size());
+        // The ancestors of the node to be expanded are kept.
+        Node<TicTacToe> keep = children.get(1).children().iterator().next();
+        assertEquals(0, pool.prune(root, keep, 1));
+    }
+
+    @Test
+    void testPooledSearchIsUnchanged() {
+        MCTS plain = new MCTS(new TicTacToeNode(new TicTacToe(42L).new TicTacToeState()), 1.414, TreeBudget.UNLIMITED);
+        plain.run(500, 0);
+        NodePool<TicTacToe, TicTacToeNode> pool = TicTacToeNode.pool(1000);
+        for (int i = 0; i < 3; i++) {
+            MCTS pooled = new MCTS(pool.obtain(new TicTacToe(42L).new TicTacToeState(), null), 1.414, TreeBudget.UNLIMITED, pool);
+            pooled.run(500, 0);
+            assertEquals(plain.nodes(), pooled.nodes());
+            assertEquals(plain.getRoot().playouts(), pooled.getRoot().playouts());
+            assertEquals(((TicTacToe.TicTacToeState) plain.getBestMove().state()).position(),
+                    ((TicTacToe.TicTacToeState) pooled.getBestMove().state()).position());
+            pooled.release();
+        }
+        assertTrue(pool.reused() > 0);
+        assertEquals(plain.nodes(), pool.created());
+    }
+}
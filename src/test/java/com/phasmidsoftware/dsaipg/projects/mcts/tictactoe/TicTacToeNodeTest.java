@@ -7,7 +7,9 @@ import org.junit.Test;
 
 import static org.junit.Assert.*; // ✅ include all asserts like assertFalse, assertEquals, etc.
 
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -35,6 +37,23 @@ public class TicTacToeNodeTest {
         assertEquals(state, node.state());
     }
 
+    @Test
+    public void exploreMaterializesChildStateLazily() {
+        TicTacToe.TicTacToeState state = new TicTacToe(0L).new TicTacToeState(
+                Position.parsePosition("X . O\nX O .\n. . .", TicTacToe.O));
+        TicTacToeNode node = new TicTacToeNode(state);
+        for (int i = 0; i < 5; i++) node.explore();
+        assertEquals(5, node.children().size());
+        Set<Position> positions = new HashSet<>();
+        for (Node<TicTacToe> child : node.children()) {
+            Position position = ((TicTacToe.TicTacToeState) child.state()).position();
+            assertTrue(positions.add(position));
+            assertNotEquals(state.position(), position);
+        }
+        // All five empty cells have been explored.
+        assertFalse(node.isLeaf());
+    }
+
     @Test
     public void white() {
         TicTacToe.TicTacToeState state = new TicTacToe().new TicTacToeState();